@@ -24,6 +24,7 @@ import java.nio.charset.Charset;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.Assertions;
@@ -31,6 +32,7 @@ import org.junit.jupiter.api.Test;
 import org.opentest4j.AssertionFailedError;
 
 import io.cocolabs.pz.zdoc.IntegrationTest;
+import io.cocolabs.pz.zdoc.util.Utils;
 
 class JavaCompilerIntTest implements IntegrationTest {
 
@@ -65,6 +67,23 @@ class JavaCompilerIntTest implements IntegrationTest {
 		}
 	}
 
+	@Test
+	void shouldScanAllExposedJavaClassesFromBytecode() throws ReflectiveOperationException, IOException {
+
+		Set<Class<?>> scannedExposedElements = ExposedClassScanner.getExposedJava();
+		// global object class is not exposed by LuaManager
+		scannedExposedElements.add(Utils.getClassForName(JavaCompiler.GLOBAL_OBJECT_CLASS));
+
+		for (Class<?> exposedElement : JavaCompiler.getExposedJava())
+		{
+			if (!scannedExposedElements.contains(exposedElement))
+			{
+				String message = "Did not scan exposed Java class";
+				throw new AssertionFailedError(message, exposedElement, null);
+			}
+		}
+	}
+
 	/**
 	 * Ensure that {@link NoClassDefFoundError} and {@link ClassNotFoundException}
 	 * exceptions are not thrown, which happens when JDK classes are not found.
@@ -0,0 +1,123 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.compile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Matcher;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.base.Strings;
+
+import io.cocolabs.pz.zdoc.IntegrationTest;
+import io.cocolabs.pz.zdoc.Main;
+import io.cocolabs.pz.zdoc.logger.Logger;
+
+/**
+ * Compare {@link LuaTableScanner} with {@link LuaAnnotator#LUA_TABLE_DECLARATION} pattern
+ * on every line of vanilla lua files found in game directory. Game directory is read from
+ * {@code PZ_DIR_PATH} environment variable. Timings are only logged for comparison
+ * because they depend on the machine running the benchmark.
+ */
+class LuaTableScannerBenchmark implements IntegrationTest {
+
+	private static final int WARMUP_ROUNDS = 5, MEASURED_ROUNDS = 10;
+
+	@Test
+	void shouldScanVanillaLuaFilesSameAsRegex() throws IOException {
+
+		String gameDir = Strings.nullToEmpty(System.getenv("PZ_DIR_PATH"));
+		File luaDir = new File(gameDir, "media/lua");
+		Assumptions.assumeTrue(!gameDir.isEmpty() && luaDir.isDirectory(),
+				"Unable to find vanilla lua directory " + luaDir);
+
+		List<String> lines = new ArrayList<>();
+		Collection<File> files = FileUtils.listFiles(luaDir, new String[]{ "lua" }, true);
+		for (File file : files) {
+			lines.addAll(FileUtils.readLines(file, Main.CHARSET));
+		}
+		LuaTableScanner scanner = new LuaTableScanner();
+		int mismatches = 0, declarations = 0;
+		for (String line : lines)
+		{
+			Matcher matcher = LuaAnnotator.LUA_TABLE_DECLARATION.matcher(line);
+			boolean found = matcher.find();
+			if (found != scanner.scan(line) || (found && (matcher.end(2) != scanner.getNameEnd()
+					|| matcher.start(3) != scanner.getParentStart() || matcher.end(3) != scanner.getParentEnd())))
+			{
+				Logger.warn("Scanner result does not match regex for line: %s", line);
+				mismatches++;
+			}
+			else if (found) {
+				declarations++;
+			}
+		}
+		for (int i = 0; i < WARMUP_ROUNDS; i++)
+		{
+			matchWithRegex(lines);
+			matchWithScanner(lines, scanner);
+		}
+		long regexTime = 0, scannerTime = 0;
+		for (int i = 0; i < MEASURED_ROUNDS; i++)
+		{
+			long start = System.nanoTime();
+			Assertions.assertEquals(declarations, matchWithRegex(lines));
+			regexTime += System.nanoTime() - start;
+
+			start = System.nanoTime();
+			Assertions.assertEquals(declarations, matchWithScanner(lines, scanner));
+			scannerTime += System.nanoTime() - start;
+		}
+		Logger.info("Scanned %d lines in %d files (%d declarations): regex %.2f ms, scanner %.2f ms per round",
+				lines.size(), files.size(), declarations,
+				regexTime / 1e6 / MEASURED_ROUNDS, scannerTime / 1e6 / MEASURED_ROUNDS);
+
+		Assertions.assertEquals(0, mismatches);
+	}
+
+	private static int matchWithRegex(List<String> lines) {
+
+		int count = 0;
+		for (String line : lines)
+		{
+			if (LuaAnnotator.LUA_TABLE_DECLARATION.matcher(line).find()) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static int matchWithScanner(List<String> lines, LuaTableScanner scanner) {
+
+		int count = 0;
+		for (String line : lines)
+		{
+			if (scanner.scan(line)) {
+				count++;
+			}
+		}
+		return count;
+	}
+}
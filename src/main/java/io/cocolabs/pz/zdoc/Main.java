@@ -18,10 +18,14 @@
 package io.cocolabs.pz.zdoc;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -38,13 +42,22 @@ import com.google.common.io.CharStreams;
 import io.cocolabs.pz.zdoc.cmd.Command;
 import io.cocolabs.pz.zdoc.cmd.CommandLine;
 import io.cocolabs.pz.zdoc.compile.CompilerException;
+import io.cocolabs.pz.zdoc.compile.CompileManifest;
 import io.cocolabs.pz.zdoc.compile.JavaCompiler;
 import io.cocolabs.pz.zdoc.compile.LuaAnnotator;
 import io.cocolabs.pz.zdoc.compile.LuaCompiler;
+import io.cocolabs.pz.zdoc.doc.APIPageCache;
+import io.cocolabs.pz.zdoc.doc.APIPageFetcher;
+import io.cocolabs.pz.zdoc.doc.APIPageMirror;
+import io.cocolabs.pz.zdoc.doc.DocWriterPool;
+import io.cocolabs.pz.zdoc.doc.JavaDocIR;
+import io.cocolabs.pz.zdoc.doc.LocalAPISource;
+import io.cocolabs.pz.zdoc.doc.OutputManifest;
 import io.cocolabs.pz.zdoc.doc.ZomboidJavaDoc;
 import io.cocolabs.pz.zdoc.doc.ZomboidLuaDoc;
 import io.cocolabs.pz.zdoc.element.lua.LuaClass;
 import io.cocolabs.pz.zdoc.logger.Logger;
+import io.cocolabs.pz.zdoc.util.ClassResolver;
 import io.cocolabs.pz.zdoc.util.Utils;
 
 public class Main {
@@ -76,25 +89,7 @@ public class Main {
 		else if (command == Command.VERSION)
 		{
 			try {
-				/* first try to find version file project root directory,
-				 * available when we are not running from a jar
-				 */
-				String zdocVersion;
-				File versionFile = new File("version.txt");
-				if (!versionFile.exists())
-				{
-					try (InputStream iStream = CLASS_LOADER.getResourceAsStream("version.txt"))
-					{
-						if (iStream == null) {
-							throw new FileNotFoundException("Unable to read version, missing version.txt");
-						}
-						try (Reader reader = new InputStreamReader(iStream, Charsets.UTF_8)) {
-							zdocVersion = CharStreams.toString(reader);
-						}
-					}
-				}
-				else zdocVersion = FileUtils.readFileToString(versionFile, CHARSET);
-				Logger.info("zdoc version " + zdocVersion);
+				Logger.info("zdoc version " + readVersion());
 
 				Class<?> coreClass = Utils.getClassForName("zombie.core.Core");
 				Object core = MethodUtils.invokeStaticMethod(coreClass, "getInstance");
@@ -129,7 +124,8 @@ public class Main {
 			}
 			boolean onlyAnnotated = cmdLine.includeOnlyAnnotated();
 			Properties properties = Utils.getProperties("annotate.properties");
-			// process every file found under given root path
+			// resolve output file for every lua file found under given root path
+			Map<File, File> outputFiles = new LinkedHashMap<>();
 			for (Path path : paths)
 			{
 				if (Utils.isLuaFile(path))
@@ -160,58 +156,88 @@ public class Main {
 						outputFilePath = path;
 						Logger.warn("Unspecified output directory, overwriting files");
 					}
-					File outputFile = outputFilePath.toFile();
-					String fileName = path.getFileName().toString();
-					List<String> content = new ArrayList<>();
+					outputFiles.put(path.toFile(), outputFilePath.toFile());
+				}
+			}
+			LuaAnnotator.AnnotateRules rules = new LuaAnnotator.AnnotateRules(properties, exclude);
+			// files are annotated with the same result as if they were annotated in order
+			LuaAnnotator.annotate(new ArrayList<>(outputFiles.keySet()), rules,
+					cmdLine.getAnnotateThreads(), new LuaAnnotator.AnnotateHandler()
+			{
+				@Override
+				public WritableByteChannel open(File file) throws IOException {
 
-					LuaAnnotator.AnnotateRules rules = new LuaAnnotator.AnnotateRules(properties, exclude);
-					LuaAnnotator.AnnotateResult result = LuaAnnotator.annotate(path.toFile(), content, rules);
+					File outputFile = outputFiles.get(file);
+					// make sure output directory exists before we try to write to it,
+					// files might be written from multiple threads so directory might already be created
+					Files.createDirectories(outputFile.getAbsoluteFile().getParentFile().toPath());
+					/* annotated content is streamed to a temporary file because
+					 * the output file can be the same file that is being annotated
+					 */
+					return FileChannel.open(getAnnotateTempFile(outputFile), StandardOpenOption.CREATE,
+							StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+				}
+
+				@Override
+				public boolean isOnlyAnnotated() {
+					return onlyAnnotated;
+				}
+
+				@Override
+				public void handle(File file, LuaAnnotator.AnnotateResult result,
+								   boolean written) throws IOException {
+
+					File outputFile = outputFiles.get(file);
+					String fileName = file.getName();
 
 					String addendum = outputFile.exists() ? " and overwriting" : "";
 					Logger.debug(String.format("Annotating%s file %s...", addendum, fileName));
+					boolean write = !onlyAnnotated;
 					switch (result)
 					{
 						case ALL_INCLUDED:
 							Logger.info(String.format("Finished annotating file \"%s\", " +
 									"all elements matched.", fileName));
-							writeAnnotatedLinesToFile(content, outputFile);
+							write = true;
 							break;
 						case PARTIAL_INCLUSION:
 							Logger.error(String.format("Failed annotating file \"%s\", " +
 									"some elements were not matched.", fileName));
-							writeAnnotatedLinesToFile(content, outputFile);
+							write = true;
 							break;
 						case NO_MATCH:
 							Logger.error(String.format("Failed annotating file \"%s\", " +
 									"no elements were matched", fileName));
-							if (!onlyAnnotated) {
-								writeAnnotatedLinesToFile(content, outputFile);
-							}
 							break;
 						case SKIPPED_FILE_IGNORED:
 							Logger.warn(String.format("Skipped annotating file \"%s\", " +
 									"file was ignored.", fileName));
-							if (!onlyAnnotated) {
-								writeAnnotatedLinesToFile(content, outputFile);
-							}
 							break;
 						case SKIPPED_FILE_EMPTY:
 							Logger.warn(String.format("Skipped annotating file \"%s\", " +
 									"file was empty.", fileName));
-							if (!onlyAnnotated) {
-								writeAnnotatedLinesToFile(content, outputFile);
-							}
 							break;
 						case ALL_EXCLUDED:
 							Logger.warn(String.format("Skipped annotating file \"%s\", " +
 									"all elements were excluded.", fileName));
-							if (!onlyAnnotated) {
-								writeAnnotatedLinesToFile(content, outputFile);
-							}
 							break;
 					}
+					// do not write empty content
+					if (written)
+					{
+						Path tempFile = getAnnotateTempFile(outputFile);
+						if (write) {
+							Files.move(tempFile, outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+						}
+						else Files.delete(tempFile);
+					}
 				}
-			}
+
+				@Override
+				public void discard(File file) throws IOException {
+					Files.deleteIfExists(getAnnotateTempFile(outputFiles.get(file)));
+				}
+			});
 		}
 		else if (command == Command.COMPILE)
 		{
@@ -256,32 +282,131 @@ public class Main {
 					CLASS_OVERRIDES.put((String) entry.getKey(), override);
 				}
 			}
-			Set<ZomboidJavaDoc> compiledJava = new JavaCompiler(exclude).compile();
-			Set<ZomboidLuaDoc> compiledLua = new LuaCompiler(compiledJava).compile();
-			for (ZomboidLuaDoc zLuaDoc : compiledLua)
+			Path irInput = cmdLine.getIRInputFile(), irOutput = cmdLine.getIROutputFile();
+			CompileManifest compileManifest = null;
+			if (cmdLine.isIncremental() && (irInput != null || irOutput != null)) {
+				Logger.warn("Incremental compilation is not supported with java document IR, compiling all classes");
+			}
+			else if (cmdLine.isIncremental())
 			{
-				String luaDocName = zLuaDoc.getName();
-				String luaDocProp = properties.getProperty(luaDocName);
-				if (luaDocProp != null)
+				// changes to compile settings affect all classes
+				List<String> environment = new ArrayList<>();
+				properties.forEach((k, v) -> environment.add(k + "=" + v));
+				Utils.getProperties("javaclass.properties").forEach(
+						(k, v) -> environment.add("javaclass " + k + "=" + v));
+				CLASS_OVERRIDES.forEach((k, v) -> environment.add("override " + k + "=" + v));
+				exclude.forEach(e -> environment.add("exclude " + e));
+				Collections.sort(environment);
+
+				compileManifest = CompileManifest.load(userOutput.resolve(CompileManifest.FILE_NAME),
+						CompileManifest.hashEnvironment(readVersion(), environment));
+
+				// lua documents can only be reused if they are still in output directory
+				Path outputPath = userOutput;
+				compileManifest.retainIf(luaDocName -> {
+					String luaDocProp = properties.getProperty(luaDocName);
+					if (luaDocProp == null) {
+						return outputPath.resolve(luaDocName + ".lua").toFile().exists();
+					}
+					return StringUtils.isBlank(luaDocProp) || outputPath.resolve(luaDocProp + ".lua").toFile().exists();
+				});
+			}
+			Set<ZomboidJavaDoc> compiledJava;
+			Set<String> unusedExclusions;
+			if (irInput != null)
+			{
+				// skip java compilation and use previously compiled java documents
+				compiledJava = new LinkedHashSet<>();
+				unusedExclusions = new HashSet<>(exclude);
+				for (ZomboidJavaDoc javaDoc : JavaDocIR.read(irInput))
 				{
-					// override lua document name with property value
-					if (!StringUtils.isBlank(luaDocProp))
-					{
-						ZomboidLuaDoc overrideDoc = new ZomboidLuaDoc(
-								new LuaClass(luaDocProp, zLuaDoc.getClazz().getParentType()),
-								zLuaDoc.getFields(), zLuaDoc.getMethods()
-						);
-						overrideDoc.writeToFile(userOutput.resolve(luaDocProp + ".lua").toFile());
+					if (!unusedExclusions.remove(javaDoc.getName())) {
+						compiledJava.add(javaDoc);
 					}
+					else Logger.detail("Excluding exposed class %s", javaDoc.getName());
 				}
-				else zLuaDoc.writeToFile(userOutput.resolve(luaDocName + ".lua").toFile());
+			}
+			else try (APIPageFetcher fetcher = createAPIPageFetcher(cmdLine))
+			{
+				JavaCompiler javaCompiler = new JavaCompiler(exclude, fetcher, cmdLine.getCompileThreads(),
+						compileManifest, cmdLine.shouldScanExposed(), cmdLine.shouldReadBytecode());
+				compiledJava = javaCompiler.compile();
+				unusedExclusions = javaCompiler.getUnusedExclusions();
+				logFetchStatistics(fetcher);
+			}
+			if (irOutput != null) {
+				JavaDocIR.write(compiledJava, irOutput);
+			}
+			Logger.debug("Resolved class names: %d cache hits, %d lookups",
+					ClassResolver.getHitCount(), ClassResolver.getMissCount());
+			LuaCompiler luaCompiler = new LuaCompiler(compiledJava, cmdLine.getCompileThreads(), compileManifest);
+			Set<ZomboidLuaDoc> compiledLua;
+			// only files with changed content are written to output directory
+			OutputManifest manifest = new OutputManifest(userOutput, cmdLine.getManifestFile());
+			try (DocWriterPool writerPool = new DocWriterPool(cmdLine.getWriteThreads()))
+			{
+				// documents are written while remaining documents are still being compiled
+				compiledLua = luaCompiler.compile(zLuaDoc -> {
+					String luaDocName = zLuaDoc.getName();
+					String luaDocProp = properties.getProperty(luaDocName);
+					if (luaDocProp != null)
+					{
+						// override lua document name with property value
+						if (!StringUtils.isBlank(luaDocProp))
+						{
+							writerPool.submit(luaDocProp, () -> {
+								ZomboidLuaDoc overrideDoc = new ZomboidLuaDoc(
+										new LuaClass(luaDocProp, zLuaDoc.getClazz().getParentType()),
+										zLuaDoc.getFields(), zLuaDoc.getMethods()
+								);
+								manifest.write(luaDocProp + ".lua", overrideDoc::writeTo);
+							});
+						}
+					}
+					else writerPool.submit(luaDocName, () ->
+							manifest.write(luaDocName + ".lua", zLuaDoc::writeTo));
+				});
+				// all documents have to be written before global types
+				writerPool.await();
 			}
 			Logger.info("Compiled and written %d lua documents", compiledLua.size());
-			ZomboidLuaDoc.writeGlobalTypesToFile(userOutput.resolve("Types.lua").toFile());
-			for (String excludedClass : exclude) {
+
+			Set<LuaClass> globalTypes = luaCompiler.getGlobalTypes();
+			manifest.write("Types.lua", writer -> ZomboidLuaDoc.writeGlobalTypes(writer, globalTypes));
+			Logger.info("Compiled %d global lua types", globalTypes.size());
+
+			manifest.save();
+			if (compileManifest != null) {
+				compileManifest.save();
+			}
+			Logger.info("Written %d files, %d files unchanged",
+					manifest.getWrittenCount(), manifest.getUnchangedCount());
+			for (String excludedClass : unusedExclusions) {
 				Logger.warn("Class " + excludedClass + " was designated but not excluded from compilation.");
 			}
 		}
+		else if (command == Command.FETCH_API)
+		{
+			Path archive = cmdLine.getOutputPath();
+			if (archive == null)
+			{
+				archive = Paths.get(APIPageMirror.DEFAULT_ARCHIVE_NAME);
+				Logger.debug("Output path not specified, using default archive path instead");
+			}
+			else if (Files.isDirectory(archive)) {
+				archive = archive.resolve(APIPageMirror.DEFAULT_ARCHIVE_NAME);
+			}
+			try (APIPageFetcher fetcher = createAPIPageFetcher(cmdLine))
+			{
+				Set<String> apiPagePaths = new JavaCompiler(exclude, fetcher, JavaCompiler.DEFAULT_PARALLELISM,
+						null, cmdLine.shouldScanExposed(), false).getAPIPagePaths();
+				Logger.info("Fetching %d API pages to mirror archive %s", apiPagePaths.size(), archive);
+
+				int written = APIPageMirror.write(fetcher, apiPagePaths, archive);
+				Logger.info("Written %d/%d API pages to mirror archive", written, apiPagePaths.size());
+				logFetchStatistics(fetcher);
+			}
+		}
 		Logger.debug("Finished processing command");
 		/*
 		 * exit application gracefully to avoid unpredictable
@@ -306,20 +431,71 @@ public class Main {
 		return override != null ? (!isArray ? override : override + "[]") : name;
 	}
 
-	private static void writeAnnotatedLinesToFile(List<String> lines, File file) throws IOException {
+	/**
+	 * Create API page fetcher configured with command options.
+	 *
+	 * @throws IOException if an I/O error occurred while opening local API source
+	 * 		or loading API page cache.
+	 */
+	private static APIPageFetcher createAPIPageFetcher(CommandLine cmdLine) throws IOException {
 
-		// do not write empty content
-		if (lines.isEmpty()) {
-			return;
+		APIPageFetcher.Builder builder = APIPageFetcher.Builder.create()
+				.withThreads(cmdLine.getFetchThreads())
+				.withRevalidation(cmdLine.shouldRevalidate())
+				.withMaxAge(cmdLine.getCacheMaxAge())
+				.withPolicy(cmdLine.getFetchPolicy());
+
+		Path apiSource = cmdLine.getAPISource();
+		if (apiSource != null)
+		{
+			Logger.info("Reading API pages from local source %s", apiSource);
+			return builder.withSource(new LocalAPISource(apiSource)).build();
 		}
-		// make sure output file exists before we try to write to it
-		if (!file.exists())
+		Path cacheDir = cmdLine.getCacheDir();
+		if (cacheDir != null)
 		{
-			File parentFile = file.getParentFile();
-			if (!parentFile.exists() && (!parentFile.mkdirs() || !file.createNewFile())) {
-				throw new IOException("Unable to create specified output file: " + file);
+			Logger.debug("Using API page cache in directory %s", cacheDir);
+			builder.withCache(new APIPageCache(cacheDir, cmdLine.getCacheSize()));
+		}
+		return builder.build();
+	}
+
+	private static void logFetchStatistics(APIPageFetcher fetcher) {
+		Logger.info("Fetched API pages: %d cache hits, %d revalidations, %d downloads",
+				fetcher.getCacheHits(), fetcher.getRevalidations(), fetcher.getDownloads());
+	}
+
+	/**
+	 * Read zdoc version from version file.
+	 *
+	 * @throws FileNotFoundException if version file could not be found.
+	 * @throws IOException if an I/O error occurred while reading version file.
+	 */
+	private static String readVersion() throws IOException {
+
+		/* first try to find version file project root directory,
+		 * available when we are not running from a jar
+		 */
+		File versionFile = new File("version.txt");
+		if (!versionFile.exists())
+		{
+			try (InputStream iStream = CLASS_LOADER.getResourceAsStream("version.txt"))
+			{
+				if (iStream == null) {
+					throw new FileNotFoundException("Unable to read version, missing version.txt");
+				}
+				try (Reader reader = new InputStreamReader(iStream, Charsets.UTF_8)) {
+					return CharStreams.toString(reader);
+				}
 			}
 		}
-		FileUtils.writeLines(file, lines, false);
+		else return FileUtils.readFileToString(versionFile, CHARSET);
+	}
+
+	/**
+	 * Returns path to temporary file that annotated content of given output file is written to.
+	 */
+	private static Path getAnnotateTempFile(File outputFile) {
+		return Paths.get(outputFile.getPath() + ".tmp");
 	}
 }
@@ -34,7 +34,8 @@ public enum Command {
 	HELP("help", "", new Options(), "print command usage info"),
 	VERSION("version", new Options(), "prints game installation version"),
 	ANNOTATE("annotate", CommandOptions.LUA_OPTIONS, "annotate vanilla Lua with EmmyLua"),
-	COMPILE("compile", CommandOptions.JAVA_OPTIONS, "compile Lua library from modding API");
+	COMPILE("compile", CommandOptions.JAVA_OPTIONS, "compile Lua library from modding API"),
+	FETCH_API("fetch", CommandOptions.FETCH_OPTIONS, "download modding API pages to mirror archive");
 
 	static
 	{
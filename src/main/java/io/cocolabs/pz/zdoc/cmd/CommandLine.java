@@ -26,6 +26,7 @@ import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Option;
@@ -35,7 +36,12 @@ import org.jetbrains.annotations.Nullable;
 
 import com.google.common.collect.Sets;
 
+import io.cocolabs.pz.zdoc.compile.JavaCompiler;
 import io.cocolabs.pz.zdoc.compile.LuaAnnotator;
+import io.cocolabs.pz.zdoc.doc.APIPageCache;
+import io.cocolabs.pz.zdoc.doc.APIPageFetcher;
+import io.cocolabs.pz.zdoc.doc.DocWriterPool;
+import io.cocolabs.pz.zdoc.doc.FetchPolicy;
 
 /**
  * Apache Commons {@code CommandLine} wrapper providing additional methods.
@@ -142,10 +148,234 @@ public class CommandLine extends org.apache.commons.cli.CommandLine {
 		return outputFile != null ? outputFile.toPath() : null;
 	}
 
+	/**
+	 * Returns number of threads used to fetch modding API pages.
+	 *
+	 * @return number of threads specified in command options or
+	 * 		{@link APIPageFetcher#DEFAULT_THREADS} if the option has not been set.
+	 *
+	 * @throws IllegalArgumentException if specified number of threads is not positive.
+	 * @see CommandOptions#FETCH_THREADS_OPTION
+	 */
+	public int getFetchThreads() {
+		return getPositiveInteger(CommandOptions.FETCH_THREADS_OPTION, APIPageFetcher.DEFAULT_THREADS);
+	}
+
+	/**
+	 * Returns number of threads used to annotate lua files.
+	 *
+	 * @throws IllegalArgumentException if the option value is not a positive number.
+	 */
+	public int getAnnotateThreads() {
+		return getPositiveInteger(CommandOptions.ANNOTATE_THREADS_OPTION, LuaAnnotator.DEFAULT_PARALLELISM);
+	}
+
+	/**
+	 * Returns number of threads used to compile java and lua classes.
+	 *
+	 * @throws IllegalArgumentException if the option value is not a positive number.
+	 */
+	public int getCompileThreads() {
+		return getPositiveInteger(CommandOptions.COMPILE_THREADS_OPTION, JavaCompiler.DEFAULT_PARALLELISM);
+	}
+
+	/**
+	 * Returns number of threads used to write lua documents to output directory.
+	 *
+	 * @throws IllegalArgumentException if the option value is not a positive number.
+	 */
+	public int getWriteThreads() {
+		return getPositiveInteger(CommandOptions.WRITE_THREADS_OPTION, DocWriterPool.DEFAULT_THREADS);
+	}
+
+	/**
+	 * Returns file used to track content of output files between runs.
+	 *
+	 * @return manifest file specified in command options or {@code null}
+	 * 		if the option has not been set and existing output files should be hashed.
+	 */
+	public @Nullable Path getManifestFile() {
+
+		File manifestFile = getParsedValue(CommandOptions.MANIFEST_OPTION, File.class);
+		return manifestFile != null ? manifestFile.toPath() : null;
+	}
+
+	/**
+	 * Return {@code true} if only classes that changed since previous run should be compiled.
+	 */
+	public boolean isIncremental() {
+		return hasOption(getKey(CommandOptions.INCREMENTAL_OPTION));
+	}
+
+	/**
+	 * Returns file compiled java documents should be written to.
+	 *
+	 * @return file specified in command options or {@code null} if the option has not been set.
+	 */
+	public @Nullable Path getIROutputFile() {
+
+		File file = getParsedValue(CommandOptions.WRITE_IR_OPTION, File.class);
+		return file != null ? file.toPath() : null;
+	}
+
+	/**
+	 * Returns file compiled java documents should be read from instead of compiling them.
+	 *
+	 * @return file specified in command options or {@code null} if the option has not been set.
+	 */
+	public @Nullable Path getIRInputFile() {
+
+		File file = getParsedValue(CommandOptions.READ_IR_OPTION, File.class);
+		return file != null ? file.toPath() : null;
+	}
+
+	/**
+	 * Returns directory used to cache modding API pages.
+	 *
+	 * @return cache directory specified in command options or {@code null}
+	 * 		if the option has not been set and API pages should not be cached.
+	 */
+	public @Nullable Path getCacheDir() {
+
+		File cacheDir = getParsedValue(CommandOptions.CACHE_DIR_OPTION, File.class);
+		return cacheDir != null ? cacheDir.toPath() : null;
+	}
+
+	/**
+	 * Returns maximum size of modding API page cache in bytes.
+	 *
+	 * @return cache size specified in command options or
+	 * 		{@link APIPageCache#DEFAULT_MAX_SIZE} if the option has not been set.
+	 *
+	 * @throws IllegalArgumentException if specified cache size is not positive.
+	 * @see CommandOptions#CACHE_SIZE_OPTION
+	 */
+	public long getCacheSize() {
+
+		if (hasOption(getKey(CommandOptions.CACHE_SIZE_OPTION))) {
+			return getPositiveInteger(CommandOptions.CACHE_SIZE_OPTION, 0) * 1024L * 1024L;
+		}
+		return APIPageCache.DEFAULT_MAX_SIZE;
+	}
+
+	/**
+	 * Returns local directory or zip archive containing modding API pages.
+	 *
+	 * @return API source path specified in command options or {@code null} if
+	 * 		the option has not been set and API pages should be fetched online.
+	 */
+	public @Nullable Path getAPISource() {
+
+		File apiSource = getParsedValue(CommandOptions.API_SOURCE_OPTION, File.class);
+		return apiSource != null ? apiSource.toPath() : null;
+	}
+
+	/**
+	 * Return {@code true} if exposed classes should be discovered by reading game bytecode.
+	 */
+	public boolean shouldScanExposed() {
+		return hasOption(getKey(CommandOptions.SCAN_EXPOSED_OPTION));
+	}
+
+	/**
+	 * Return {@code true} if members of exposed classes should be read from class files.
+	 */
+	public boolean shouldReadBytecode() {
+		return hasOption(getKey(CommandOptions.READ_BYTECODE_OPTION));
+	}
+
+	/**
+	 * Return {@code true} if cached modding API pages should be revalidated with API host.
+	 */
+	public boolean shouldRevalidate() {
+		return hasOption(getKey(CommandOptions.REVALIDATE_OPTION));
+	}
+
+	/**
+	 * Returns time in milliseconds cached modding API pages are used before being revalidated.
+	 *
+	 * @throws IllegalArgumentException if specified option value is a negative number.
+	 */
+	public long getCacheMaxAge() {
+
+		if (hasOption(getKey(CommandOptions.CACHE_MAX_AGE_OPTION))) {
+			return TimeUnit.HOURS.toMillis(getNonNegativeInteger(CommandOptions.CACHE_MAX_AGE_OPTION, 0));
+		}
+		return APIPageFetcher.DEFAULT_MAX_AGE;
+	}
+
+	/**
+	 * Returns policy used to request modding API pages from API host.
+	 *
+	 * @return policy configured with values specified in command options
+	 * 		or default values for options that have not been set.
+	 *
+	 * @throws IllegalArgumentException if specified option values are not valid.
+	 * @see FetchPolicy
+	 */
+	public FetchPolicy getFetchPolicy() {
+
+		int connectTimeout = getPositiveInteger(CommandOptions.FETCH_CONNECT_TIMEOUT_OPTION,
+				FetchPolicy.DEFAULT_CONNECT_TIMEOUT / 1000) * 1000;
+		int readTimeout = getPositiveInteger(CommandOptions.FETCH_READ_TIMEOUT_OPTION,
+				FetchPolicy.DEFAULT_READ_TIMEOUT / 1000) * 1000;
+		int retries = getNonNegativeInteger(CommandOptions.FETCH_RETRIES_OPTION,
+				FetchPolicy.DEFAULT_RETRIES);
+		int maxRequests = getPositiveInteger(CommandOptions.FETCH_MAX_REQUESTS_OPTION,
+				FetchPolicy.DEFAULT_MAX_REQUESTS);
+
+		double requestRate = FetchPolicy.DEFAULT_REQUEST_RATE;
+		if (hasOption(getKey(CommandOptions.FETCH_RATE_OPTION)))
+		{
+			requestRate = getParsedValue(CommandOptions.FETCH_RATE_OPTION, Number.class).doubleValue();
+			if (requestRate <= 0)
+			{
+				String format = "Option \"%s\" value has to be a positive number (%s)";
+				throw new IllegalArgumentException(String.format(format,
+						getKey(CommandOptions.FETCH_RATE_OPTION), requestRate));
+			}
+		}
+		return FetchPolicy.Builder.create().withConnectTimeout(connectTimeout)
+				.withReadTimeout(readTimeout).withRetries(retries)
+				.withRequestRate(requestRate).withMaxRequests(maxRequests).build();
+	}
+
+	private int getPositiveInteger(Option option, int defaultValue) throws IllegalArgumentException {
+		return getInteger(option, defaultValue, 1, "a positive");
+	}
+
+	private int getNonNegativeInteger(Option option, int defaultValue) throws IllegalArgumentException {
+		return getInteger(option, defaultValue, 0, "a non-negative");
+	}
+
+	private int getInteger(Option option, int defaultValue, int minValue,
+						   String description) throws IllegalArgumentException {
+
+		if (hasOption(getKey(option)))
+		{
+			int value = getParsedValue(option, Number.class).intValue();
+			if (value < minValue)
+			{
+				String format = "Option \"%s\" value has to be %s number (%d)";
+				throw new IllegalArgumentException(String.format(format, getKey(option), description, value));
+			}
+			return value;
+		}
+		return defaultValue;
+	}
+
+	/**
+	 * Returns option name used to query option values, which is the short option name
+	 * or long option name if the option was declared without a short name.
+	 */
+	private static String getKey(Option option) {
+		return option.getOpt() != null ? option.getOpt() : option.getLongOpt();
+	}
+
 	@SuppressWarnings("unchecked")
 	private <T> T getParsedValue(Option option, Class<T> type) throws IllegalArgumentException {
 
-		String sOption = option.getOpt();
+		String sOption = getKey(option);
 		try {
 			return type.cast(getParsedOptionValue(sOption));
 		}
@@ -45,19 +45,171 @@ final class CommandOptions {
 					.desc("only include classes that were annotated")
 					.required(false).build();
 
+	static final Option ANNOTATE_THREADS_OPTION =
+			Option.builder().longOpt("annotate-threads")
+					.desc("number of threads used to annotate lua files")
+					.type(Number.class).required(false).hasArg().argName("count")
+					.valueSeparator(' ').build();
+
+	static final Option FETCH_THREADS_OPTION =
+			Option.builder().longOpt("fetch-threads")
+					.desc("number of threads used to fetch API pages")
+					.type(Number.class).required(false).hasArg().argName("count")
+					.valueSeparator(' ').build();
+
+	static final Option COMPILE_THREADS_OPTION =
+			Option.builder().longOpt("compile-threads")
+					.desc("number of threads used to compile java and lua classes")
+					.type(Number.class).required(false).hasArg().argName("count")
+					.valueSeparator(' ').build();
+
+	static final Option WRITE_THREADS_OPTION =
+			Option.builder().longOpt("write-threads")
+					.desc("number of threads used to write lua documents")
+					.type(Number.class).required(false).hasArg().argName("count")
+					.valueSeparator(' ').build();
+
+	static final Option FETCH_CONNECT_TIMEOUT_OPTION =
+			Option.builder().longOpt("fetch-connect-timeout")
+					.desc("timeout in seconds for connecting to API host")
+					.type(Number.class).required(false).hasArg().argName("seconds")
+					.valueSeparator(' ').build();
+
+	static final Option FETCH_READ_TIMEOUT_OPTION =
+			Option.builder().longOpt("fetch-read-timeout")
+					.desc("timeout in seconds for each read of API page response")
+					.type(Number.class).required(false).hasArg().argName("seconds")
+					.valueSeparator(' ').build();
+
+	static final Option FETCH_RETRIES_OPTION =
+			Option.builder().longOpt("fetch-retries")
+					.desc("number of times failed API page requests are retried")
+					.type(Number.class).required(false).hasArg().argName("count")
+					.valueSeparator(' ').build();
+
+	static final Option FETCH_RATE_OPTION =
+			Option.builder().longOpt("fetch-rate")
+					.desc("maximum number of API page requests per second")
+					.type(Number.class).required(false).hasArg().argName("rate")
+					.valueSeparator(' ').build();
+
+	static final Option FETCH_MAX_REQUESTS_OPTION =
+			Option.builder().longOpt("fetch-max-requests")
+					.desc("maximum number of API page requests in flight")
+					.type(Number.class).required(false).hasArg().argName("count")
+					.valueSeparator(' ').build();
+
+	static final Option MANIFEST_OPTION =
+			Option.builder().longOpt("manifest")
+					.desc("file used to track content of output files between runs")
+					.type(File.class).required(false).hasArg().argName("path")
+					.valueSeparator(' ').build();
+
+	static final Option INCREMENTAL_OPTION =
+			Option.builder().longOpt("incremental")
+					.desc("compile only classes that changed since previous run")
+					.required(false).build();
+
+	static final Option WRITE_IR_OPTION =
+			Option.builder().longOpt("write-ir")
+					.desc("write compiled java documents to file")
+					.type(File.class).required(false).hasArg().argName("path")
+					.valueSeparator(' ').build();
+
+	static final Option READ_IR_OPTION =
+			Option.builder().longOpt("read-ir")
+					.desc("read compiled java documents from file instead of compiling them")
+					.type(File.class).required(false).hasArg().argName("path")
+					.valueSeparator(' ').build();
+
+	static final Option SCAN_EXPOSED_OPTION =
+			Option.builder().longOpt("scan-exposed")
+					.desc("discover exposed classes from game bytecode without running game code")
+					.required(false).build();
+
+	static final Option READ_BYTECODE_OPTION =
+			Option.builder().longOpt("read-bytecode")
+					.desc("read members of exposed classes from class files instead of using reflection")
+					.required(false).build();
+
+	static final Option CACHE_DIR_OPTION =
+			Option.builder().longOpt("cache-dir")
+					.desc("directory used to cache API pages between runs")
+					.type(File.class).required(false).hasArg().argName("path")
+					.valueSeparator(' ').build();
+
+	static final Option CACHE_SIZE_OPTION =
+			Option.builder().longOpt("cache-size")
+					.desc("maximum size of API page cache in megabytes")
+					.type(Number.class).required(false).hasArg().argName("size")
+					.valueSeparator(' ').build();
+
+	static final Option REVALIDATE_OPTION =
+			Option.builder().longOpt("revalidate")
+					.desc("revalidate cached API pages with conditional requests")
+					.required(false).build();
+
+	static final Option CACHE_MAX_AGE_OPTION =
+			Option.builder().longOpt("cache-max-age")
+					.desc("number of hours cached API pages are used before being revalidated")
+					.type(Number.class).required(false).hasArg().argName("hours")
+					.valueSeparator(' ').build();
+
+	static final Option API_SOURCE_OPTION =
+			Option.builder().longOpt("api-source")
+					.desc("local directory or zip archive to read API pages from")
+					.type(File.class).required(false).hasArg().argName("path")
+					.valueSeparator(' ').build();
+
 	static final Options LUA_OPTIONS = new Options();
 	static final Options JAVA_OPTIONS = new Options();
+	static final Options FETCH_OPTIONS = new Options();
 
 	static
 	{
 		LUA_OPTIONS.addOption(clone(INPUT_OPTION))
 				.addOption(clone(OUTPUT_OPTION))
 				.addOption(clone(EXCLUDE_CLASS_OPTION))
-				.addOption(ONLY_ANNOTATED_OPTION);
+				.addOption(ONLY_ANNOTATED_OPTION)
+				.addOption(ANNOTATE_THREADS_OPTION);
 
 		JAVA_OPTIONS.addOption(clone(INPUT_OPTION))
 				.addOption(clone(OUTPUT_OPTION))
-				.addOption(EXCLUDE_CLASS_OPTION);
+				.addOption(EXCLUDE_CLASS_OPTION)
+				.addOption(COMPILE_THREADS_OPTION)
+				.addOption(WRITE_THREADS_OPTION)
+				.addOption(MANIFEST_OPTION)
+				.addOption(INCREMENTAL_OPTION)
+				.addOption(WRITE_IR_OPTION)
+				.addOption(READ_IR_OPTION)
+				.addOption(SCAN_EXPOSED_OPTION)
+				.addOption(READ_BYTECODE_OPTION)
+				.addOption(FETCH_THREADS_OPTION)
+				.addOption(FETCH_CONNECT_TIMEOUT_OPTION)
+				.addOption(FETCH_READ_TIMEOUT_OPTION)
+				.addOption(FETCH_RETRIES_OPTION)
+				.addOption(FETCH_RATE_OPTION)
+				.addOption(FETCH_MAX_REQUESTS_OPTION)
+				.addOption(CACHE_DIR_OPTION)
+				.addOption(CACHE_SIZE_OPTION)
+				.addOption(REVALIDATE_OPTION)
+				.addOption(CACHE_MAX_AGE_OPTION)
+				.addOption(API_SOURCE_OPTION);
+
+		FETCH_OPTIONS.addOption(clone(INPUT_OPTION))
+				.addOption(clone(OUTPUT_OPTION))
+				.addOption(clone(EXCLUDE_CLASS_OPTION))
+				.addOption(clone(SCAN_EXPOSED_OPTION))
+				.addOption(clone(FETCH_THREADS_OPTION))
+				.addOption(clone(FETCH_CONNECT_TIMEOUT_OPTION))
+				.addOption(clone(FETCH_READ_TIMEOUT_OPTION))
+				.addOption(clone(FETCH_RETRIES_OPTION))
+				.addOption(clone(FETCH_RATE_OPTION))
+				.addOption(clone(FETCH_MAX_REQUESTS_OPTION))
+				.addOption(clone(CACHE_DIR_OPTION))
+				.addOption(clone(CACHE_SIZE_OPTION))
+				.addOption(clone(REVALIDATE_OPTION))
+				.addOption(clone(CACHE_MAX_AGE_OPTION));
 	}
 
 	private static Option clone(Option option) {
@@ -0,0 +1,438 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.compile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.UnmodifiableView;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * <p>This class represents a parsed Java class file.</p>
+ * <p>Class files are read directly from bytes without defining classes in virtual machine,
+ * which means that reading a class file does not load, link or initialize the class.
+ * Only parts of the class file format needed by compilers are retained, all other
+ * attributes are skipped.</p>
+ *
+ * @see <a href="https://docs.oracle.com/javase/specs/jvms/se8/html/jvms-4.html">
+ * 		The class File Format</a>
+ */
+final class ClassFile {
+
+	private static final int MAGIC = 0xCAFEBABE;
+
+	/** Access flag marking members generated by compiler. */
+	static final int ACC_SYNTHETIC = 0x1000;
+
+	static final byte CONSTANT_UTF8 = 1;
+	static final byte CONSTANT_INTEGER = 3;
+	static final byte CONSTANT_FLOAT = 4;
+	static final byte CONSTANT_LONG = 5;
+	static final byte CONSTANT_DOUBLE = 6;
+	static final byte CONSTANT_CLASS = 7;
+	static final byte CONSTANT_STRING = 8;
+	static final byte CONSTANT_FIELDREF = 9;
+	static final byte CONSTANT_METHODREF = 10;
+	static final byte CONSTANT_INTERFACE_METHODREF = 11;
+	static final byte CONSTANT_NAME_AND_TYPE = 12;
+	static final byte CONSTANT_METHOD_HANDLE = 15;
+	static final byte CONSTANT_METHOD_TYPE = 16;
+	static final byte CONSTANT_DYNAMIC = 17;
+	static final byte CONSTANT_INVOKE_DYNAMIC = 18;
+	static final byte CONSTANT_MODULE = 19;
+	static final byte CONSTANT_PACKAGE = 20;
+
+	/** Tags of constant pool entries, unused slots have tag {@code 0}. */
+	private final byte[] tags;
+
+	/** Offsets of constant pool entries in class file bytes. */
+	private final int[] offsets;
+
+	/** Decoded {@code UTF8} constant pool entries. */
+	private final String[] strings;
+
+	private final ByteBuffer bytes;
+
+	private final int access;
+	private final String name;
+	private final @Nullable String superName;
+	private final List<Member> fields, methods;
+
+	private ClassFile(byte[] content) throws IOException {
+
+		bytes = ByteBuffer.wrap(content);
+		try {
+			if (bytes.getInt() != MAGIC) {
+				throw new IOException("Malformed class file, unexpected magic number");
+			}
+			bytes.getShort(); // minor version
+			bytes.getShort(); // major version
+
+			int poolCount = bytes.getShort() & 0xFFFF;
+			tags = new byte[poolCount];
+			offsets = new int[poolCount];
+			strings = new String[poolCount];
+			for (int i = 1; i < poolCount; i++)
+			{
+				byte tag = bytes.get();
+				tags[i] = tag;
+				offsets[i] = bytes.position();
+				switch (tag)
+				{
+					case CONSTANT_UTF8:
+						int length = bytes.getShort() & 0xFFFF;
+						strings[i] = readModifiedUTF8(content, bytes.position(), length);
+						skip(length);
+						break;
+					case CONSTANT_CLASS:
+					case CONSTANT_STRING:
+					case CONSTANT_METHOD_TYPE:
+					case CONSTANT_MODULE:
+					case CONSTANT_PACKAGE:
+						skip(2);
+						break;
+					case CONSTANT_METHOD_HANDLE:
+						skip(3);
+						break;
+					case CONSTANT_INTEGER:
+					case CONSTANT_FLOAT:
+					case CONSTANT_FIELDREF:
+					case CONSTANT_METHODREF:
+					case CONSTANT_INTERFACE_METHODREF:
+					case CONSTANT_NAME_AND_TYPE:
+					case CONSTANT_DYNAMIC:
+					case CONSTANT_INVOKE_DYNAMIC:
+						skip(4);
+						break;
+					case CONSTANT_LONG:
+					case CONSTANT_DOUBLE:
+						// eight byte constants take up two entries in constant pool
+						skip(8);
+						i++;
+						break;
+					default:
+						throw new IOException(String.format(
+								"Malformed class file, unknown constant pool tag %d", tag));
+				}
+			}
+			access = bytes.getShort() & 0xFFFF;
+			name = getClassName(bytes.getShort() & 0xFFFF);
+			int superIndex = bytes.getShort() & 0xFFFF;
+			superName = superIndex != 0 ? getClassName(superIndex) : null;
+
+			skip(2 * (bytes.getShort() & 0xFFFF)); // interfaces
+			fields = readMembers();
+			methods = readMembers();
+		}
+		catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+			throw new IOException("Malformed class file, unexpected end of content", e);
+		}
+	}
+
+	/**
+	 * Read class file from given bytes.
+	 *
+	 * @throws IOException if given bytes do not represent a valid class file.
+	 */
+	static ClassFile read(byte[] content) throws IOException {
+		return new ClassFile(content);
+	}
+
+	/**
+	 * Read class file of given class from classpath. The class file is located
+	 * with class loader that loaded given class.
+	 *
+	 * @return class file bytes or {@code null} if class file could not be found.
+	 *
+	 * @throws IOException if an I/O error occurred while reading class file.
+	 */
+	static @Nullable byte[] readBytes(Class<?> clazz) throws IOException {
+
+		String resource = clazz.getName().replace('.', '/') + ".class";
+		ClassLoader classLoader = clazz.getClassLoader();
+		try (InputStream stream = classLoader != null ? classLoader.getResourceAsStream(resource)
+				: ClassLoader.getSystemResourceAsStream(resource))
+		{
+			return stream != null ? ByteStreams.toByteArray(stream) : null;
+		}
+	}
+
+	/**
+	 * Read class file from given stream. The stream is not closed after reading.
+	 *
+	 * @throws IOException if an I/O error occurred while reading from stream
+	 * 		or read content does not represent a valid class file.
+	 */
+	static ClassFile read(InputStream stream) throws IOException {
+		return new ClassFile(ByteStreams.toByteArray(stream));
+	}
+
+	private void skip(int count) {
+		bytes.position(bytes.position() + count);
+	}
+
+	/**
+	 * Decode string stored in modified {@code UTF-8} format used by class files.
+	 *
+	 * @see java.io.DataInputStream#readUTF(java.io.DataInput)
+	 */
+	private static String readModifiedUTF8(byte[] content, int offset, int length) throws IOException {
+
+		char[] chars = new char[length];
+		int count = 0, index = offset, end = offset + length;
+		if (end > content.length) {
+			throw new IOException("Malformed class file, unexpected end of content");
+		}
+		while (index < end)
+		{
+			int b = content[index++] & 0xFF;
+			if (b < 0x80) {
+				chars[count++] = (char) b;
+			}
+			else if ((b & 0xE0) == 0xC0 && index < end) {
+				chars[count++] = (char) (((b & 0x1F) << 6) | (content[index++] & 0x3F));
+			}
+			else if ((b & 0xF0) == 0xE0 && index + 1 < end)
+			{
+				chars[count++] = (char) (((b & 0x0F) << 12)
+						| ((content[index++] & 0x3F) << 6) | (content[index++] & 0x3F));
+			}
+			else throw new IOException("Malformed class file, invalid UTF8 constant");
+		}
+		return new String(chars, 0, count);
+	}
+
+	private List<Member> readMembers() throws IOException {
+
+		int count = bytes.getShort() & 0xFFFF;
+		List<Member> result = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+		{
+			int memberAccess = bytes.getShort() & 0xFFFF;
+			String memberName = getUTF8(bytes.getShort() & 0xFFFF);
+			String descriptor = getUTF8(bytes.getShort() & 0xFFFF);
+			byte[] code = null;
+			String signature = null;
+			String[] parameterNames = null;
+
+			int attributeCount = bytes.getShort() & 0xFFFF;
+			for (int j = 0; j < attributeCount; j++)
+			{
+				String attributeName = getUTF8(bytes.getShort() & 0xFFFF);
+				int length = bytes.getInt();
+				int attributeStart = bytes.position();
+				switch (attributeName)
+				{
+					case "Code":
+						skip(4); // max stack and max locals
+						code = new byte[bytes.getInt()];
+						bytes.get(code);
+						break;
+					case "Signature":
+						signature = getUTF8(bytes.getShort() & 0xFFFF);
+						break;
+					case "Synthetic":
+						memberAccess |= ACC_SYNTHETIC;
+						break;
+					case "MethodParameters":
+						parameterNames = new String[bytes.get() & 0xFF];
+						for (int k = 0; k < parameterNames.length; k++)
+						{
+							// parameters without name have name index set to zero
+							int nameIndex = bytes.getShort() & 0xFFFF;
+							parameterNames[k] = nameIndex != 0 ? getUTF8(nameIndex) : null;
+							bytes.getShort(); // access flags
+						}
+						break;
+					default:
+						break;
+				}
+				bytes.position(attributeStart + length);
+			}
+			result.add(new Member(memberAccess, memberName, descriptor, signature, parameterNames, code));
+		}
+		return result;
+	}
+
+	private int checkIndex(int index, byte tag) throws IOException {
+
+		if (index <= 0 || index >= tags.length || tags[index] != tag)
+		{
+			String format = "Malformed class file, expected constant with tag %d at index %d";
+			throw new IOException(String.format(format, tag, index));
+		}
+		return offsets[index];
+	}
+
+	/**
+	 * Returns tag of constant pool entry at given index.
+	 */
+	byte getTag(int index) {
+		return index > 0 && index < tags.length ? tags[index] : 0;
+	}
+
+	/**
+	 * Returns string stored in {@code UTF8} constant pool entry at given index.
+	 */
+	String getUTF8(int index) throws IOException {
+
+		checkIndex(index, CONSTANT_UTF8);
+		return strings[index];
+	}
+
+	/**
+	 * Returns binary name (ex. {@code java.util.Map$Entry}) of class
+	 * referenced by {@code Class} constant pool entry at given index.
+	 * Array classes are returned in descriptor format (ex. {@code [Ljava.lang.String;}).
+	 */
+	String getClassName(int index) throws IOException {
+
+		int offset = checkIndex(index, CONSTANT_CLASS);
+		return getUTF8(bytes.getShort(offset) & 0xFFFF).replace('/', '.');
+	}
+
+	/**
+	 * Returns method or field referenced by constant pool entry at given index.
+	 */
+	Reference getReference(int index) throws IOException {
+
+		byte tag = getTag(index);
+		if (tag != CONSTANT_METHODREF && tag != CONSTANT_INTERFACE_METHODREF) {
+			checkIndex(index, CONSTANT_FIELDREF);
+		}
+		int offset = offsets[index];
+		String owner = getClassName(bytes.getShort(offset) & 0xFFFF);
+		int nameAndType = checkIndex(bytes.getShort(offset + 2) & 0xFFFF, CONSTANT_NAME_AND_TYPE);
+		return new Reference(owner, getUTF8(bytes.getShort(nameAndType) & 0xFFFF),
+				getUTF8(bytes.getShort(nameAndType + 2) & 0xFFFF));
+	}
+
+	/**
+	 * Returns binary name of this class (ex. {@code java.util.Map$Entry}).
+	 */
+	String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns binary name of superclass or {@code null} if this class is {@code java.lang.Object}.
+	 */
+	@Nullable String getSuperName() {
+		return superName;
+	}
+
+	/**
+	 * Returns access flags of this class.
+	 */
+	int getAccess() {
+		return access;
+	}
+
+	@UnmodifiableView List<Member> getFields() {
+		return Collections.unmodifiableList(fields);
+	}
+
+	@UnmodifiableView List<Member> getMethods() {
+		return Collections.unmodifiableList(methods);
+	}
+
+	/**
+	 * Returns first declared method with given name.
+	 *
+	 * @return method with given name or {@code null} if this class declares no such method.
+	 */
+	@Nullable Member getMethod(String methodName) {
+
+		for (Member method : methods)
+		{
+			if (method.name.equals(methodName)) {
+				return method;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * This class represents a field or method declared in class file.
+	 */
+	static final class Member {
+
+		final int access;
+		final String name, descriptor;
+
+		/** Generic signature of member or {@code null} if member type is not generic. */
+		final @Nullable String signature;
+
+		/**
+		 * Names of method parameters recorded in {@code MethodParameters} attribute or
+		 * {@code null} if the attribute is not present. Parameters without name are {@code null}.
+		 */
+		private final @Nullable String[] parameterNames;
+
+		/** Bytecode of method body or {@code null} for fields and abstract methods. */
+		final @Nullable byte[] code;
+
+		private Member(int access, String name, String descriptor, @Nullable String signature,
+					   @Nullable String[] parameterNames, @Nullable byte[] code) {
+
+			this.access = access;
+			this.name = name;
+			this.descriptor = descriptor;
+			this.signature = signature;
+			this.parameterNames = parameterNames;
+			this.code = code;
+		}
+
+		/**
+		 * Returns name of method parameter at given index as recorded in
+		 * {@code MethodParameters} attribute.
+		 *
+		 * @return parameter name or {@code null} if the name was not recorded.
+		 */
+		@Nullable String getParameterName(int index) {
+			return parameterNames != null && index < parameterNames.length ? parameterNames[index] : null;
+		}
+
+		boolean isSynthetic() {
+			return (access & ACC_SYNTHETIC) != 0;
+		}
+	}
+
+	/**
+	 * This class represents a symbolic reference to a field or method.
+	 */
+	static final class Reference {
+
+		final String owner, name, descriptor;
+
+		private Reference(String owner, String name, String descriptor) {
+
+			this.owner = owner;
+			this.name = name;
+			this.descriptor = descriptor;
+		}
+	}
+}
@@ -0,0 +1,324 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.compile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.function.Predicate;
+
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.UnmodifiableView;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import io.cocolabs.pz.zdoc.logger.Logger;
+
+/**
+ * <p>This class represents a manifest of classes compiled in previous run, used to compile
+ * only classes that changed since then.</p>
+ * <p>Each class is identified by a fingerprint made of class bytecode hash and API page hash.
+ * Classes with unchanged fingerprint are not compiled again and their lua documents written
+ * in previous run are reused instead. The manifest records types referenced by each class
+ * so that global types of reused classes can be registered without compiling them.
+ * Manifest entries are discarded when compile environment or the list of compiled classes
+ * changes, because lua names of all classes depend on them.</p>
+ */
+public class CompileManifest {
+
+	/** Name of manifest file stored in output directory. */
+	public static final String FILE_NAME = ".zdoc-manifest";
+
+	private static final String HEADER = "zdoc-manifest 1";
+	private static final Splitter FIELD_SPLITTER = Splitter.on('\t');
+	private static final Splitter TYPE_SPLITTER = Splitter.on(',').omitEmptyStrings();
+
+	private final Path file;
+	private final String environment;
+
+	/** Entries loaded from manifest file, only read during compilation. */
+	private final Map<String, Entry> previous = new HashMap<>();
+
+	/** Entries of classes compiled or reused in this run in compile order. */
+	private final Map<String, Entry> current = Collections.synchronizedMap(new LinkedHashMap<>());
+
+	private String classes = "";
+	private int reused = 0;
+
+	private CompileManifest(Path file, String environment) {
+		this.file = file;
+		this.environment = environment;
+	}
+
+	/**
+	 * Load manifest from given file. Entries are discarded if the file
+	 * was created in a different compile environment.
+	 *
+	 * @param file manifest file, does not need to exist.
+	 * @param environment hash of compile settings that affect all classes.
+	 *
+	 * @throws IOException if an I/O error occurred while reading manifest file.
+	 */
+	public static CompileManifest load(Path file, String environment) throws IOException {
+
+		CompileManifest manifest = new CompileManifest(file, environment);
+		if (!Files.exists(file)) {
+			return manifest;
+		}
+		List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+		if (lines.size() < 3 || !lines.get(0).equals(HEADER))
+		{
+			Logger.warn("Discarding malformed compile manifest %s", file);
+			return manifest;
+		}
+		if (!lines.get(1).equals(environment))
+		{
+			Logger.info("Compile environment changed, compiling all classes");
+			return manifest;
+		}
+		manifest.classes = lines.get(2);
+		for (String line : lines.subList(3, lines.size()))
+		{
+			Entry entry = Entry.read(line);
+			if (entry != null) {
+				manifest.previous.put(entry.className, entry);
+			}
+			else Logger.warn("Discarding malformed compile manifest entry: %s", line);
+		}
+		Logger.debug("Loaded %d compile manifest entries from %s", manifest.previous.size(), file);
+		return manifest;
+	}
+
+	/**
+	 * Returns hash of given strings that can be used as compile environment.
+	 */
+	public static String hashEnvironment(Collection<String> values) {
+
+		Hasher hasher = Hashing.sha256().newHasher();
+		for (String value : values) {
+			hasher.putString(value, StandardCharsets.UTF_8).putByte((byte) 0);
+		}
+		return hasher.hash().toString();
+	}
+
+	/**
+	 * Returns hash of compile environment made of zdoc version and given compile settings.
+	 * Including the version discards manifests saved by a different zdoc version,
+	 * since lua documents written by it might be rendered differently.
+	 *
+	 * @param version zdoc version.
+	 * @param settings compile settings that affect output of all classes.
+	 */
+	public static String hashEnvironment(String version, Collection<String> settings) {
+
+		List<String> values = new ArrayList<>();
+		values.add("zdoc " + version.trim());
+		values.addAll(settings);
+		return hashEnvironment(values);
+	}
+
+	/**
+	 * Calculate fingerprint of given class from its bytecode and API page content.
+	 *
+	 * @param page content of class API page or {@code null} if class has no API page.
+	 * @return class fingerprint or {@code null} if class bytecode could not be read.
+	 */
+	static @Nullable String fingerprint(Class<?> clazz, @Nullable byte[] page) {
+
+		try {
+			byte[] bytecode = ClassFile.readBytes(clazz);
+			if (bytecode == null) {
+				return null;
+			}
+			String bytecodeHash = Hashing.sha256().hashBytes(bytecode).toString();
+			String pageHash = page != null ? Hashing.sha256().hashBytes(page).toString() : "-";
+			return bytecodeHash + ':' + pageHash;
+		}
+		catch (IOException e)
+		{
+			Logger.debug("Unable to read bytecode of class %s", clazz.getName());
+			return null;
+		}
+	}
+
+	/**
+	 * Discard all loaded entries when the list of compiled classes changed
+	 * since the manifest was saved, as lua names of classes might be different.
+	 *
+	 * @param classNames names of all classes to be compiled in compile order.
+	 */
+	void validateClasses(List<String> classNames) {
+
+		String hash = hashEnvironment(classNames);
+		if (!hash.equals(classes) && !previous.isEmpty())
+		{
+			Logger.info("List of compiled classes changed, compiling all classes");
+			previous.clear();
+		}
+		classes = hash;
+	}
+
+	/**
+	 * Discard loaded entries of lua documents that do not satisfy given predicate.
+	 *
+	 * @param predicate predicate that accepts names of lua documents that can be reused.
+	 */
+	public void retainIf(Predicate<String> predicate) {
+		previous.values().removeIf(entry -> !predicate.test(entry.luaName));
+	}
+
+	/**
+	 * Returns {@code true} if class with given name has the same fingerprint as in previous run.
+	 */
+	boolean isUnchanged(String className, @Nullable String fingerprint) {
+
+		Entry entry = previous.get(className);
+		return fingerprint != null && entry != null && entry.fingerprint.equals(fingerprint);
+	}
+
+	/**
+	 * Record class with given name as reused from previous run.
+	 */
+	void reuse(String className) {
+
+		current.put(className, Objects.requireNonNull(previous.get(className)));
+		reused++;
+	}
+
+	/**
+	 * Record class with given name as compiled in this run. Classes without fingerprint
+	 * are recorded to preserve compile order but are not stored in manifest file.
+	 */
+	void update(String className, @Nullable String fingerprint) {
+		current.put(className, new Entry(className, fingerprint != null ? fingerprint : ""));
+	}
+
+	/**
+	 * Record lua document name and referenced types of compiled class with given name.
+	 */
+	void updateLuaDoc(String className, String luaName, Collection<String> types) {
+
+		Entry entry = current.get(className);
+		if (entry != null)
+		{
+			entry.luaName = luaName;
+			entry.types = Collections.unmodifiableList(new ArrayList<>(types));
+		}
+	}
+
+	/**
+	 * Returns names of all classes compiled or reused in this run in compile order.
+	 */
+	@UnmodifiableView List<String> getClasses() {
+
+		synchronized (current) {
+			return Collections.unmodifiableList(new ArrayList<>(current.keySet()));
+		}
+	}
+
+	/**
+	 * Returns names of types referenced by given reused class or an empty list
+	 * if the class was not reused in this run.
+	 */
+	@UnmodifiableView List<String> getReusedTypes(String className) {
+
+		Entry entry = current.get(className);
+		return entry != null && entry == previous.get(className) ? entry.types : Collections.emptyList();
+	}
+
+	/**
+	 * Returns number of classes reused from previous run.
+	 */
+	public int getReusedCount() {
+		return reused;
+	}
+
+	/**
+	 * Store manifest entries of compiled and reused classes to manifest file.
+	 *
+	 * @throws IOException if an I/O error occurred while writing manifest file.
+	 */
+	public void save() throws IOException {
+
+		StringBuilder sb = new StringBuilder();
+		sb.append(HEADER).append('\n').append(environment).append('\n').append(classes).append('\n');
+		int count = 0;
+		synchronized (current)
+		{
+			for (Entry entry : current.values())
+			{
+				// classes that were not compiled to lua or have no fingerprint are not recorded
+				if (!entry.luaName.isEmpty() && !entry.fingerprint.isEmpty())
+				{
+					sb.append(entry.toString()).append('\n');
+					count++;
+				}
+			}
+		}
+		Path parent = file.toAbsolutePath().getParent();
+		Path tempFile = Files.createTempFile(parent, "manifest", ".tmp");
+		try {
+			Files.write(tempFile, sb.toString().getBytes(StandardCharsets.UTF_8));
+			Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+		finally {
+			Files.deleteIfExists(tempFile);
+		}
+		Logger.debug("Saved %d compile manifest entries to %s", count, file);
+	}
+
+	/**
+	 * This class represents a manifest entry of a single class. Entries are stored as
+	 * a single line with class name, fingerprint, lua document name and referenced types.
+	 */
+	private static class Entry {
+
+		private final String className, fingerprint;
+		private volatile String luaName = "";
+		private volatile List<String> types = Collections.emptyList();
+
+		private Entry(String className, String fingerprint) {
+			this.className = className;
+			this.fingerprint = fingerprint;
+		}
+
+		private static @Nullable Entry read(String line) {
+
+			List<String> fields = FIELD_SPLITTER.splitToList(line);
+			if (fields.size() != 4 || fields.get(0).isEmpty()
+					|| fields.get(1).isEmpty() || fields.get(2).isEmpty()) {
+				return null;
+			}
+			Entry entry = new Entry(fields.get(0), fields.get(1));
+			entry.luaName = fields.get(2);
+			entry.types = TYPE_SPLITTER.splitToList(fields.get(3));
+			return entry;
+		}
+
+		@Override
+		public String toString() {
+			return String.join("\t", className, fingerprint, luaName, Joiner.on(',').join(types));
+		}
+	}
+}
@@ -0,0 +1,446 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.compile;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.UnmodifiableView;
+
+import com.google.common.base.Strings;
+
+import io.cocolabs.pz.zdoc.element.java.JavaClass;
+import io.cocolabs.pz.zdoc.element.java.JavaField;
+import io.cocolabs.pz.zdoc.element.java.JavaMethod;
+import io.cocolabs.pz.zdoc.element.java.JavaParameter;
+import io.cocolabs.pz.zdoc.element.mod.MemberModifier;
+import io.cocolabs.pz.zdoc.logger.Logger;
+import io.cocolabs.pz.zdoc.util.ClassResolver;
+
+/**
+ * <p>This class represents fields and methods declared by a Java class,
+ * excluding synthetic members generated by compiler.</p>
+ * <p>Members are read either with reflection or directly from class file. Reading members
+ * from class file does not require declared members of the class to be linked and verified,
+ * only member types are resolved. Generic signatures stored in class file are used to
+ * resolve type parameters of member types where reflection leaves them unknown, and parameter
+ * names are read from {@code MethodParameters} attribute the same way as with reflection.</p>
+ */
+final class DeclaredMembers {
+
+	private final List<JavaField> fields;
+	private final List<JavaMethod> methods;
+
+	private DeclaredMembers(List<JavaField> fields, List<JavaMethod> methods) {
+		this.fields = Collections.unmodifiableList(fields);
+		this.methods = Collections.unmodifiableList(methods);
+	}
+
+	/**
+	 * Read declared members of given class.
+	 *
+	 * @param bytecode {@code true} to read members from class file, when members
+	 * 		could not be read from class file they are read with reflection instead.
+	 */
+	static DeclaredMembers read(Class<?> clazz, boolean bytecode) {
+
+		if (bytecode)
+		{
+			try {
+				byte[] content = ClassFile.readBytes(clazz);
+				if (content != null) {
+					return read(ClassFile.read(content));
+				}
+				Logger.warn("Unable to find class file for %s, reading members with reflection", clazz.getName());
+			}
+			catch (IOException | ClassNotFoundException e) {
+				Logger.warn("Unable to read members of class %s from class file (%s), " +
+						"reading members with reflection", clazz.getName(), e.getMessage());
+			}
+		}
+		List<JavaField> fields = new ArrayList<>();
+		for (Field field : clazz.getDeclaredFields())
+		{
+			// synthetic fields are generated by compiler for internal purposes
+			if (!field.isSynthetic())
+			{
+				MemberModifier modifier = new MemberModifier(field.getModifiers());
+				fields.add(new JavaField(new JavaClass(field.getType()), field.getName(), modifier));
+			}
+		}
+		List<JavaMethod> methods = new ArrayList<>();
+		for (Method method : clazz.getDeclaredMethods())
+		{
+			// synthetic methods are generated by compiler for internal purposes
+			if (!method.isSynthetic()) {
+				methods.add(new JavaMethod(method));
+			}
+		}
+		return new DeclaredMembers(fields, methods);
+	}
+
+	/**
+	 * Read declared members from given class file.
+	 *
+	 * @throws IOException if a member descriptor is malformed.
+	 * @throws ClassNotFoundException if a member type could not be resolved.
+	 */
+	static DeclaredMembers read(ClassFile classFile) throws IOException, ClassNotFoundException {
+
+		List<JavaField> fields = new ArrayList<>();
+		for (ClassFile.Member field : classFile.getFields())
+		{
+			if (field.isSynthetic()) {
+				continue;
+			}
+			TypeSignature signature = field.signature != null ?
+					new SignatureReader(field.signature).readType() : null;
+
+			JavaClass type = getJavaClass(resolveDescriptor(field.descriptor), signature);
+			MemberModifier modifier = new MemberModifier(field.access & Modifier.fieldModifiers());
+			fields.add(new JavaField(type, field.name, modifier));
+		}
+		List<JavaMethod> methods = new ArrayList<>();
+		for (ClassFile.Member method : classFile.getMethods())
+		{
+			// constructors and initializers are not declared methods
+			if (method.isSynthetic() || method.name.startsWith("<")) {
+				continue;
+			}
+			List<String> paramDescriptors = new ArrayList<>();
+			String returnDescriptor = splitMethodDescriptor(method.descriptor, paramDescriptors);
+
+			List<TypeSignature> paramSignatures = new ArrayList<>();
+			TypeSignature returnSignature = null;
+			if (method.signature != null)
+			{
+				SignatureReader reader = new SignatureReader(method.signature);
+				returnSignature = reader.readMethodSignature(paramSignatures);
+			}
+			// signature does not include parameters added by compiler
+			boolean matchingSignature = paramSignatures.size() == paramDescriptors.size();
+
+			List<JavaParameter> params = new ArrayList<>();
+			for (int i = 0; i < paramDescriptors.size(); i++)
+			{
+				JavaClass paramType = getJavaClass(resolveDescriptor(paramDescriptors.get(i)),
+						matchingSignature ? paramSignatures.get(i) : null);
+
+				// parameters are named the same way as parameters read with reflection
+				String paramName = method.getParameterName(i);
+				params.add(new JavaParameter(paramType, Strings.isNullOrEmpty(paramName) ? "arg" + i : paramName));
+			}
+			JavaClass returnType = getJavaClass(resolveDescriptor(returnDescriptor), returnSignature);
+			methods.add(JavaMethod.Builder.create(method.name).withReturnType(returnType)
+					.withModifier(new MemberModifier(method.access & Modifier.methodModifiers()))
+					.withParams(params).build());
+		}
+		return new DeclaredMembers(fields, methods);
+	}
+
+	/**
+	 * Split given method descriptor into parameter descriptors and return descriptor.
+	 *
+	 * @param params list to add parameter descriptors to.
+	 * @return return type descriptor.
+	 */
+	static String splitMethodDescriptor(String descriptor, List<String> params) throws IOException {
+
+		if (descriptor.isEmpty() || descriptor.charAt(0) != '(') {
+			throw new IOException("Malformed method descriptor " + descriptor);
+		}
+		int index = 1;
+		while (index < descriptor.length() && descriptor.charAt(index) != ')')
+		{
+			int start = index;
+			while (index < descriptor.length() && descriptor.charAt(index) == '[') {
+				index++;
+			}
+			if (index < descriptor.length() && descriptor.charAt(index) == 'L') {
+				index = descriptor.indexOf(';', index);
+			}
+			if (index < 0 || index >= descriptor.length()) {
+				throw new IOException("Malformed method descriptor " + descriptor);
+			}
+			params.add(descriptor.substring(start, ++index));
+		}
+		if (index >= descriptor.length() - 1) {
+			throw new IOException("Malformed method descriptor " + descriptor);
+		}
+		return descriptor.substring(index + 1);
+	}
+
+	/**
+	 * Resolve class represented by given field descriptor (ex. {@code [Ljava/lang/String;}).
+	 *
+	 * @throws IOException if given descriptor is malformed.
+	 * @throws ClassNotFoundException if described class could not be resolved.
+	 */
+	static Class<?> resolveDescriptor(String descriptor) throws IOException, ClassNotFoundException {
+
+		int dimensions = 0;
+		while (dimensions < descriptor.length() && descriptor.charAt(dimensions) == '[') {
+			dimensions++;
+		}
+		String element = descriptor.substring(dimensions);
+		String name;
+		if (element.length() > 2 && element.charAt(0) == 'L' && element.endsWith(";")) {
+			name = element.substring(1, element.length() - 1).replace('/', '.');
+		}
+		else if (element.length() == 1)
+		{
+			name = getPrimitiveName(element.charAt(0));
+			if (name == null) {
+				throw new IOException("Malformed descriptor " + descriptor);
+			}
+		}
+		else throw new IOException("Malformed descriptor " + descriptor);
+
+		// class resolver expects array names in source code format
+		String className = name + Strings.repeat("[]", dimensions);
+		Class<?> result = ClassResolver.resolve(className);
+		if (result == null) {
+			throw new ClassNotFoundException(className);
+		}
+		return result;
+	}
+
+	private static @Nullable String getPrimitiveName(char descriptor) {
+
+		switch (descriptor)
+		{
+			case 'B': return "byte";
+			case 'C': return "char";
+			case 'D': return "double";
+			case 'F': return "float";
+			case 'I': return "int";
+			case 'J': return "long";
+			case 'S': return "short";
+			case 'Z': return "boolean";
+			case 'V': return "void";
+			default: return null;
+		}
+	}
+
+	/**
+	 * Create {@code JavaClass} for given erased type with type parameters resolved from
+	 * given generic signature. Type parameters that are type variables, wildcards or classes
+	 * that could not be resolved are unknown.
+	 *
+	 * @param signature generic signature of the type or {@code null} if the type is not generic.
+	 */
+	private static JavaClass getJavaClass(Class<?> type, @Nullable TypeSignature signature) {
+
+		int typeParameterCount = type.getTypeParameters().length;
+		if (typeParameterCount == 0 || signature == null || signature.className == null
+				|| signature.dimensions != 0 || signature.typeArguments.size() != typeParameterCount) {
+			return new JavaClass(type);
+		}
+		List<JavaClass> typeParameters = new ArrayList<>();
+		for (TypeSignature typeArgument : signature.typeArguments)
+		{
+			JavaClass typeParameter = null;
+			if (typeArgument != null && typeArgument.className != null)
+			{
+				String name = typeArgument.className + Strings.repeat("[]", typeArgument.dimensions);
+				Class<?> typeArgumentClass = ClassResolver.resolve(name);
+				if (typeArgumentClass != null) {
+					typeParameter = getJavaClass(typeArgumentClass, typeArgument);
+				}
+			}
+			typeParameters.add(typeParameter);
+		}
+		return new JavaClass(type, typeParameters);
+	}
+
+	@UnmodifiableView List<JavaField> getFields() {
+		return fields;
+	}
+
+	@UnmodifiableView List<JavaMethod> getMethods() {
+		return methods;
+	}
+
+	/**
+	 * This class represents a type read from generic signature.
+	 */
+	private static final class TypeSignature {
+
+		/** Binary name of class or primitive name, {@code null} for type variables. */
+		private final @Nullable String className;
+		private final int dimensions;
+
+		/** Type arguments of the class, wildcards are represented with {@code null}. */
+		private final List<TypeSignature> typeArguments;
+
+		private TypeSignature(@Nullable String className, int dimensions, List<TypeSignature> typeArguments) {
+			this.className = className;
+			this.dimensions = dimensions;
+			this.typeArguments = typeArguments;
+		}
+	}
+
+	/**
+	 * This class reads types from generic signatures stored in class files.
+	 *
+	 * @see <a href="https://docs.oracle.com/javase/specs/jvms/se8/html/jvms-4.html#jvms-4.7.9.1">
+	 * 		Signatures</a>
+	 */
+	private static final class SignatureReader {
+
+		private final String signature;
+		private int index = 0;
+
+		private SignatureReader(String signature) {
+			this.signature = signature;
+		}
+
+		private char next() throws IOException {
+
+			if (index >= signature.length()) {
+				throw new IOException("Malformed signature " + signature);
+			}
+			return signature.charAt(index++);
+		}
+
+		private char peek() throws IOException {
+
+			char result = next();
+			index--;
+			return result;
+		}
+
+		/**
+		 * Read method signature, skipping type parameters and thrown exceptions.
+		 *
+		 * @param params list to add parameter types to.
+		 * @return return type.
+		 */
+		private TypeSignature readMethodSignature(List<TypeSignature> params) throws IOException {
+
+			if (peek() == '<')
+			{
+				next();
+				while (peek() != '>')
+				{
+					// type parameter identifier followed by class and interface bounds
+					while (next() != ':') {
+						continue;
+					}
+					while (true)
+					{
+						char c = peek();
+						if (c == 'L' || c == 'T' || c == '[') {
+							readType();
+						}
+						if (peek() != ':') {
+							break;
+						}
+						next();
+					}
+				}
+				next();
+			}
+			if (next() != '(') {
+				throw new IOException("Malformed method signature " + signature);
+			}
+			while (peek() != ')') {
+				params.add(readType());
+			}
+			next();
+			return readType();
+		}
+
+		private TypeSignature readType() throws IOException {
+
+			char c = next();
+			if (c == '[')
+			{
+				TypeSignature component = readType();
+				return new TypeSignature(component.className, component.dimensions + 1, component.typeArguments);
+			}
+			else if (c == 'T')
+			{
+				while (next() != ';') {
+					continue;
+				}
+				return new TypeSignature(null, 0, Collections.emptyList());
+			}
+			else if (c == 'L') {
+				return readClassType();
+			}
+			String primitive = getPrimitiveName(c);
+			if (primitive == null) {
+				throw new IOException("Malformed signature " + signature);
+			}
+			return new TypeSignature(primitive, 0, Collections.emptyList());
+		}
+
+		private TypeSignature readClassType() throws IOException {
+
+			StringBuilder name = new StringBuilder();
+			List<TypeSignature> typeArguments = Collections.emptyList();
+			for (char c = next(); c != ';'; c = next())
+			{
+				if (c == '/') {
+					name.append('.');
+				}
+				else if (c == '.')
+				{
+					// inner class has its own type arguments
+					name.append('$');
+					typeArguments = Collections.emptyList();
+				}
+				else if (c == '<') {
+					typeArguments = readTypeArguments();
+				}
+				else name.append(c);
+			}
+			return new TypeSignature(name.toString(), 0, typeArguments);
+		}
+
+		private List<TypeSignature> readTypeArguments() throws IOException {
+
+			List<TypeSignature> result = new ArrayList<>();
+			for (char c = peek(); c != '>'; c = peek())
+			{
+				if (c == '*')
+				{
+					next();
+					result.add(null);
+				}
+				else if (c == '+' || c == '-')
+				{
+					// bounded wildcards are unknown types
+					next();
+					readType();
+					result.add(null);
+				}
+				else result.add(readType());
+			}
+			next();
+			return result;
+		}
+	}
+}
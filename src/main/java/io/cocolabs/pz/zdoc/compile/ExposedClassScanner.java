@@ -0,0 +1,214 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.compile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import io.cocolabs.pz.zdoc.Main;
+import io.cocolabs.pz.zdoc.logger.Logger;
+import io.cocolabs.pz.zdoc.util.ClassResolver;
+
+/**
+ * <p>This class discovers exposed Java classes by reading bytecode of
+ * {@code LuaManager.Exposer#exposeAll} method instead of invoking it.</p>
+ * <p>Each class exposed by {@code Exposer} is passed to {@code setExposed} method as a class
+ * literal, so exposed classes can be found by scanning method body for {@code setExposed}
+ * invocations preceded by loading a class constant. Exposed classes are then resolved
+ * without initialization, which means that no game static initializers are run.</p>
+ * <p>Note that classes exposed only in debug mode are discovered as well since all call sites
+ * are scanned regardless of branching, which matches exposing classes with {@code Core.bDebug}
+ * flag set to {@code true}.</p>
+ */
+final class ExposedClassScanner {
+
+	static final String EXPOSER_CLASS = "zombie/Lua/LuaManager$Exposer.class";
+	static final String EXPOSE_METHOD = "exposeAll";
+
+	private static final String SET_EXPOSED_METHOD = "setExposed";
+	private static final String SET_EXPOSED_DESCRIPTOR = "(Ljava/lang/Class;)V";
+
+	private static final int LDC = 0x12, LDC_W = 0x13;
+	private static final int INVOKEVIRTUAL = 0xb6, INVOKESPECIAL = 0xb7;
+	private static final int TABLESWITCH = 0xaa, LOOKUPSWITCH = 0xab;
+	private static final int WIDE = 0xc4, IINC = 0x84;
+
+	private ExposedClassScanner() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Read {@code Exposer} class file from classpath and return a set of exposed Java classes.
+	 *
+	 * @return a set of exposed Java classes in order in which they are exposed.
+	 *
+	 * @throws IOException if {@code Exposer} class file could not be found or read.
+	 * @throws ClassNotFoundException if an exposed class could not be found.
+	 */
+	static Set<Class<?>> getExposedJava() throws IOException, ClassNotFoundException {
+
+		Logger.debug("Scanning exposed java classes...");
+		ClassFile exposer;
+		try (InputStream iStream = Main.CLASS_LOADER.getResourceAsStream(EXPOSER_CLASS))
+		{
+			if (iStream == null) {
+				throw new IOException("Unable to find class file " + EXPOSER_CLASS);
+			}
+			exposer = ClassFile.read(iStream);
+		}
+		Set<Class<?>> result = getExposedJava(exposer, EXPOSE_METHOD);
+		Logger.debug("Found %d exposed java classes", result.size());
+		return result;
+	}
+
+	/**
+	 * Returns a set of classes exposed in body of given method.
+	 *
+	 * @param classFile class file declaring the method.
+	 * @param methodName name of the method to scan.
+	 * @return a set of exposed Java classes in order in which they are exposed.
+	 *
+	 * @throws IOException if the method was not found or method bytecode is malformed.
+	 * @throws ClassNotFoundException if an exposed class could not be found.
+	 */
+	static Set<Class<?>> getExposedJava(ClassFile classFile, String methodName)
+			throws IOException, ClassNotFoundException {
+
+		Set<Class<?>> result = new LinkedHashSet<>();
+		for (String className : getExposedClassNames(classFile, methodName))
+		{
+			// class resolver does not initialize resolved classes
+			Class<?> exposedClass = ClassResolver.resolve(className);
+			if (exposedClass == null) {
+				throw new ClassNotFoundException(className);
+			}
+			result.add(exposedClass);
+		}
+		return result;
+	}
+
+	/**
+	 * Scan body of given method for classes passed to {@code setExposed} as class literals.
+	 *
+	 * @param classFile class file declaring the method.
+	 * @param methodName name of the method to scan.
+	 * @return binary names of exposed classes in order in which they are exposed.
+	 *
+	 * @throws IOException if the method was not found or method bytecode is malformed.
+	 */
+	static List<String> getExposedClassNames(ClassFile classFile, String methodName) throws IOException {
+
+		ClassFile.Member method = classFile.getMethod(methodName);
+		if (method == null || method.code == null)
+		{
+			throw new IOException(String.format("Unable to find body of method %s in class %s",
+					methodName, classFile.getName()));
+		}
+		ByteBuffer code = ByteBuffer.wrap(method.code);
+		Set<String> result = new LinkedHashSet<>();
+		int unresolvedCalls = 0;
+
+		// class literal loaded by the previous instruction
+		String loadedClass = null;
+		try {
+			while (code.hasRemaining())
+			{
+				int position = code.position();
+				int opcode = code.get() & 0xFF;
+				String currentClass = null;
+				if (opcode == LDC || opcode == LDC_W)
+				{
+					int index = opcode == LDC ? code.get(position + 1) & 0xFF : code.getShort(position + 1) & 0xFFFF;
+					if (classFile.getTag(index) == ClassFile.CONSTANT_CLASS) {
+						currentClass = classFile.getClassName(index);
+					}
+				}
+				else if (opcode == INVOKEVIRTUAL || opcode == INVOKESPECIAL)
+				{
+					ClassFile.Reference ref = classFile.getReference(code.getShort(position + 1) & 0xFFFF);
+					if (ref.name.equals(SET_EXPOSED_METHOD) && ref.descriptor.equals(SET_EXPOSED_DESCRIPTOR))
+					{
+						// array classes cannot be exposed
+						if (loadedClass != null && !loadedClass.startsWith("[")) {
+							result.add(loadedClass);
+						}
+						else unresolvedCalls++;
+					}
+				}
+				loadedClass = currentClass;
+				code.position(position + getInstructionLength(code, position, opcode));
+			}
+		}
+		catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+			throw new IOException("Malformed bytecode in method " + methodName, e);
+		}
+		if (unresolvedCalls > 0) {
+			Logger.warn("Unable to resolve classes exposed by %d invocations", unresolvedCalls);
+		}
+		return new ArrayList<>(result);
+	}
+
+	/**
+	 * Returns length of instruction at given position in bytes, including the opcode.
+	 *
+	 * @see <a href="https://docs.oracle.com/javase/specs/jvms/se8/html/jvms-6.html">
+	 * 		The Java Virtual Machine Instruction Set</a>
+	 */
+	private static int getInstructionLength(ByteBuffer code, int position, int opcode) throws IOException {
+
+		if (opcode <= 0x0f) {
+			return 1;
+		}
+		else if (opcode == 0x10 || opcode == LDC || (opcode >= 0x15 && opcode <= 0x19)
+				|| (opcode >= 0x36 && opcode <= 0x3a) || opcode == 0xa9 || opcode == 0xbc) {
+			return 2;
+		}
+		else if (opcode == 0x11 || opcode == LDC_W || opcode == 0x14 || opcode == IINC
+				|| (opcode >= 0x99 && opcode <= 0xa8) || (opcode >= 0xb2 && opcode <= 0xb8)
+				|| opcode == 0xbb || opcode == 0xbd || opcode == 0xc0 || opcode == 0xc1
+				|| opcode == 0xc6 || opcode == 0xc7) {
+			return 3;
+		}
+		else if (opcode == 0xc5) {
+			return 4;
+		}
+		else if (opcode == 0xb9 || opcode == 0xba || opcode == 0xc8 || opcode == 0xc9) {
+			return 5;
+		}
+		else if (opcode == WIDE) {
+			return (code.get(position + 1) & 0xFF) == IINC ? 6 : 4;
+		}
+		else if (opcode == TABLESWITCH || opcode == LOOKUPSWITCH)
+		{
+			// switch operands are aligned to four bytes from the start of method code
+			int operands = position + 1 + (3 - position % 4);
+			if (opcode == TABLESWITCH)
+			{
+				int low = code.getInt(operands + 4), high = code.getInt(operands + 8);
+				return operands - position + 12 + 4 * (high - low + 1);
+			}
+			return operands - position + 8 + 8 * code.getInt(operands + 4);
+		}
+		else if (opcode <= 0xc3) {
+			return 1;
+		}
+		throw new IOException(String.format("Unknown opcode %d at position %d", opcode, position));
+	}
+}
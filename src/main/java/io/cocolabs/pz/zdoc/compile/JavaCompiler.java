@@ -24,20 +24,29 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.*;
 
 import org.apache.commons.collections4.PredicateUtils;
 import org.apache.commons.collections4.list.PredicatedList;
 import org.apache.commons.collections4.set.PredicatedSet;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.reflect.ConstructorUtils;
 import org.apache.commons.lang3.reflect.FieldUtils;
 import org.apache.commons.lang3.reflect.MethodUtils;
 import org.apache.logging.log4j.util.Strings;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.UnmodifiableView;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import io.cocolabs.pz.zdoc.Main;
+import io.cocolabs.pz.zdoc.doc.APIPageFetcher;
 import io.cocolabs.pz.zdoc.doc.ZomboidAPIDoc;
 import io.cocolabs.pz.zdoc.doc.ZomboidJavaDoc;
 import io.cocolabs.pz.zdoc.doc.detail.DetailParsingException;
@@ -55,14 +64,99 @@ public class JavaCompiler implements ICompiler<ZomboidJavaDoc> {
 	public static final String GLOBAL_OBJECT_CLASS = "zombie.Lua.LuaManager.GlobalObject";
 	private static final File SERIALIZE_LUA = new File("serialize.lua");
 
+	/** Number of worker threads used to parse fetched API pages. */
+	private static final int PARSE_THREADS = Runtime.getRuntime().availableProcessors();
+
+	/** Number of classes compiled in parallel when not specified by user. */
+	public static final int DEFAULT_PARALLELISM = 1;
+
 	private final Properties localClassProperties;
 	private final Set<Class<?>> exposedJavaClasses;
 	private final Set<String> excludedClasses;
 
-	public JavaCompiler(Set<String> excludedClasses) throws CompilerException {
+	/** Names of excluded classes that were found among exposed classes. */
+	private final Set<String> usedExclusions = ConcurrentHashMap.newKeySet();
+	private final APIPageFetcher fetcher;
+	private final int parallelism;
+	private final @Nullable CompileManifest manifest;
+	private final boolean readBytecode;
+
+	public JavaCompiler(Set<String> excludedClasses, APIPageFetcher fetcher) throws CompilerException {
+		this(excludedClasses, fetcher, DEFAULT_PARALLELISM);
+	}
+
+	/**
+	 * @param excludedClasses names of classes to exclude from compilation.
+	 * @param fetcher fetcher used to get API pages of compiled classes.
+	 * @param parallelism maximum number of classes to compile in parallel.
+	 *
+	 * @throws CompilerException if an error occurred while reading exposed classes.
+	 * @throws IllegalArgumentException if parallelism is not a positive number.
+	 */
+	public JavaCompiler(Set<String> excludedClasses, APIPageFetcher fetcher,
+						int parallelism) throws CompilerException {
+		this(excludedClasses, fetcher, parallelism, null);
+	}
+
+	/**
+	 * @param excludedClasses names of classes to exclude from compilation.
+	 * @param fetcher fetcher used to get API pages of compiled classes.
+	 * @param parallelism maximum number of classes to compile in parallel.
+	 * @param manifest manifest of classes compiled in previous run used to skip compiling
+	 * 		unchanged classes or {@code null} to compile all classes.
+	 *
+	 * @throws CompilerException if an error occurred while reading exposed classes.
+	 * @throws IllegalArgumentException if parallelism is not a positive number.
+	 */
+	public JavaCompiler(Set<String> excludedClasses, APIPageFetcher fetcher, int parallelism,
+						@Nullable CompileManifest manifest) throws CompilerException {
+		this(excludedClasses, fetcher, parallelism, manifest, false, false);
+	}
+
+	/**
+	 * @param excludedClasses names of classes to exclude from compilation.
+	 * @param fetcher fetcher used to get API pages of compiled classes.
+	 * @param parallelism maximum number of classes to compile in parallel.
+	 * @param manifest manifest of classes compiled in previous run used to skip compiling
+	 * 		unchanged classes or {@code null} to compile all classes.
+	 * @param scanExposed {@code true} to discover exposed classes by reading game bytecode
+	 * 		instead of initializing {@code LuaManager}.
+	 * @param readBytecode {@code true} to read declared class members from class files
+	 * 		instead of using reflection.
+	 *
+	 * @throws CompilerException if an error occurred while reading exposed classes.
+	 * @throws IllegalArgumentException if parallelism is not a positive number.
+	 */
+	public JavaCompiler(Set<String> excludedClasses, APIPageFetcher fetcher, int parallelism,
+						@Nullable CompileManifest manifest, boolean scanExposed,
+						boolean readBytecode) throws CompilerException {
+
+		Validate.isTrue(parallelism > 0, "Compile parallelism must be positive (%d)", parallelism);
+		// these properties values will override local class paths
 		try {
-			// these properties values will override local class paths
 			localClassProperties = Utils.getProperties("javaclass.properties");
+		}
+		catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		// sort exposed classes by name to compile them in a deterministic order
+		Set<Class<?>> exposedClasses = new TreeSet<>(Comparator.comparing(Class::getName));
+		exposedClasses.addAll(scanExposed ? scanExposedJava() : readExposedJava());
+		exposedJavaClasses = Collections.unmodifiableSet(exposedClasses);
+
+		this.excludedClasses = ImmutableSet.copyOf(excludedClasses);
+		this.fetcher = fetcher;
+		this.parallelism = parallelism;
+		this.manifest = manifest;
+		this.readBytecode = readBytecode;
+	}
+
+	/**
+	 * Initialize {@code LuaManager} in a runtime session and return a set of exposed Java classes.
+	 */
+	private static Set<Class<?>> readExposedJava() throws CompilerException {
+
+		try {
 			/*
 			 * serialize.lua file is required by J2SEPlatform when setting up environment,
 			 * it is searched in project root directory and it will not be available there
@@ -84,7 +178,7 @@ public class JavaCompiler implements ICompiler<ZomboidJavaDoc> {
 					}
 				}
 			}
-			exposedJavaClasses = Collections.unmodifiableSet(getExposedJava());
+			Set<Class<?>> result = getExposedJava();
 			/*
 			 * delete serialize.lua file, we don't need it anymore,
 			 * use deleteOnExit() only as a last resort if we can't delete right now
@@ -94,6 +188,7 @@ public class JavaCompiler implements ICompiler<ZomboidJavaDoc> {
 				Logger.warn("Unable to delete serialize.lua, deleting on JVM exit");
 				SERIALIZE_LUA.deleteOnExit();
 			}
+			return result;
 		}
 		catch (IOException e) {
 			throw new RuntimeException(e);
@@ -101,35 +196,58 @@ public class JavaCompiler implements ICompiler<ZomboidJavaDoc> {
 		catch (ReflectiveOperationException e) {
 			throw new CompilerException("Error occurred while reading exposed java", e);
 		}
-		this.excludedClasses = excludedClasses;
+	}
+
+	/**
+	 * Scan game bytecode for exposed classes without running game code.
+	 *
+	 * @see ExposedClassScanner
+	 */
+	private static Set<Class<?>> scanExposedJava() throws CompilerException {
+
+		try {
+			Set<Class<?>> result = ExposedClassScanner.getExposedJava();
+
+			// class containing global exposed methods
+			Logger.debug("Including global methods from %s", GLOBAL_OBJECT_CLASS);
+			result.add(Utils.getClassForName(GLOBAL_OBJECT_CLASS));
+			return result;
+		}
+		catch (IOException | ClassNotFoundException e) {
+			throw new CompilerException("Error occurred while scanning exposed java", e);
+		}
 	}
 
 	static List<JavaField> compileJavaFields(Class<?> clazz, @Nullable ZomboidAPIDoc doc) throws DetailParsingException {
+		return matchJavaFields(clazz, DeclaredMembers.read(clazz, false), doc != null ? new FieldDetail(doc) : null);
+	}
+
+	/**
+	 * Compile declared fields of given class, matching them with entries parsed from API page.
+	 *
+	 * @param members members declared by the class.
+	 * @param fieldDetail field detail parsed from class API page or {@code null}
+	 * 		if the class has no API page.
+	 */
+	static List<JavaField> matchJavaFields(Class<?> clazz, DeclaredMembers members, @Nullable FieldDetail fieldDetail) {
 
 		Logger.debug("Start compiling java fields for " + clazz.getName());
 		List<JavaField> result = PredicatedList.predicatedList(
 				new ArrayList<>(), PredicateUtils.notNullPredicate()
 		);
-		FieldDetail fieldDetail = doc != null ? new FieldDetail(doc) : null;
-		for (Field field : clazz.getDeclaredFields())
+		for (JavaField field : members.getFields())
 		{
-			String fieldName = field.getName();
-			Logger.debug("Start compiling field %s...", fieldName);
-			// synthetic fields are generated by compiler for internal purposes
-			if (field.isSynthetic()) {
-				continue;
-			}
-			int typeParamCount = field.getType().getTypeParameters().length;
+			Logger.debug("Start compiling field %s...", field.getName());
+			JavaClass jField = field.getType();
 			/*
-			 * if the field is a parameterized type we are not going to be able
+			 * if the field is a parameterized type we might not be able
 			 * to determine the exact type due to runtime erasure, so try to
 			 * use the field data from online API page if possible
 			 */
-			Logger.debug("Field has %d type parameters", typeParamCount);
-			JavaClass jField = new JavaClass(field.getType());
-			if (doc != null)
+			Logger.debug("Field has %d type parameters", jField.getTypeParameters().size());
+			if (fieldDetail != null)
 			{
-				Logger.debug("Searching for field in document %s", doc.getName());
+				Logger.debug("Searching for field in document %s", fieldDetail.getDocument().getName());
 				JavaField docField = fieldDetail.getEntry(field.getName());
 				if (docField != null)
 				{
@@ -148,56 +266,49 @@ public class JavaCompiler implements ICompiler<ZomboidJavaDoc> {
 					else Logger.debug("Detail entry (%s) did not match field", docField.getType());
 				}
 				String format = "Didn't find matching field \"%s\" in document \"%s\"";
-				Logger.detail(String.format(format, field.getName(), doc.getName()));
+				Logger.detail(String.format(format, field.getName(), fieldDetail.getDocument().getName()));
 			}
-			/* when no matching field or API page was found, construct new JavaField
-			 * with same properties as declared field but make parameterized types null
+			/* when no matching field or API page was found, use declared field
+			 * with type parameters that could not be determined left null
 			 */
-			MemberModifier modifier = new MemberModifier(field.getModifiers());
-			result.add(new JavaField(jField, field.getName(), modifier));
+			result.add(field);
 		}
 		Logger.debug("Finished compiling %d fields", result.size());
 		return result;
 	}
 
 	static Set<JavaMethod> compileJavaMethods(Class<?> clazz, @Nullable ZomboidAPIDoc doc) throws DetailParsingException {
+		return matchJavaMethods(clazz, DeclaredMembers.read(clazz, false), doc != null ? new MethodDetail(doc) : null);
+	}
+
+	/**
+	 * Compile declared methods of given class, matching them with entries parsed from API page.
+	 *
+	 * @param members members declared by the class.
+	 * @param methodDetail method detail parsed from class API page or {@code null}
+	 * 		if the class has no API page.
+	 */
+	static Set<JavaMethod> matchJavaMethods(Class<?> clazz, DeclaredMembers members, @Nullable MethodDetail methodDetail) {
 
 		Logger.debug("Start compiling java methods for " + clazz.getName());
 		Set<JavaMethod> result = PredicatedSet.predicatedSet(
 				new HashSet<>(), PredicateUtils.notNullPredicate()
 		);
-		MethodDetail methodDetail = doc != null ? new MethodDetail(doc) : null;
-		for (Method method : clazz.getDeclaredMethods())
+		for (JavaMethod jMethod : members.getMethods())
 		{
-			String methodName = method.getName();
+			String methodName = jMethod.getName();
 			Logger.debug("Start compiling method %s...", methodName);
-			// synthetic methods are generated by compiler for internal purposes
-			if (method.isSynthetic())
-			{
-				Logger.debug("Found synthetic method, will not compile");
-				continue;
-			}
-			JavaMethod jMethod = new JavaMethod(method);
-			if (doc != null)
+			if (methodDetail != null)
 			{
-				Logger.debug("Searching for method in document %s", doc.getName());
-				JavaMethod matchedMethod = null;
-				Set<JavaMethod> methodEntries = methodDetail.getEntries(method.getName());
-				Iterator<JavaMethod> iterator = methodEntries.iterator();
-				while (matchedMethod == null && iterator.hasNext())
-				{
-					JavaMethod entry = iterator.next();
-					if (entry.equals(jMethod, true)) {
-						matchedMethod = entry;
-					}
-				}
+				Logger.debug("Searching for method in document %s", methodDetail.getDocument().getName());
+				JavaMethod matchedMethod = methodDetail.getEntry(jMethod);
 				if (matchedMethod != null)
 				{
 					result.add(matchedMethod);
 					continue;
 				}
 				String format = "Didn't find matching method \"%s\" in document \"%s\"";
-				Logger.detail(String.format(format, methodName, doc.getName()));
+				Logger.detail(String.format(format, methodName, methodDetail.getDocument().getName()));
 			}
 			else Logger.debug("Constructing method from JavaMethod instance");
 			result.add(jMethod);
@@ -268,86 +379,348 @@ public class JavaCompiler implements ICompiler<ZomboidJavaDoc> {
 	}
 
 	@Override
-	public Set<ZomboidJavaDoc> compile() {
+	public Set<ZomboidJavaDoc> compile() throws CompilerException {
 
 		Logger.info("Start compiling java classes...");
-		Set<ZomboidJavaDoc> result = new HashSet<>();
-		for (Class<?> exposedClass : exposedJavaClasses)
+		Set<ZomboidJavaDoc> result = new LinkedHashSet<>();
+		if (manifest != null)
 		{
-			String exposedClassName = exposedClass.getName();
-			if (excludedClasses.removeIf(ec -> ec.equals(exposedClassName)))
+			List<String> classNames = new ArrayList<>();
+			for (Class<?> exposedClass : exposedJavaClasses)
 			{
-				Logger.detail("Excluding exposed class %s", exposedClassName);
-				continue;
-			}
-			Logger.info("Compiling exposed class %s...", exposedClassName);
-
-			String classPath = JavaClass.getPathForClass(exposedClass);
-			String localClassPath = (String) localClassProperties.get(classPath);
-			boolean expectMissingApiPage = false;
-
-			// path values defined in properties override class path
-			if (localClassPath != null)
-			{
-				if (Strings.isNotBlank(localClassPath)) {
-					classPath = localClassPath;
+				if (!excludedClasses.contains(exposedClass.getName())) {
+					classNames.add(exposedClass.getName());
 				}
-				else expectMissingApiPage = true;
 			}
-			if (!classPath.isEmpty())
+			manifest.validateClasses(classNames);
+		}
+		/*
+		 * classes are compiled in a pipeline of three stages: API pages are downloaded
+		 * by fetcher worker threads, parsed into details by parser worker threads and
+		 * matched with declared class members on a fork-join pool, results are then
+		 * collected on this thread in class order so that output is deterministic,
+		 * the number of classes in flight across all stages is bounded so that the
+		 * pipeline applies back-pressure and keeps memory usage in check
+		 */
+		int pipelineSize = Math.max(Math.max(fetcher.getThreadCount(), PARSE_THREADS), parallelism) * 2;
+		ExecutorService parser = Executors.newFixedThreadPool(PARSE_THREADS, new ThreadFactoryBuilder()
+				.setNameFormat("api-parse-%d").setDaemon(true).build());
+		ForkJoinPool compiler = new ForkJoinPool(parallelism);
+		List<String> failedPages = new ArrayList<>();
+		try {
+			Deque<ExposedClass> pending = new ArrayDeque<>();
+			Iterator<Class<?>> iterator = exposedJavaClasses.iterator();
+			while (iterator.hasNext() || !pending.isEmpty())
 			{
-				@Nullable ZomboidAPIDoc document = null;
-				try {
-					// do not try to get zomboid documentation for JDK classes
-					if (!classPath.startsWith("java/"))
+				while (pending.size() < pipelineSize && iterator.hasNext())
+				{
+					ExposedClass exposedClass = prepareExposedClass(iterator.next(), parser, compiler);
+					if (exposedClass != null) {
+						pending.add(exposedClass);
+					}
+				}
+				ExposedClass exposedClass = pending.poll();
+				if (exposedClass != null)
+				{
+					ZomboidJavaDoc javaDoc = getCompiledClass(exposedClass);
+					if (exposedClass.pageFailed) {
+						failedPages.add(exposedClass.classPath);
+					}
+					else if (manifest != null)
 					{
-						Logger.debug(String.format("Getting API page for class \"%s\"", classPath));
-						document = ZomboidAPIDoc.getPage(Paths.get(classPath));
-						if (document == null)
-						{
-							if (!expectMissingApiPage) {
-								Logger.warn(String.format("Unable to find API page for path %s", classPath));
-							}
+						String className = exposedClass.clazz.getName();
+						if (exposedClass.reused) {
+							manifest.reuse(className);
 						}
-						else if (expectMissingApiPage) {
-							Logger.warn(String.format("Expected to find missing API page for path %s", classPath));
+						else if (javaDoc != null) {
+							manifest.update(className, exposedClass.fingerprint);
 						}
 					}
+					if (javaDoc != null) {
+						result.add(javaDoc);
+					}
 				}
-				catch (IOException e)
-				{
-					String msg = "Error occurred while getting API page for path %s";
-					Logger.error(String.format(msg, classPath), e);
+			}
+		}
+		finally {
+			parser.shutdownNow();
+			compiler.shutdownNow();
+		}
+		/*
+		 * do not silently produce incomplete documentation when pages could not be fetched,
+		 * all classes are compiled before failing so that every failed page is reported
+		 */
+		if (!failedPages.isEmpty())
+		{
+			throw new CompilerException(String.format("Unable to get %d API pages: %s",
+					failedPages.size(), String.join(", ", failedPages)));
+		}
+		if (manifest != null) {
+			Logger.info("Reused %d unchanged java classes", manifest.getReusedCount());
+		}
+		Logger.info("Finished compiling %d/%d java classes", result.size(), exposedJavaClasses.size());
+		return result;
+	}
+
+	/**
+	 * Wait for given class to finish compiling.
+	 *
+	 * @return compiled {@code ZomboidJavaDoc} or {@code null} if API page details could not be parsed.
+	 *
+	 * @throws CompilerException if the thread was interrupted while waiting for class to compile
+	 * 		or an unexpected error occurred while compiling class.
+	 */
+	private static @Nullable ZomboidJavaDoc getCompiledClass(ExposedClass exposedClass) throws CompilerException {
+
+		String className = exposedClass.clazz.getName();
+		try {
+			return Objects.requireNonNull(exposedClass.compiled).get();
+		}
+		catch (ExecutionException e) {
+			throw new CompilerException("Error occurred while compiling class " + className, e.getCause());
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new CompilerException("Interrupted while compiling class " + className, e);
+		}
+	}
+
+	/**
+	 * Returns names of excluded classes that never matched an exposed class during
+	 * {@link #compile()}. Resolving API page paths does not mark exclusions as used.
+	 */
+	public @UnmodifiableView Set<String> getUnusedExclusions() {
+		return Sets.difference(excludedClasses, usedExclusions);
+	}
+
+	/**
+	 * Returns paths to API pages of all exposed classes that are not excluded from
+	 * compilation. Paths are resolved the same way as when compiling classes so that
+	 * the pages can be fetched ahead of compilation <i>(excludes JDK classes)</i>.
+	 */
+	public Set<String> getAPIPagePaths() {
+
+		Set<String> result = new LinkedHashSet<>();
+		for (Class<?> exposedJavaClass : exposedJavaClasses)
+		{
+			ExposedClass exposedClass = resolveExposedClass(exposedJavaClass);
+			if (exposedClass != null && exposedClass.hasAPIPage()) {
+				result.add(exposedClass.classPath);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Resolve API page path for given exposed class and schedule the page to be fetched
+	 * by fetcher, parsed into details with the given parser executor and then compiled
+	 * with the given compiler executor.
+	 *
+	 * @return {@code ExposedClass} representing class being compiled or {@code null}
+	 * 		if the class was excluded from compilation or the class path could not be found.
+	 */
+	private @Nullable ExposedClass prepareExposedClass(Class<?> exposedJavaClass,
+													   Executor parser, Executor compiler) {
+
+		ExposedClass exposedClass = resolveExposedClass(exposedJavaClass);
+		if (exposedClass == null) {
+			return null;
+		}
+		CompletableFuture<APIPageDetail> page;
+		if (exposedClass.hasAPIPage())
+		{
+			Logger.debug(String.format("Getting API page for class \"%s\"", exposedClass.classPath));
+			Path pagePath = Paths.get(exposedClass.classPath);
+			page = fetcher.fetchContent(pagePath).thenApplyAsync(content -> {
+				if (isUnchanged(exposedClass, content)) {
+					return null;
 				}
-				JavaClass javaClass = new JavaClass(exposedClass);
-				List<JavaField> javaFields;
 				try {
-					javaFields = compileJavaFields(exposedClass, document);
+					return content != null ? new APIPageDetail(pagePath, content) : null;
 				}
-				catch (DetailParsingException e)
-				{
-					String msg = "Error occurred while compiling java fields for document %s";
-					Logger.error(String.format(msg, Objects.requireNonNull(document).getName()), e);
-					continue;
+				catch (IOException | DetailParsingException e) {
+					throw new CompletionException(e);
 				}
-				Set<JavaMethod> javaMethods;
-				try {
-					javaMethods = compileJavaMethods(exposedClass, document);
-				}
-				catch (DetailParsingException e)
-				{
-					String msg = "Error occurred while compiling java methods for document %s";
-					Logger.error(String.format(msg, Objects.requireNonNull(document).getName()), e);
-					continue;
+			}, parser);
+		}
+		else if (manifest != null)
+		{
+			page = CompletableFuture.supplyAsync(() -> {
+				isUnchanged(exposedClass, null);
+				return null;
+			}, parser);
+		}
+		else page = CompletableFuture.completedFuture(null);
+
+		exposedClass.compiled = page.handleAsync(
+				(pageDetail, error) -> compileExposedClass(exposedClass, pageDetail, error, readBytecode), compiler);
+		return exposedClass;
+	}
+
+	/**
+	 * Calculate fingerprint of given exposed class and mark the class as reused
+	 * if the fingerprint did not change since the class was compiled in previous run.
+	 *
+	 * @param content content of class API page or {@code null} if the class has no API page.
+	 * @return {@code true} if the class does not need to be compiled.
+	 */
+	private boolean isUnchanged(ExposedClass exposedClass, @Nullable byte[] content) {
+
+		if (manifest == null) {
+			return false;
+		}
+		exposedClass.fingerprint = CompileManifest.fingerprint(exposedClass.clazz, content);
+		exposedClass.reused = manifest.isUnchanged(exposedClass.clazz.getName(), exposedClass.fingerprint);
+		return exposedClass.reused;
+	}
+
+	/**
+	 * Resolve API page path for given exposed class.
+	 *
+	 * @return {@code ExposedClass} representing class to be compiled or {@code null} if
+	 * 		the class was excluded from compilation or the class path could not be found.
+	 */
+	private @Nullable ExposedClass resolveExposedClass(Class<?> exposedClass) {
+
+		String exposedClassName = exposedClass.getName();
+		if (excludedClasses.contains(exposedClassName))
+		{
+			usedExclusions.add(exposedClassName);
+			Logger.detail("Excluding exposed class %s", exposedClassName);
+			return null;
+		}
+		String classPath = JavaClass.getPathForClass(exposedClass);
+		String localClassPath = (String) localClassProperties.get(classPath);
+		boolean expectMissingApiPage = false;
+
+		// path values defined in properties override class path
+		if (localClassPath != null)
+		{
+			if (Strings.isNotBlank(localClassPath)) {
+				classPath = localClassPath;
+			}
+			else expectMissingApiPage = true;
+		}
+		if (classPath.isEmpty())
+		{
+			Logger.error(String.format("Unable to find path for Java class \"%s\", " +
+					"might be an internal class.", exposedClassName));
+			return null;
+		}
+		return new ExposedClass(exposedClass, classPath, expectMissingApiPage);
+	}
+
+	/**
+	 * Compile given exposed class with details parsed from fetched API page.
+	 * When the API page could not be fetched the class is marked as failed.
+	 *
+	 * @param pageDetail details parsed from API page or {@code null} if the page
+	 * 		was not found, was not requested or could not be fetched.
+	 * @param error error that occurred while fetching or parsing API page.
+	 * @param readBytecode {@code true} to read declared class members from class file.
+	 * @return compiled {@code ZomboidJavaDoc} or {@code null} if API page details could not be parsed.
+	 */
+	private static @Nullable ZomboidJavaDoc compileExposedClass(ExposedClass exposedClass,
+			@Nullable APIPageDetail pageDetail, @Nullable Throwable error, boolean readBytecode) {
+
+		Class<?> clazz = exposedClass.clazz;
+		String classPath = exposedClass.classPath;
+		if (exposedClass.reused && error == null)
+		{
+			Logger.detail("Reusing unchanged class %s", clazz.getName());
+			return null;
+		}
+		Logger.info("Compiling exposed class %s...", clazz.getName());
+
+		if (error != null)
+		{
+			Throwable cause = error instanceof CompletionException && error.getCause() != null
+					? error.getCause() : error;
+			if (cause instanceof DetailParsingException)
+			{
+				String msg = "Error occurred while parsing API page details for path %s";
+				Logger.error(String.format(msg, classPath), cause);
+				return null;
+			}
+			String msg = "Error occurred while getting API page for path %s";
+			Logger.error(String.format(msg, classPath), cause);
+			exposedClass.pageFailed = true;
+		}
+		else if (exposedClass.hasAPIPage())
+		{
+			if (pageDetail == null)
+			{
+				if (!exposedClass.expectMissingApiPage) {
+					Logger.warn(String.format("Unable to find API page for path %s", classPath));
 				}
-				result.add(new ZomboidJavaDoc(javaClass, javaFields, javaMethods));
-				Logger.detail("Compiled java class %s with %d fields and %d methods",
-						exposedClassName, javaFields.size(), javaMethods.size());
 			}
-			else Logger.error(String.format("Unable to find path for Java class \"%s\", " +
-					"might be an internal class.", exposedClass.getName()));
+			else if (exposedClass.expectMissingApiPage) {
+				Logger.warn(String.format("Expected to find missing API page for path %s", classPath));
+			}
+		}
+		JavaClass javaClass = new JavaClass(clazz);
+		DeclaredMembers members = DeclaredMembers.read(clazz, readBytecode);
+		List<JavaField> javaFields = matchJavaFields(clazz, members,
+				pageDetail != null ? pageDetail.fieldDetail : null);
+		Set<JavaMethod> javaMethods = matchJavaMethods(clazz, members,
+				pageDetail != null ? pageDetail.methodDetail : null);
+
+		Logger.detail("Compiled java class %s with %d fields and %d methods",
+				clazz.getName(), javaFields.size(), javaMethods.size());
+		return new ZomboidJavaDoc(javaClass, javaFields, javaMethods);
+	}
+
+	/**
+	 * This class represents an exposed Java class waiting to be compiled.
+	 */
+	private static class ExposedClass {
+
+		private final Class<?> clazz;
+		private final String classPath;
+		private final boolean expectMissingApiPage;
+
+		/** Pending result of compiling this class, {@code null} if compilation was not scheduled. */
+		private @Nullable Future<ZomboidJavaDoc> compiled;
+
+		/** Set when API page of this class could not be fetched, read after compilation completes. */
+		private boolean pageFailed;
+
+		/** Fingerprint of this class, set before compilation when compiling incrementally. */
+		private @Nullable String fingerprint;
+
+		/** Set when this class did not change since previous run and does not need to be compiled. */
+		private boolean reused;
+
+		private ExposedClass(Class<?> clazz, String classPath, boolean expectMissingApiPage) {
+			this.clazz = clazz;
+			this.classPath = classPath;
+			this.expectMissingApiPage = expectMissingApiPage;
+		}
+
+		/**
+		 * Returns {@code true} if this class is documented on modding API.
+		 * We do not try to get zomboid documentation for JDK classes.
+		 */
+		private boolean hasAPIPage() {
+			return !classPath.startsWith("java/");
+		}
+	}
+
+	/**
+	 * This class represents an API page parsed into field and method details.
+	 */
+	private static class APIPageDetail {
+
+		private final FieldDetail fieldDetail;
+		private final MethodDetail methodDetail;
+
+		private APIPageDetail(Path path, byte[] content) throws IOException, DetailParsingException {
+
+			ZomboidAPIDoc document = ZomboidAPIDoc.parseSections(
+					content, path, FieldDetail.ANCHOR_NAME, MethodDetail.ANCHOR_NAME);
+			this.fieldDetail = new FieldDetail(document);
+			this.methodDetail = new MethodDetail(document);
 		}
-		Logger.info("Finished compiling %d/%d java classes", result.size(), exposedJavaClasses.size());
-		return result;
 	}
 }
@@ -17,22 +17,38 @@
  */
 package io.cocolabs.pz.zdoc.compile;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
-import java.util.regex.Matcher;
+import java.util.concurrent.*;
 import java.util.regex.Pattern;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.jetbrains.annotations.Nullable;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import io.cocolabs.pz.zdoc.Main;
 import io.cocolabs.pz.zdoc.element.lua.LuaClass;
 import io.cocolabs.pz.zdoc.lang.lua.EmmyLuaClass;
 import io.cocolabs.pz.zdoc.logger.Logger;
-import io.cocolabs.pz.zdoc.util.ParseUtils;
 
 public class LuaAnnotator {
 
@@ -65,11 +81,19 @@ public class LuaAnnotator {
 	 * </pre>
 	 * </p>
 	 * </blockquote>
+	 * <p>Lines are matched with {@link LuaTableScanner} in annotation process,
+	 * the pattern is kept as a reference for scanner behaviour.</p>
 	 */
 	static final Pattern LUA_TABLE_DECLARATION = Pattern.compile(
 			"^(\\s+)?(\\w+)\\s*=(?:\\s*([^\\s]+):(new|derive)\\(|.*\\s*).*$"
 	);
 
+	/** Number of files annotated in parallel when not specified by user. */
+	public static final int DEFAULT_PARALLELISM = 1;
+
+	/** Annotation order of files annotated one by one. */
+	private static final int SERIAL_ORDER = -1;
+
 	/**
 	 * <p>Annotate Lua class representing the given file with {@link EmmyLuaClass} annotations.
 	 * The method reads the file line by line and searches for a table declaration that matches
@@ -106,10 +130,214 @@ public class LuaAnnotator {
 		if (!file.exists()) {
 			throw new FileNotFoundException(file.getPath());
 		}
-		List<String> input = FileUtils.readLines(file, Main.CHARSET);
-		if (input.size() == 0) {
-			return AnnotateResult.SKIPPED_FILE_EMPTY;
+		try (BufferedReader reader = openReader(file)) {
+			return annotate(file, reader, content::add, rules, SERIAL_ORDER, false);
+		}
+	}
+
+	/**
+	 * <p>Annotate Lua class representing the given file with {@link EmmyLuaClass} annotations
+	 * and write annotated content of the file directly to given channel.</p>
+	 * <p>The file is annotated the same way as with {@link #annotate(File, List, AnnotateRules)}
+	 * but the content is streamed line by line instead of being copied to a {@code List},
+	 * so the memory used does not grow with the size of annotated file. Lines are written
+	 * with system line separator the same way as with {@link FileUtils#writeLines(File, Collection)}.
+	 * Nothing is written when the file is empty or ignored by rules.</p>
+	 *
+	 * @param file {@code File} to annotate the class for.
+	 * @param output channel to write annotated content to, the channel is not closed.
+	 * @param rules rules to apply in the annotation process.
+	 * @return {@code AnnotateResult} specifying the result of annotation process.
+	 *
+	 * @throws FileNotFoundException if the given {@code File} does not exist.
+	 * @throws IOException if an I/O exception was thrown while reading file or writing to channel.
+	 * @throws UnsupportedOperationException if exclusion rules {@code Set}
+	 * 		is an immutable {@code Collection} implementation.
+	 */
+	public static AnnotateResult annotate(File file, WritableByteChannel output,
+										  AnnotateRules rules) throws IOException {
+
+		if (!file.exists()) {
+			throw new FileNotFoundException(file.getPath());
+		}
+		return annotate(file, output, rules, SERIAL_ORDER, false);
+	}
+
+	private static AnnotateResult annotate(File file, WritableByteChannel output, AnnotateRules rules,
+										   int order, boolean onlyAnnotated) throws IOException {
+
+		CharsetEncoder encoder = Charset.forName(Main.CHARSET).newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+		// writer is not closed because that would close the channel
+		Writer writer = Channels.newWriter(output, encoder, -1);
+		AnnotateResult result;
+		try (BufferedReader reader = openReader(file))
+		{
+			result = annotate(file, reader, line -> {
+				writer.write(line);
+				writer.write(System.lineSeparator());
+			}, rules, order, onlyAnnotated);
+		}
+		writer.flush();
+		return result;
+	}
+
+	/**
+	 * Open reader that reads given file line by line through a fixed size buffer.
+	 * Lines are decoded and split the same way as with {@link FileUtils#readLines(File, String)}.
+	 *
+	 * @throws IOException if an I/O exception was thrown while opening file.
+	 */
+	static BufferedReader openReader(File file) throws IOException {
+
+		CharsetDecoder decoder = Charset.forName(Main.CHARSET).newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		return new BufferedReader(Channels.newReader(channel, decoder, -1));
+	}
+
+	/**
+	 * <p>Annotate Lua classes representing given files on a pool of worker threads and stream
+	 * the annotated content of each file to a channel opened by given handler. Files are
+	 * annotated with the same result as if they were annotated one by one in given order.</p>
+	 * <p>Since the same table can be declared in multiple files, tables are claimed in two
+	 * passes. The first pass finds tables declared by each file and claims them for the
+	 * file that comes first in given order, and the second pass annotates each file with
+	 * tables claimed by files before it treated as excluded. When all files are annotated
+	 * the claimed tables are added to exclusion rules. Exclusion rules must not be modified
+	 * by other threads until this method returns.</p>
+	 *
+	 * @param files {@code List} of files to annotate in serial annotation order.
+	 * @param rules rules to apply in the annotation process.
+	 * @param parallelism maximum number of files to annotate in parallel, when the
+	 * 		parallelism is {@code 1} files are annotated one by one on calling thread.
+	 * @param handler handler that opens output channels and handles annotation results,
+	 * 		called from worker threads.
+	 *
+	 * @throws FileNotFoundException if one of the given files does not exist.
+	 * @throws IOException if an I/O exception was thrown while reading or handling files.
+	 * @throws IllegalArgumentException if parallelism is not a positive number.
+	 * @see #annotate(File, WritableByteChannel, AnnotateRules)
+	 */
+	public static void annotate(List<File> files, AnnotateRules rules, int parallelism,
+								AnnotateHandler handler) throws IOException {
+
+		Validate.isTrue(parallelism > 0, "Annotate parallelism must be positive (%d)", parallelism);
+		for (File file : files)
+		{
+			if (!file.exists()) {
+				throw new FileNotFoundException(file.getPath());
+			}
+		}
+		if (parallelism == 1)
+		{
+			for (File file : files) {
+				annotate(file, handler, rules, SERIAL_ORDER);
+			}
+			return;
 		}
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder()
+				.setNameFormat("lua-annotator-%d").setDaemon(true).build());
+		try {
+			List<Future<?>> tasks = new ArrayList<>();
+			for (int i = 0; i < files.size(); i++)
+			{
+				File file = files.get(i);
+				int order = i;
+				tasks.add(executor.submit(() -> {
+					try (BufferedReader reader = openReader(file)) {
+						claimDeclaredTables(file, reader, rules, order);
+					}
+					return null;
+				}));
+			}
+			awaitAll(tasks);
+			tasks.clear();
+			for (int i = 0; i < files.size(); i++)
+			{
+				File file = files.get(i);
+				int order = i;
+				tasks.add(executor.submit(() -> {
+					annotate(file, handler, rules, order);
+					return null;
+				}));
+			}
+			awaitAll(tasks);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		rules.exclude.addAll(rules.claims.keySet());
+	}
+
+	private static void awaitAll(List<Future<?>> tasks) throws IOException {
+
+		try {
+			for (Future<?> task : tasks) {
+				task.get();
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while annotating lua files");
+		}
+		catch (ExecutionException e)
+		{
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IOException("Error occurred while annotating lua files", cause);
+		}
+	}
+
+	/**
+	 * Annotate given file and stream annotated content to a channel opened by given handler.
+	 * The channel is opened when the first line is written and closed before the annotation
+	 * result is passed to handler. When annotating the file fails, the handler is asked
+	 * to discard the content written so far instead.
+	 */
+	private static void annotate(File file, AnnotateHandler handler,
+								 AnnotateRules rules, int order) throws IOException {
+
+		AnnotateResult result;
+		LazyChannel output = new LazyChannel(() -> handler.open(file));
+		try {
+			try (LazyChannel channel = output) {
+				result = annotate(file, channel, rules, order, handler.isOnlyAnnotated());
+			}
+		}
+		catch (IOException | RuntimeException e)
+		{
+			if (output.isOpened())
+			{
+				try {
+					handler.discard(file);
+				}
+				catch (IOException suppressed) {
+					e.addSuppressed(suppressed);
+				}
+			}
+			throw e;
+		}
+		handler.handle(file, result, output.isOpened());
+	}
+
+	/**
+	 * Returns names of tables to annotate in file with given name.
+	 *
+	 * @return {@code Set} of table names or {@code null} if the file is ignored by rules.
+	 */
+	private static @Nullable Set<String> getIncludedTables(File file, AnnotateRules rules) {
+
 		Set<String> include = new HashSet<>();
 		String tableName = FilenameUtils.removeExtension(file.getName());
 		String includeValue = (String) rules.include.get(tableName);
@@ -123,21 +351,74 @@ public class LuaAnnotator {
 				include.addAll(Arrays.asList(includeValue.split(",")));
 			}
 			// if property value is blank the file is meant to be ignored
-			else return AnnotateResult.SKIPPED_FILE_IGNORED;
+			else return null;
 		}
 		else include.add(tableName);
+		return include;
+	}
+
+	/**
+	 * Claim tables declared in given file that would be annotated in serial annotation.
+	 * Each table is claimed by the first file in annotation order that declares it.
+	 */
+	private static void claimDeclaredTables(File file, BufferedReader input,
+											AnnotateRules rules, int order) throws IOException {
+
+		Set<String> include = getIncludedTables(file, rules);
+		if (include == null) {
+			return;
+		}
+		LuaTableScanner scanner = new LuaTableScanner();
+		// stop reading the file as soon as all included tables are found
+		for (String line = input.readLine(); line != null && !include.isEmpty(); line = input.readLine())
+		{
+			if (StringUtils.isBlank(line)) {
+				continue;
+			}
+			if (scanner.scan(line))
+			{
+				String matchedName = scanner.getName();
+				if (include.remove(matchedName) && !rules.exclude.contains(matchedName)) {
+					rules.claims.merge(matchedName, order, Math::min);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Annotate given file content. Lines are copied to output through a one-line look-behind
+	 * so that an annotation found right above annotated table declaration can be dropped
+	 * before it is written, and the new annotation is written in its place.
+	 *
+	 * @param order position of the file in annotation order or {@link #SERIAL_ORDER}
+	 * 		when tables are claimed by adding them to exclusion rules.
+	 * @param onlyAnnotated whether to write lines only when the file has an annotated table,
+	 * 		nothing is written to output for files that are not annotated.
+	 */
+	private static AnnotateResult annotate(File file, BufferedReader input, LineWriter output, AnnotateRules rules,
+										   int order, boolean onlyAnnotated) throws IOException {
 
+		String line = input.readLine();
+		if (line == null) {
+			return AnnotateResult.SKIPPED_FILE_EMPTY;
+		}
+		Set<String> include = getIncludedTables(file, rules);
+		if (include == null) {
+			return AnnotateResult.SKIPPED_FILE_IGNORED;
+		}
 		final int includeCountMax = include.size();
 		int includeCount = 0, excludeCount = 0;
 
 		boolean foundNonBlankLine = false;  // true if file is not empty
+		LuaTableScanner scanner = new LuaTableScanner();
+		DeferredLineWriter deferred = onlyAnnotated ? new DeferredLineWriter(file, output) : null;
+		LookBehindWriter writer = new LookBehindWriter(deferred != null ? deferred : output);
 
-		for (int i = 0; i < input.size(); i++)
+		for (; line != null; line = input.readLine())
 		{
-			String line = input.get(i);
 			if (StringUtils.isBlank(line))
 			{
-				content.add(line);
+				writer.write(line);
 				continue;
 			}
 			/* evaluate if file content is consistent of only blank lines,
@@ -148,31 +429,36 @@ public class LuaAnnotator {
 				foundNonBlankLine = true;
 			}
 			/*
-			 * skip regex matching if all elements were already annotated,
-			 * just continue copying file content to list
+			 * skip scanning for declarations if all elements were already annotated,
+			 * just continue copying file content to output
 			 */
 			if (!include.isEmpty())
 			{
-				Matcher match = LUA_TABLE_DECLARATION.matcher(line);
-				if (match.find())
+				if (scanner.scan(line))
 				{
-					String matchedName = match.group(2);
+					String matchedName = scanner.getName();
 					if (include.contains(matchedName))
 					{
-						LuaClass luaClass = new LuaClass(matchedName, match.group(3));
-						if (!rules.exclude.contains(luaClass.getName()))
+						LuaClass luaClass = new LuaClass(matchedName, scanner.getParentName());
+						if (!rules.isExcluded(luaClass.getName(), order))
 						{
-							// make sure we are not on the first line
-							if (i > 0 && EmmyLuaClass.isAnnotation(input.get(i - 1))) {
-								content.remove(i - 1);
+							// replace existing annotation in line above declaration
+							String previous = writer.getPrevious();
+							if (previous != null && EmmyLuaClass.isAnnotation(previous)) {
+								writer.dropPrevious();
+							}
+							// file will be annotated so lines held back so far have to be written
+							if (deferred != null) {
+								deferred.commit();
 							}
 							/* take indentation in consideration just in case
 							 * the table declaration is indented (should not normally be the case)
 							 */
-							String indentation = ParseUtils.getOptionalMatchedGroup(match, 1);
-							content.add(indentation + luaClass.getAnnotations().get(0));
-							rules.exclude.add(luaClass.getName());
-
+							String indentation = scanner.getIndentation();
+							writer.write(indentation + luaClass.getAnnotations().get(0));
+							if (order == SERIAL_ORDER) {
+								rules.exclude.add(luaClass.getName());
+							}
 							include.remove(matchedName);
 							includeCount += 1;
 						}
@@ -180,8 +466,9 @@ public class LuaAnnotator {
 					}
 				}
 			}
-			content.add(line);
+			writer.write(line);
 		}
+		writer.flush();
 		Logger.debug(String.format("Annotation process finished - " +
 				"included (%d/%d), excluded %d", includeCount, includeCountMax, excludeCount)
 		);
@@ -215,6 +502,154 @@ public class LuaAnnotator {
 		return LuaAnnotator.annotate(file, content, new AnnotateRules());
 	}
 
+	/** Destination of annotated lines. */
+	@FunctionalInterface
+	private interface LineWriter {
+		void writeLine(String line) throws IOException;
+	}
+
+	/**
+	 * Writer that holds back the last written line until the next line is written,
+	 * which makes it possible to drop the line without buffering written content.
+	 */
+	private static final class LookBehindWriter {
+
+		private final LineWriter output;
+		private @Nullable String previous;
+
+		private LookBehindWriter(LineWriter output) {
+			this.output = output;
+		}
+
+		private void write(String line) throws IOException {
+
+			if (previous != null) {
+				output.writeLine(previous);
+			}
+			previous = line;
+		}
+
+		/**
+		 * Returns the last written line or {@code null} if the line was dropped
+		 * or no lines were written yet.
+		 */
+		private @Nullable String getPrevious() {
+			return previous;
+		}
+
+		private void dropPrevious() {
+			previous = null;
+		}
+
+		private void flush() throws IOException {
+
+			if (previous != null) {
+				output.writeLine(previous);
+			}
+			previous = null;
+		}
+	}
+
+	/**
+	 * Writer that only counts written lines until it is committed. When committed, the counted
+	 * lines are copied from the beginning of the file, so nothing is written for files that are
+	 * never committed without holding lines in memory. This works because lines written before
+	 * the first annotation are the same as lines at the beginning of the file.
+	 */
+	private static final class DeferredLineWriter implements LineWriter {
+
+		private final File file;
+		private final LineWriter output;
+		private int deferredLines;
+		private boolean committed;
+
+		private DeferredLineWriter(File file, LineWriter output) {
+			this.file = file;
+			this.output = output;
+		}
+
+		@Override
+		public void writeLine(String line) throws IOException {
+
+			if (committed) {
+				output.writeLine(line);
+			}
+			else deferredLines += 1;
+		}
+
+		private void commit() throws IOException {
+
+			if (committed) {
+				return;
+			}
+			try (BufferedReader reader = openReader(file))
+			{
+				for (int i = 0; i < deferredLines; i++)
+				{
+					String line = reader.readLine();
+					if (line == null) {
+						throw new IOException("File \"" + file.getName() + "\" changed while annotating");
+					}
+					output.writeLine(line);
+				}
+			}
+			committed = true;
+		}
+	}
+
+	/**
+	 * Channel that is opened when the first bytes are written to it,
+	 * so that no output is created for files that have no content to write.
+	 */
+	private static final class LazyChannel implements WritableByteChannel {
+
+		private final ChannelOpener opener;
+		private @Nullable WritableByteChannel channel;
+		private boolean closed;
+
+		private LazyChannel(ChannelOpener opener) {
+			this.opener = opener;
+		}
+
+		@Override
+		public int write(ByteBuffer src) throws IOException {
+
+			if (closed) {
+				throw new ClosedChannelException();
+			}
+			if (channel == null) {
+				channel = opener.open();
+			}
+			return channel.write(src);
+		}
+
+		/**
+		 * Returns {@code true} if the underlying channel was opened.
+		 */
+		private boolean isOpened() {
+			return channel != null;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return !closed;
+		}
+
+		@Override
+		public void close() throws IOException {
+
+			closed = true;
+			if (channel != null) {
+				channel.close();
+			}
+		}
+	}
+
+	@FunctionalInterface
+	private interface ChannelOpener {
+		WritableByteChannel open() throws IOException;
+	}
+
 	public enum AnnotateResult {
 
 		/** Indicates that annotation process was skipped because target file was empty. */
@@ -256,6 +691,9 @@ public class LuaAnnotator {
 	 *     <li>{@code Set} is mutated in the annotation process so initializing this variable
 	 *     with an Immutable {@code Set} will result in a {@code UnsupportedOperationsException}.
 	 *     </li>
+	 *     <li>{@code Set} is not required to be thread-safe. Parallel annotation only reads it
+	 *     from worker threads and adds claimed tables after all files are annotated, so the
+	 *     {@code Set} must not be modified while parallel annotation is running.</li>
 	 * </ul>
 	 *
 	 * @see #annotate(File, List, AnnotateRules)
@@ -265,6 +703,9 @@ public class LuaAnnotator {
 		private final Properties include;
 		private final Set<String> exclude;
 
+		/** Names of tables claimed in parallel annotation mapped to order of claiming file. */
+		private final ConcurrentMap<String, Integer> claims = new ConcurrentHashMap<>();
+
 		public AnnotateRules(Properties include, Set<String> exclude) {
 			this.include = include;
 			this.exclude = exclude;
@@ -282,5 +723,67 @@ public class LuaAnnotator {
 			this.include = new Properties();
 			this.exclude = new HashSet<>();
 		}
+
+		/**
+		 * Returns {@code true} if table with given name should not be annotated in file with
+		 * given annotation order, either because it is excluded or it was claimed by a file
+		 * that comes before in annotation order.
+		 */
+		private boolean isExcluded(String name, int order) {
+
+			if (exclude.contains(name)) {
+				return true;
+			}
+			Integer claim = claims.get(name);
+			return claim != null && claim < order;
+		}
+	}
+
+	/**
+	 * Handler of annotated file content.
+	 */
+	public interface AnnotateHandler {
+
+		/**
+		 * Open channel to write annotated content of given file to. The channel is opened
+		 * only when there is annotated content to write, and is closed by the annotator.
+		 *
+		 * @param file annotated file.
+		 * @return channel to write annotated content to.
+		 *
+		 * @throws IOException if an I/O exception occurred while opening channel.
+		 */
+		WritableByteChannel open(File file) throws IOException;
+
+		/**
+		 * Returns {@code true} if annotated content should be written only for files that have
+		 * at least one annotated table. Channels are then not opened for other files, and files
+		 * are read twice up to the first annotated table instead.
+		 */
+		boolean isOnlyAnnotated();
+
+		/**
+		 * Handle result of annotating given file. The channel opened for the
+		 * file is closed before this method is called.
+		 *
+		 * @param file annotated file.
+		 * @param result result of annotation process.
+		 * @param written {@code true} if annotated content was written to channel
+		 * 		opened with {@link #open(File)}, or {@code false} if it was never opened.
+		 *
+		 * @throws IOException if an I/O exception occurred while handling result.
+		 */
+		void handle(File file, AnnotateResult result, boolean written) throws IOException;
+
+		/**
+		 * Discard content written for given file when annotating the file failed. This method
+		 * is called instead of {@link #handle(File, AnnotateResult, boolean)} only when
+		 * a channel was opened for the file, and the channel is closed before it is called.
+		 *
+		 * @param file file that failed to be annotated.
+		 *
+		 * @throws IOException if an I/O exception occurred while discarding content.
+		 */
+		void discard(File file) throws IOException;
 	}
 }
@@ -18,13 +18,17 @@
 package io.cocolabs.pz.zdoc.compile;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
 
 import org.apache.commons.collections4.PredicateUtils;
 import org.apache.commons.collections4.set.PredicatedSet;
+import org.apache.commons.lang3.Validate;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.UnmodifiableView;
 
-import com.google.common.base.Splitter;
-
 import io.cocolabs.pz.zdoc.doc.ZomboidJavaDoc;
 import io.cocolabs.pz.zdoc.doc.ZomboidLuaDoc;
 import io.cocolabs.pz.zdoc.element.IClass;
@@ -34,213 +38,256 @@ import io.cocolabs.pz.zdoc.element.java.JavaClass;
 import io.cocolabs.pz.zdoc.element.java.JavaMethod;
 import io.cocolabs.pz.zdoc.element.lua.*;
 import io.cocolabs.pz.zdoc.logger.Logger;
+import io.cocolabs.pz.zdoc.util.ClassResolver;
 
 public class LuaCompiler implements ICompiler<ZomboidLuaDoc> {
 
-	private static final Map<String, LuaClass> GLOBAL_CLASSES = new HashMap<>();
-	private static final Map<String, LuaClass> CACHED_CLASSES = new HashMap<>();
-	private static final Map<String, LuaClass> GLOBAL_TYPES = new HashMap<>();
-	private static final Map<String, LuaType> CACHED_TYPES = new HashMap<>();
+	/** Number of lua documents compiled in parallel when not specified by user. */
+	public static final int DEFAULT_PARALLELISM = 1;
 
 	private final @UnmodifiableView Set<ZomboidJavaDoc> javaDocs;
+	private final LuaTypeRegistry registry;
+	private final int parallelism;
+	private final @Nullable CompileManifest manifest;
 
 	public LuaCompiler(Set<ZomboidJavaDoc> javaDocs) {
-		this.javaDocs = Collections.unmodifiableSet(javaDocs);
+		this(javaDocs, DEFAULT_PARALLELISM);
 	}
 
-	private static LuaType resolveLuaType(IClass iClass) throws CompilerException {
+	/**
+	 * @param javaDocs java documents to compile to lua documents.
+	 * @param parallelism maximum number of lua documents to compile in parallel.
+	 *
+	 * @throws IllegalArgumentException if parallelism is not a positive number.
+	 */
+	public LuaCompiler(Set<ZomboidJavaDoc> javaDocs, int parallelism) {
+		this(javaDocs, new LuaTypeRegistry(), parallelism, null);
+	}
 
-		List<LuaType> otherTypes = new ArrayList<>();
-		for (IClass typeParam : iClass.getTypeParameters())
-		{
-			String typeName = "Unknown";
-			if (typeParam != null)
-			{
-				String paramName = typeParam.getName();
-				LuaType cachedType = CACHED_TYPES.get(paramName);
-				if (cachedType == null)
-				{
-					LuaClass globalClass = GLOBAL_CLASSES.get(paramName);
-					if (globalClass == null)
-					{
-						typeName = resolveClassName(paramName);
-						registerGlobalType(typeParam, typeName);
-					}
-					else typeName = cacheType(typeParam, globalClass.getName()).getName();
-				}
-				else typeName = cachedType.getName();
-			}
-			otherTypes.add(new LuaType(typeName));
-		}
-		String luaType, className = iClass.getName();
-		LuaType cachedType = CACHED_TYPES.get(className);
-		if (cachedType == null)
-		{
-			LuaClass globalClass = GLOBAL_CLASSES.get(className);
-			if (globalClass == null)
-			{
-				luaType = resolveClassName(className);
-				registerGlobalType(iClass, luaType);
-			}
-			else luaType = cacheType(iClass, globalClass.getName()).getName();
-		}
-		else luaType = cachedType.getName();
-		return new LuaType(luaType, otherTypes);
+	/**
+	 * @param javaDocs java documents of classes compiled by {@link JavaCompiler}.
+	 * @param parallelism maximum number of lua documents to compile in parallel.
+	 * @param manifest manifest used by {@code JavaCompiler} to skip compiling unchanged
+	 * 		classes, lua classes and types of reused classes are registered from manifest.
+	 *
+	 * @throws IllegalArgumentException if parallelism is not a positive number.
+	 */
+	public LuaCompiler(Set<ZomboidJavaDoc> javaDocs, int parallelism, @Nullable CompileManifest manifest) {
+		this(javaDocs, new LuaTypeRegistry(), parallelism, manifest);
 	}
 
-	private static LuaType cacheType(IClass clazz, String type) {
+	/**
+	 * Create compiler that registers lua classes and types in given registry,
+	 * allowing multiple compilers to share types they resolve.
+	 */
+	LuaCompiler(Set<ZomboidJavaDoc> javaDocs, LuaTypeRegistry registry) {
+		this(javaDocs, registry, DEFAULT_PARALLELISM, null);
+	}
 
-		LuaType result = new LuaType(type);
-		CACHED_TYPES.put(clazz.getName(), result);
-		Logger.debug("Caching lua type (class: %s, type: %s)", clazz.getName(), type);
-		return result;
+	private LuaCompiler(Set<ZomboidJavaDoc> javaDocs, LuaTypeRegistry registry,
+						int parallelism, @Nullable CompileManifest manifest) {
+
+		Validate.isTrue(parallelism > 0, "Compile parallelism must be positive (%d)", parallelism);
+		this.javaDocs = Collections.unmodifiableSet(javaDocs);
+		this.registry = registry;
+		this.parallelism = parallelism;
+		this.manifest = manifest;
+	}
+
+	/**
+	 * Returns global lua types registered during compilation that
+	 * do not have a dedicated lua class declaration.
+	 */
+	public @UnmodifiableView Set<LuaClass> getGlobalTypes() {
+		return registry.getGlobalTypes();
 	}
 
-	private static void registerGlobalType(IClass clazz, String type) throws CompilerException {
+	@Override
+	public Set<ZomboidLuaDoc> compile() throws CompilerException {
+		return compile(luaDoc -> {});
+	}
 
-		LuaCompiler.cacheType(clazz, type);
-		LuaClass globalTypeLuaClass;
+	/**
+	 * Compile lua documents and pass each document to given consumer as soon as it is
+	 * compiled. Documents are passed in document order on the thread calling this method,
+	 * which allows consumer to process documents while remaining documents are compiled.
+	 *
+	 * @param consumer consumer of compiled documents.
+	 */
+	public Set<ZomboidLuaDoc> compile(Consumer<ZomboidLuaDoc> consumer) throws CompilerException {
 
-		Class<?> typeClass = ((JavaClass) clazz).getClazz();
-		if (typeClass.isArray())
+		Logger.info("Start compiling lua classes...");
+		/*
+		 * lua class names are resolved against classes registered before them
+		 * so all classes are registered up front in document order, type names
+		 * resolved afterwards depend only on registered classes which makes
+		 * output the same no matter in which order documents are compiled
+		 */
+		if (manifest != null) {
+			registerReusedClasses(manifest);
+		}
+		List<LuaClass> luaClasses = new ArrayList<>();
+		for (ZomboidJavaDoc javaDoc : javaDocs) {
+			luaClasses.add(registry.resolveLuaClass(javaDoc.getName()));
+		}
+		List<ZomboidJavaDoc> javaDocList = new ArrayList<>(javaDocs);
+		List<ZomboidLuaDoc> luaDocs = new ArrayList<>();
+		/*
+		 * global types of classes referenced by each document are registered in
+		 * document order once the document is compiled, same as in a serial run
+		 */
+		List<Set<String>> docTypes = new ArrayList<>();
+		for (int i = 0; i < javaDocList.size(); i++) {
+			docTypes.add(new LinkedHashSet<>());
+		}
+		if (parallelism > 1)
 		{
-			typeClass = typeClass.getComponentType();
-			String typeName = typeClass.getTypeName();
-			// don't register if already registered
-			if (isRegisteredGlobal(typeName)) {
-				return;
+			ForkJoinPool compiler = new ForkJoinPool(parallelism);
+			try {
+				List<ForkJoinTask<ZomboidLuaDoc>> tasks = new ArrayList<>();
+				for (int i = 0; i < javaDocList.size(); i++)
+				{
+					ZomboidJavaDoc javaDoc = javaDocList.get(i);
+					LuaClass luaClass = luaClasses.get(i);
+					Set<String> types = docTypes.get(i);
+					tasks.add(compiler.submit(() -> compileLuaDoc(javaDoc, luaClass, types)));
+				}
+				// collect documents in document order
+				for (int i = 0; i < tasks.size(); i++)
+				{
+					ZomboidLuaDoc luaDoc = getCompiledDoc(tasks.get(i), luaClasses.get(i));
+					registry.registerGlobalTypes(docTypes.get(i));
+					consumer.accept(luaDoc);
+					luaDocs.add(luaDoc);
+				}
+			}
+			finally {
+				compiler.shutdownNow();
 			}
-			String className = resolveClassName(typeName).replaceAll("\\[]", "");
-			String typeClassName = typeClass.getCanonicalName().replaceAll("\\[]", "");
-			LuaClass luaClass = new LuaClass(className, typeClassName);
-			type = luaClass.getName();
-			globalTypeLuaClass = luaClass;
 		}
-		else globalTypeLuaClass = new LuaClass(type, typeClass.getCanonicalName());
-		GLOBAL_TYPES.put(type, globalTypeLuaClass);
-		Logger.debug("Registering global lua type (key: %s, value: %s", type, globalTypeLuaClass);
-	}
-
-	private static LuaClass resolveLuaClass(String name) throws CompilerException {
-
-		LuaClass cachedClass = CACHED_CLASSES.get(name);
-		if (cachedClass == null)
+		else for (int i = 0; i < javaDocList.size(); i++)
 		{
-			String parentType = name.replace('$', '.');
-			LuaClass result = new LuaClass(resolveClassName(name), parentType);
-
-			GLOBAL_CLASSES.put(result.getName(), result);
-			Logger.debug("Caching global class (key: %s, value: %s)", result.getName(), result);
-
-			CACHED_CLASSES.put(name, result);
-			Logger.debug("Caching class (key: %s, value: %s)", name, result);
-
-			CACHED_TYPES.put(name, new LuaType(result.getName()));
-			Logger.debug("Caching lua type (class: %s, type: %s)", name, result);
-
-			return result;
+			ZomboidLuaDoc luaDoc = compileLuaDoc(javaDocList.get(i), luaClasses.get(i), docTypes.get(i));
+			registry.registerGlobalTypes(docTypes.get(i));
+			consumer.accept(luaDoc);
+			luaDocs.add(luaDoc);
 		}
-		else return cachedClass;
+		Set<ZomboidLuaDoc> result = PredicatedSet.predicatedSet(
+				new LinkedHashSet<>(), PredicateUtils.notNullPredicate()
+		);
+		result.addAll(luaDocs);
+		Logger.info("Finished compiling %d/%d lua classes", result.size(), javaDocs.size());
+		return result;
 	}
 
-	private static String resolveClassName(String signature) throws CompilerException {
+	/**
+	 * Register lua classes of all classes recorded in manifest in compile order
+	 * together with types referenced by classes that were not compiled in this run.
+	 */
+	private void registerReusedClasses(CompileManifest manifest) throws CompilerException {
 
-		Logger.debug("Resolving class name for signature %s", signature);
-		List<String> packages = Splitter.on('.').splitToList(signature);
-		if (packages.size() > 1)
+		List<String> classNames = manifest.getClasses();
+		for (String className : classNames) {
+			registry.resolveLuaClass(className);
+		}
+		for (String className : classNames)
 		{
-			char[] cName = packages.get(packages.size() - 1).toCharArray();
-			StringBuilder sb = new StringBuilder();
-			for (char c : cName) {
-				sb.append(c == '$' ? '.' : c);
-			}
-			String result = sb.toString();
-			if (isRegisteredGlobal(result))
+			for (String typeName : manifest.getReusedTypes(className))
 			{
-				String globalClass = result;
-				for (int i = packages.size() - 2; i >= 0 && isRegisteredGlobal(result); i--) {
-					result = packages.get(i) + '_' + result;
-				}
-				Logger.debug("Resolved class name as %s to avoid conflict with global class %s", result, globalClass);
-				if (isRegisteredGlobal(result))
+				Class<?> type = ClassResolver.resolve(typeName);
+				if (type != null)
 				{
-					String msg = "Unexpected class name (%s) duplicate detected!";
-					throw new CompilerException(String.format(msg, result));
+					JavaClass javaClass = new JavaClass(type);
+					registry.resolveLuaType(javaClass);
+					registry.registerGlobalTypes(Collections.singleton(javaClass.getName()));
 				}
+				else Logger.warn("Unable to find type %s referenced by class %s", typeName, className);
 			}
-			return result;
 		}
-		// class does not reside in a package
-		else return signature;
 	}
 
-	private static boolean isRegisteredGlobal(String name) {
-		return GLOBAL_CLASSES.containsKey(name);
+	/**
+	 * Wait for given lua document to finish compiling.
+	 *
+	 * @throws CompilerException if the thread was interrupted while waiting for document
+	 * 		to compile or an error occurred while compiling document.
+	 */
+	private static ZomboidLuaDoc getCompiledDoc(ForkJoinTask<ZomboidLuaDoc> task,
+												LuaClass luaClass) throws CompilerException {
+		try {
+			return task.get();
+		}
+		catch (ExecutionException e)
+		{
+			Throwable cause = e.getCause();
+			if (cause instanceof CompilerException) {
+				throw (CompilerException) cause;
+			}
+			throw new CompilerException("Error occurred while compiling lua class " + luaClass.getName(), cause);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new CompilerException("Interrupted while compiling lua class " + luaClass.getName(), e);
+		}
 	}
 
-	public static @UnmodifiableView Set<LuaClass> getGlobalTypes() {
+	private LuaType resolveLuaType(IClass iClass, Set<String> types) throws CompilerException {
 
-		Set<LuaClass> result = new HashSet<>();
-		/*
-		 * filter out types that are already defined as global classes,
-		 * they have their own declaration in dedicated files
-		 */
-		for (Map.Entry<String, LuaClass> entry : GLOBAL_TYPES.entrySet())
+		// add names in the order in which registry resolves them
+		for (IClass typeParam : iClass.getTypeParameters())
 		{
-			if (!GLOBAL_CLASSES.containsKey(entry.getKey())) {
-				result.add(entry.getValue());
+			if (typeParam != null) {
+				types.add(typeParam.getName());
 			}
 		}
-		/* represents ? parameter type
-		 * since EmmyLua does not have a good format for notating parameterized types
-		 * this is the best way we can note an unknown parameter type
-		 */
-		result.add(new LuaClass("Unknown"));
-		return Collections.unmodifiableSet(result);
+		types.add(iClass.getName());
+		return registry.resolveLuaType(iClass);
 	}
 
-	@Override
-	public Set<ZomboidLuaDoc> compile() throws CompilerException {
+	/**
+	 * Compile lua document for given java document.
+	 *
+	 * @param types set to add names of java types referenced by document to,
+	 * 		in the order in which they were resolved.
+	 */
+	private ZomboidLuaDoc compileLuaDoc(ZomboidJavaDoc javaDoc, LuaClass luaClass,
+										Set<String> types) throws CompilerException {
 
-		Logger.info("Start compiling lua classes...");
-		Set<ZomboidLuaDoc> result = PredicatedSet.predicatedSet(
-				new HashSet<>(), PredicateUtils.notNullPredicate()
-		);
-		for (ZomboidJavaDoc javaDoc : javaDocs)
-		{
-			LuaClass luaClass = resolveLuaClass(javaDoc.getName());
-			Logger.debug("Compiling lua class %s...", luaClass.getName());
+		Logger.debug("Compiling lua class %s...", luaClass.getName());
 
-			List<LuaField> luaFields = new ArrayList<>();
-			for (IField field : javaDoc.getFields())
-			{
-				LuaType fieldType = resolveLuaType(field.getType());
-				luaFields.add(new LuaField(fieldType, field.getName(), field.getModifier(), field.getComment()));
-				Logger.debug("Compiled field %s", field.getName());
-			}
-			Set<LuaMethod> luaMethods = new HashSet<>();
-			for (JavaMethod method : javaDoc.getMethods())
+		List<LuaField> luaFields = new ArrayList<>();
+		for (IField field : javaDoc.getFields())
+		{
+			LuaType fieldType = resolveLuaType(field.getType(), types);
+			luaFields.add(new LuaField(fieldType, field.getName(), field.getModifier(), field.getComment()));
+			Logger.debug("Compiled field %s", field.getName());
+		}
+		Set<LuaMethod> luaMethods = new HashSet<>();
+		for (JavaMethod method : javaDoc.getMethods())
+		{
+			List<LuaParameter> parameters = new ArrayList<>();
+			for (IParameter param : method.getParams())
 			{
-				List<LuaParameter> parameters = new ArrayList<>();
-				for (IParameter param : method.getParams())
-				{
-					LuaType paramClass = resolveLuaType(param.getType());
-					parameters.add(new LuaParameter(paramClass, param.getName(), param.getComment()));
-				}
-				JavaMethod.ReturnType returnType = method.getReturnType();
-				luaMethods.add(LuaMethod.Builder.create(method.getName())
-						.withOwner(luaClass).withModifier(method.getModifier())
-						.withReturnType(resolveLuaType(returnType), returnType.getComment())
-						.withParams(parameters).withVarArg(method.hasVarArg())
-						.withComment(method.getComment()).build());
-
-				Logger.debug("Compiled method %s", method.getName());
+				LuaType paramClass = resolveLuaType(param.getType(), types);
+				parameters.add(new LuaParameter(paramClass, param.getName(), param.getComment()));
 			}
-			result.add(new ZomboidLuaDoc(luaClass, luaFields, luaMethods));
-			Logger.detail("Compiled lua class %s with %d fields and %d methods",
-					luaClass.getName(), luaFields.size(), luaMethods.size());
+			JavaMethod.ReturnType returnType = method.getReturnType();
+			luaMethods.add(LuaMethod.Builder.create(method.getName())
+					.withOwner(luaClass).withModifier(method.getModifier())
+					.withReturnType(resolveLuaType(returnType, types), returnType.getComment())
+					.withParams(parameters).withVarArg(method.hasVarArg())
+					.withComment(method.getComment()).build());
+
+			Logger.debug("Compiled method %s", method.getName());
 		}
-		Logger.info("Finished compiling %d/%d lua classes", result.size(), javaDocs.size());
+		// method overloads are resolved when constructing lua document
+		ZomboidLuaDoc result = new ZomboidLuaDoc(luaClass, luaFields, luaMethods);
+		if (manifest != null) {
+			manifest.updateLuaDoc(javaDoc.getName(), result.getName(), new TreeSet<>(types));
+		}
+		Logger.detail("Compiled lua class %s with %d fields and %d methods",
+				luaClass.getName(), luaFields.size(), luaMethods.size());
 		return result;
 	}
 }
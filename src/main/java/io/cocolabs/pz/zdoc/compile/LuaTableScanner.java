@@ -0,0 +1,230 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.compile;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * <p>This class represents a scanner that recognizes lines containing lua table declaration.</p>
+ * <p>Lines are matched the same way as with {@link LuaAnnotator#LUA_TABLE_DECLARATION} pattern,
+ * but the line is scanned in a single pass without backtracking or allocating objects and
+ * the result is available as offsets into the scanned line instead of {@code Matcher} groups.
+ * Substrings are created only when requested with one of the convenience getters.</p>
+ * <p>Scanner instances are reusable but not thread-safe.</p>
+ * <p>Example:
+ * <pre>
+ * LuaTableScanner scanner = new LuaTableScanner();
+ * assert scanner.scan("NewTestTable = ISTestTable:new(\"TestTable\")");
+ * assert scanner.getName().equals("NewTestTable");
+ * assert scanner.getParentName().equals("ISTestTable") {@code &&} !scanner.isDerived();
+ * assert scanner.scan("DeclaredTestTable = {}") {@code &&} scanner.getParentName() == null;
+ * </pre>
+ * </p>
+ */
+final class LuaTableScanner {
+
+	/** Offset value used when a part of declaration was not found. */
+	static final int NONE = -1;
+
+	private static final String NEW = "new(", DERIVE = "derive(";
+
+	private CharSequence line = "";
+	private int nameStart = NONE, nameEnd = NONE;
+	private int parentStart = NONE, parentEnd = NONE;
+	private boolean derived;
+
+	/**
+	 * Scan given line for lua table declaration.
+	 *
+	 * @param line line to scan, the scanner holds a reference to the line
+	 * 		until the next line is scanned.
+	 * @return {@code true} if the line contains a table declaration.
+	 */
+	boolean scan(CharSequence line) {
+
+		this.line = line;
+		nameStart = nameEnd = parentStart = parentEnd = NONE;
+		derived = false;
+
+		int length = line.length();
+		int index = skipWhitespace(line, 0);
+
+		// table name
+		int start = index;
+		while (index < length && isWordChar(line.charAt(index))) {
+			index++;
+		}
+		if (index == start) {
+			return false;
+		}
+		int end = index;
+		index = skipWhitespace(line, index);
+		if (index == length || line.charAt(index) != '=') {
+			return false;
+		}
+		index += 1;
+
+		// parent table declared with new or derive
+		int tokenStart = skipWhitespace(line, index), tokenEnd = tokenStart;
+		while (tokenEnd < length && !isWhitespace(line.charAt(tokenEnd))) {
+			tokenEnd++;
+		}
+		// the last method call in token is matched first
+		for (int i = tokenEnd - 1; i > tokenStart; i--)
+		{
+			if (line.charAt(i) == ':')
+			{
+				int callEnd = matchCall(line, i + 1);
+				if (callEnd != NONE && isLastLine(line, callEnd))
+				{
+					parentStart = tokenStart;
+					parentEnd = i;
+					derived = line.charAt(i + 1) == 'd';
+					break;
+				}
+			}
+		}
+		if (parentStart == NONE)
+		{
+			// any other expression, the expression may span multiple lines
+			// only when all but the last line break are whitespace characters
+			int lineEnd = index;
+			while (lineEnd < length && !isLineTerminator(line.charAt(lineEnd))) {
+				lineEnd++;
+			}
+			if (lineEnd < length && !isLastLine(line, skipWhitespace(line, lineEnd))) {
+				return false;
+			}
+		}
+		nameStart = start;
+		nameEnd = end;
+		return true;
+	}
+
+	/**
+	 * Returns the end offset of {@code new(} or {@code derive(} call at given offset.
+	 *
+	 * @return end offset or {@link #NONE} if there is no call at given offset.
+	 */
+	private static int matchCall(CharSequence line, int index) {
+
+		if (regionMatches(line, index, NEW)) {
+			return index + NEW.length();
+		}
+		else if (regionMatches(line, index, DERIVE)) {
+			return index + DERIVE.length();
+		}
+		return NONE;
+	}
+
+	private static boolean regionMatches(CharSequence line, int index, String text) {
+
+		if (index + text.length() > line.length()) {
+			return false;
+		}
+		for (int i = 0; i < text.length(); i++)
+		{
+			if (line.charAt(index + i) != text.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns {@code true} if there are no line terminators after given offset
+	 * other than a single line terminator at the end of line.
+	 */
+	private static boolean isLastLine(CharSequence line, int index) {
+
+		int length = line.length();
+		while (index < length && !isLineTerminator(line.charAt(index))) {
+			index++;
+		}
+		if (index >= length - 1)
+		{
+			// carriage return followed by line feed is a single line terminator
+			return index == length || line.charAt(index) != '\n'
+					|| index == 0 || line.charAt(index - 1) != '\r';
+		}
+		return index == length - 2 && line.charAt(index) == '\r' && line.charAt(index + 1) == '\n';
+	}
+
+	private static int skipWhitespace(CharSequence line, int index) {
+
+		while (index < line.length() && isWhitespace(line.charAt(index))) {
+			index++;
+		}
+		return index;
+	}
+
+	/** Returns {@code true} if given character matches {@code \s} regex character class. */
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
+	/** Returns {@code true} if given character matches {@code \w} regex character class. */
+	private static boolean isWordChar(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+	}
+
+	/** Returns {@code true} if given character is not matched by {@code .} regex character. */
+	private static boolean isLineTerminator(char c) {
+		return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+	}
+
+	/** Returns offset of the first character of table name, which is also the end of indentation. */
+	int getNameStart() {
+		return nameStart;
+	}
+
+	/** Returns offset after the last character of table name. */
+	int getNameEnd() {
+		return nameEnd;
+	}
+
+	/** Returns offset of the first character of parent table name or {@link #NONE}. */
+	int getParentStart() {
+		return parentStart;
+	}
+
+	/** Returns offset after the last character of parent table name or {@link #NONE}. */
+	int getParentEnd() {
+		return parentEnd;
+	}
+
+	/** Returns {@code true} if the table was declared with {@code derive} instead of {@code new}. */
+	boolean isDerived() {
+		return derived;
+	}
+
+	/** Returns indentation of the last matched declaration. */
+	String getIndentation() {
+		return line.subSequence(0, nameStart).toString();
+	}
+
+	/** Returns name of the last matched table. */
+	String getName() {
+		return line.subSequence(nameStart, nameEnd).toString();
+	}
+
+	/** Returns parent name of the last matched table or {@code null} if not declared with parent. */
+	@Nullable String getParentName() {
+		return parentStart != NONE ? line.subSequence(parentStart, parentEnd).toString() : null;
+	}
+}
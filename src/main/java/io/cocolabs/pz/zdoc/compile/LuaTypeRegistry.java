@@ -0,0 +1,243 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.compile;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jetbrains.annotations.UnmodifiableView;
+
+import com.google.common.base.Splitter;
+
+import io.cocolabs.pz.zdoc.element.IClass;
+import io.cocolabs.pz.zdoc.element.java.JavaClass;
+import io.cocolabs.pz.zdoc.element.lua.LuaClass;
+import io.cocolabs.pz.zdoc.element.lua.LuaType;
+import io.cocolabs.pz.zdoc.logger.Logger;
+
+/**
+ * <p>This class keeps track of lua classes and types registered during a single compilation.</p>
+ * <p>Registry is safe to use from multiple threads. Lookups of already registered classes and
+ * types do not block, while new registrations are serialized so that resolving class names
+ * and checking them for conflicts with global classes happens atomically.</p>
+ * <p>Global types of resolved classes are not registered until {@link #registerGlobalTypes}
+ * is called. Different classes can resolve to the same global type name, and the type
+ * registered last is the one that is kept, so registering them in a fixed order keeps
+ * global types independent of the order in which classes were resolved.</p>
+ */
+final class LuaTypeRegistry {
+
+	private final Map<String, LuaClass> globalClasses = new ConcurrentHashMap<>();
+	private final Map<String, LuaClass> cachedClasses = new ConcurrentHashMap<>();
+	private final Map<String, LuaClass> globalTypes = new ConcurrentHashMap<>();
+	private final Map<String, LuaType> cachedTypes = new ConcurrentHashMap<>();
+
+	/** global types of resolved classes that are waiting to be registered */
+	private final Map<String, LuaClass> resolvedGlobalTypes = new ConcurrentHashMap<>();
+	private final Set<String> registeredGlobalTypes = new HashSet<>();
+
+	/**
+	 * Resolve lua type for given class and register all unknown types it references.
+	 */
+	LuaType resolveLuaType(IClass iClass) throws CompilerException {
+
+		List<LuaType> otherTypes = new ArrayList<>();
+		for (IClass typeParam : iClass.getTypeParameters())
+		{
+			String typeName = "Unknown";
+			if (typeParam != null) {
+				typeName = resolveTypeName(typeParam);
+			}
+			otherTypes.add(new LuaType(typeName));
+		}
+		return new LuaType(resolveTypeName(iClass), otherTypes);
+	}
+
+	private String resolveTypeName(IClass iClass) throws CompilerException {
+
+		LuaType cachedType = cachedTypes.get(iClass.getName());
+		if (cachedType != null) {
+			return cachedType.getName();
+		}
+		synchronized (this)
+		{
+			// type could have been registered while we were waiting
+			String className = iClass.getName();
+			cachedType = cachedTypes.get(className);
+			if (cachedType == null)
+			{
+				LuaClass globalClass = globalClasses.get(className);
+				if (globalClass == null)
+				{
+					String luaType = resolveClassName(className);
+					resolveGlobalType(iClass, luaType);
+					return luaType;
+				}
+				else return cacheType(iClass, globalClass.getName()).getName();
+			}
+			else return cachedType.getName();
+		}
+	}
+
+	private LuaType cacheType(IClass clazz, String type) {
+
+		LuaType result = new LuaType(type);
+		cachedTypes.put(clazz.getName(), result);
+		Logger.debug("Caching lua type (class: %s, type: %s)", clazz.getName(), type);
+		return result;
+	}
+
+	private void resolveGlobalType(IClass clazz, String type) throws CompilerException {
+
+		cacheType(clazz, type);
+		LuaClass globalTypeLuaClass;
+
+		Class<?> typeClass = ((JavaClass) clazz).getClazz();
+		if (typeClass.isArray())
+		{
+			typeClass = typeClass.getComponentType();
+			String typeName = typeClass.getTypeName();
+			// don't register if already registered
+			if (isRegisteredGlobal(typeName)) {
+				return;
+			}
+			String className = resolveClassName(typeName).replaceAll("\\[]", "");
+			String typeClassName = typeClass.getCanonicalName().replaceAll("\\[]", "");
+			LuaClass luaClass = new LuaClass(className, typeClassName);
+			type = luaClass.getName();
+			globalTypeLuaClass = luaClass;
+		}
+		else globalTypeLuaClass = new LuaClass(type, typeClass.getCanonicalName());
+		resolvedGlobalTypes.put(clazz.getName(), globalTypeLuaClass);
+	}
+
+	/**
+	 * Register global types of classes with given names in given order. Global type of each
+	 * class is registered only the first time the class is passed to this method, and it
+	 * replaces global type of another class that was registered under the same name.
+	 *
+	 * @param classNames names of classes resolved with {@link #resolveLuaType(IClass)}.
+	 */
+	synchronized void registerGlobalTypes(Iterable<String> classNames) {
+
+		for (String className : classNames)
+		{
+			LuaClass globalType = resolvedGlobalTypes.get(className);
+			if (globalType != null && registeredGlobalTypes.add(className))
+			{
+				globalTypes.put(globalType.getName(), globalType);
+				Logger.debug("Registering global lua type (key: %s, value: %s", globalType.getName(), globalType);
+			}
+		}
+	}
+
+	/**
+	 * Resolve lua class for java class with given name and register it as global class.
+	 */
+	LuaClass resolveLuaClass(String name) throws CompilerException {
+
+		LuaClass cachedClass = cachedClasses.get(name);
+		if (cachedClass != null) {
+			return cachedClass;
+		}
+		synchronized (this)
+		{
+			cachedClass = cachedClasses.get(name);
+			if (cachedClass == null)
+			{
+				String parentType = name.replace('$', '.');
+				LuaClass result = new LuaClass(resolveClassName(name), parentType);
+
+				globalClasses.put(result.getName(), result);
+				Logger.debug("Caching global class (key: %s, value: %s)", result.getName(), result);
+
+				cachedClasses.put(name, result);
+				Logger.debug("Caching class (key: %s, value: %s)", name, result);
+
+				cachedTypes.put(name, new LuaType(result.getName()));
+				Logger.debug("Caching lua type (class: %s, type: %s)", name, result);
+
+				return result;
+			}
+			else return cachedClass;
+		}
+	}
+
+	/**
+	 * Resolve lua class name for given class signature. Names are resolved against
+	 * global classes registered so far so callers have to hold registry lock.
+	 */
+	private String resolveClassName(String signature) throws CompilerException {
+
+		Logger.debug("Resolving class name for signature %s", signature);
+		List<String> packages = Splitter.on('.').splitToList(signature);
+		if (packages.size() > 1)
+		{
+			char[] cName = packages.get(packages.size() - 1).toCharArray();
+			StringBuilder sb = new StringBuilder();
+			for (char c : cName) {
+				sb.append(c == '$' ? '.' : c);
+			}
+			String result = sb.toString();
+			if (isRegisteredGlobal(result))
+			{
+				String globalClass = result;
+				for (int i = packages.size() - 2; i >= 0 && isRegisteredGlobal(result); i--) {
+					result = packages.get(i) + '_' + result;
+				}
+				Logger.debug("Resolved class name as %s to avoid conflict with global class %s", result, globalClass);
+				if (isRegisteredGlobal(result))
+				{
+					String msg = "Unexpected class name (%s) duplicate detected!";
+					throw new CompilerException(String.format(msg, result));
+				}
+			}
+			return result;
+		}
+		// class does not reside in a package
+		else return signature;
+	}
+
+	private boolean isRegisteredGlobal(String name) {
+		return globalClasses.containsKey(name);
+	}
+
+	/**
+	 * Returns global types that do not have a dedicated global class declaration.
+	 */
+	@UnmodifiableView Set<LuaClass> getGlobalTypes() {
+
+		Set<LuaClass> result = new HashSet<>();
+		/*
+		 * filter out types that are already defined as global classes,
+		 * they have their own declaration in dedicated files
+		 */
+		for (Map.Entry<String, LuaClass> entry : globalTypes.entrySet())
+		{
+			if (!globalClasses.containsKey(entry.getKey())) {
+				result.add(entry.getValue());
+			}
+		}
+		/* represents ? parameter type
+		 * since EmmyLua does not have a good format for notating parameterized types
+		 * this is the best way we can note an unknown parameter type
+		 */
+		result.add(new LuaClass("Unknown"));
+		return Collections.unmodifiableSet(result);
+	}
+}
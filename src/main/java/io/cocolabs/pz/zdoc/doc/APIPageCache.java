@@ -0,0 +1,342 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.doc;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.jetbrains.annotations.Nullable;
+
+import com.google.common.base.Strings;
+import com.google.common.hash.Hashing;
+
+import io.cocolabs.pz.zdoc.logger.Logger;
+
+/**
+ * <p>This class represents a persistent disk cache for modding API pages.</p>
+ * <p>Cache entries are addressed by hash of the resolved API page {@code URL} and each entry
+ * is stored in a dedicated file. Pages that were not found are recorded as negative entries
+ * so that they do not need to be requested again. Each entry records when it was last
+ * validated with API host so that stale entries can be revalidated. When the total size
+ * of stored entries exceeds maximum cache size the least recently used entries are evicted.</p>
+ */
+public class APIPageCache {
+
+	/** Maximum cache size in bytes used when not specified by user. */
+	public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+	private static final String ENTRY_EXTENSION = ".page";
+	private static final String TEMP_PREFIX = "entry", TEMP_EXTENSION = ".tmp";
+	private static final String STATUS_FOUND = "200", STATUS_MISSING = "404";
+
+	private final Path dir;
+	private final long maxSize;
+
+	/** Entry file names mapped to entry sizes in access order. */
+	private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long size = 0;
+
+	public APIPageCache(Path dir, long maxSize) throws IOException {
+
+		Validate.isTrue(maxSize > 0, "Maximum cache size must be positive (%d)", maxSize);
+		this.dir = Files.createDirectories(dir);
+		this.maxSize = maxSize;
+
+		List<Path> files = new ArrayList<>();
+		try (Stream<Path> stream = Files.list(dir))
+		{
+			for (Path file : (Iterable<Path>) stream::iterator)
+			{
+				String fileName = file.getFileName().toString();
+				if (fileName.endsWith(ENTRY_EXTENSION)) {
+					files.add(file);
+				}
+				// temporary files left behind by interrupted writes
+				else if (fileName.startsWith(TEMP_PREFIX) && fileName.endsWith(TEMP_EXTENSION))
+				{
+					Files.deleteIfExists(file);
+					Logger.debug("Deleted stale API cache file %s", fileName);
+				}
+			}
+		}
+		// restore access order from file modification time
+		Map<Path, FileTime> accessTimes = new HashMap<>();
+		for (Path file : files) {
+			accessTimes.put(file, Files.getLastModifiedTime(file));
+		}
+		files.sort(Comparator.comparing(accessTimes::get));
+		for (Path file : files)
+		{
+			long fileSize = Files.size(file);
+			entries.put(file.getFileName().toString(), fileSize);
+			size += fileSize;
+		}
+		Logger.debug("Loaded %d API cache entries (%d bytes) from %s", entries.size(), size, dir);
+	}
+
+	private static String getEntryName(URL url) {
+		return Hashing.sha256().hashString(url.toString(), StandardCharsets.UTF_8) + ENTRY_EXTENSION;
+	}
+
+	/**
+	 * Returns cache entry for given API page {@code URL}.
+	 *
+	 * @param url resolved modding API page {@code URL}.
+	 * @return cached entry or {@code null} if no entry was found for given {@code URL}.
+	 *
+	 * @throws IOException if an I/O error occurred while reading cache entry.
+	 */
+	public @Nullable Entry get(URL url) throws IOException {
+
+		String name = getEntryName(url);
+		synchronized (this)
+		{
+			// mark the entry as most recently used
+			if (entries.get(name) == null) {
+				return null;
+			}
+		}
+		Path file = dir.resolve(name);
+		byte[] content;
+		try {
+			content = Files.readAllBytes(file);
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+		}
+		catch (NoSuchFileException e) {
+			// entry was evicted while being read
+			return null;
+		}
+		Entry entry = Entry.read(content);
+		if (entry == null || !entry.url.equals(url.toString()))
+		{
+			Logger.warn("Discarding malformed API cache entry %s", name);
+			return null;
+		}
+		return entry;
+	}
+
+	/**
+	 * Store API page content in cache together with validators
+	 * that can be used to revalidate the entry with API host.
+	 *
+	 * @param url resolved modding API page {@code URL}.
+	 * @param content raw {@code HTML} content of API page.
+	 * @param eTag value of {@code ETag} response header.
+	 * @param lastModified value of {@code Last-Modified} response header.
+	 *
+	 * @throws IOException if an I/O error occurred while writing cache entry.
+	 */
+	public void put(URL url, byte[] content, @Nullable String eTag,
+					@Nullable String lastModified) throws IOException {
+		write(new Entry(url.toString(), STATUS_FOUND, eTag, lastModified, System.currentTimeMillis(), content));
+	}
+
+	/**
+	 * Record API page as missing in cache.
+	 *
+	 * @param url resolved modding API page {@code URL}.
+	 *
+	 * @throws IOException if an I/O error occurred while writing cache entry.
+	 */
+	public void putMissing(URL url) throws IOException {
+		write(new Entry(url.toString(), STATUS_MISSING, null, null, System.currentTimeMillis(), new byte[0]));
+	}
+
+	/**
+	 * Record that given cache entry was confirmed to be up to date by API host.
+	 *
+	 * @param url resolved modding API page {@code URL} of the entry.
+	 * @param entry entry that was validated.
+	 *
+	 * @throws IOException if an I/O error occurred while writing cache entry.
+	 */
+	public void markValidated(URL url, Entry entry) throws IOException {
+
+		Validate.isTrue(entry.url.equals(url.toString()), "Cache entry does not belong to %s", url);
+		write(new Entry(entry.url, entry.status, entry.eTag,
+				entry.lastModified, System.currentTimeMillis(), entry.content));
+	}
+
+	private void write(Entry entry) throws IOException {
+
+		String name = getEntryName(new URL(entry.url));
+		byte[] bytes = entry.toBytes();
+
+		// write to temporary file first so that readers never see partial entries
+		Path tempFile = Files.createTempFile(dir, TEMP_PREFIX, TEMP_EXTENSION);
+		try {
+			Files.write(tempFile, bytes);
+			/*
+			 * entry file is moved in place and evicted files are deleted while holding the lock,
+			 * otherwise a file of an evicted entry written again by another thread could be
+			 * deleted after it was added back to cache index
+			 */
+			synchronized (this)
+			{
+				Files.move(tempFile, dir.resolve(name),
+						StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+				Long oldSize = entries.put(name, (long) bytes.length);
+				size += bytes.length - (oldSize != null ? oldSize : 0);
+				for (String evictedName : evict(name))
+				{
+					Files.deleteIfExists(dir.resolve(evictedName));
+					Logger.debug("Evicted API cache entry %s", evictedName);
+				}
+			}
+		}
+		finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	/**
+	 * Remove least recently used entries from cache index until cache size
+	 * does not exceed maximum size. Files of removed entries are not deleted.
+	 *
+	 * @param retain name of the entry that should not be evicted.
+	 * @return names of entries that were removed from cache index.
+	 */
+	private List<String> evict(String retain) {
+
+		List<String> evicted = new ArrayList<>();
+		Iterator<Map.Entry<String, Long>> iter = entries.entrySet().iterator();
+		while (size > maxSize && iter.hasNext())
+		{
+			Map.Entry<String, Long> eldest = iter.next();
+			if (!eldest.getKey().equals(retain))
+			{
+				evicted.add(eldest.getKey());
+				size -= eldest.getValue();
+				iter.remove();
+			}
+		}
+		return evicted;
+	}
+
+	/**
+	 * Returns total size of all cache entries in bytes.
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	/**
+	 * This class represents a single cache entry. Entries are stored as a header with
+	 * page {@code URL}, status code, validators and validation time, followed by raw page content.
+	 */
+	public static class Entry {
+
+		private final String url, status;
+		private final @Nullable String eTag, lastModified;
+		private final long validated;
+		private final byte[] content;
+
+		private Entry(String url, String status, @Nullable String eTag,
+					  @Nullable String lastModified, long validated, byte[] content) {
+
+			this.url = url;
+			this.status = status;
+			this.eTag = eTag;
+			this.lastModified = lastModified;
+			this.validated = validated;
+			this.content = content;
+		}
+
+		/**
+		 * Read cache entry from stored bytes.
+		 *
+		 * @return {@code Entry} or {@code null} if stored entry is malformed.
+		 */
+		private static @Nullable Entry read(byte[] bytes) {
+
+			String[] header = new String[5];
+			int index = 0;
+			for (int i = 0; i < header.length; i++)
+			{
+				int lineEnd = index;
+				while (lineEnd < bytes.length && bytes[lineEnd] != '\n') {
+					lineEnd++;
+				}
+				if (lineEnd == bytes.length) {
+					return null;
+				}
+				header[i] = new String(bytes, index, lineEnd - index, StandardCharsets.UTF_8);
+				index = lineEnd + 1;
+			}
+			// header without a numeric validation time is malformed
+			if (!NumberUtils.isDigits(header[4])) {
+				return null;
+			}
+			return new Entry(header[0], header[1], Strings.emptyToNull(header[2]), Strings.emptyToNull(header[3]),
+					NumberUtils.toLong(header[4]), Arrays.copyOfRange(bytes, index, bytes.length));
+		}
+
+		private byte[] toBytes() {
+
+			byte[] header = String.join("\n", url, status, Strings.nullToEmpty(eTag),
+					Strings.nullToEmpty(lastModified), Long.toString(validated), "").getBytes(StandardCharsets.UTF_8);
+			byte[] result = Arrays.copyOf(header, header.length + content.length);
+			System.arraycopy(content, 0, result, header.length, content.length);
+			return result;
+		}
+
+		/**
+		 * Returns {@code true} if this entry represents a page that was not found.
+		 */
+		public boolean isMissing() {
+			return status.equals(STATUS_MISSING);
+		}
+
+		/**
+		 * Returns {@code true} if this entry was last validated with API host
+		 * longer than given number of milliseconds ago.
+		 */
+		public boolean isStale(long maxAge) {
+			return System.currentTimeMillis() - validated >= maxAge;
+		}
+
+		/**
+		 * Returns value of {@code ETag} header the page was served with.
+		 */
+		public @Nullable String getETag() {
+			return eTag;
+		}
+
+		/**
+		 * Returns value of {@code Last-Modified} header the page was served with.
+		 */
+		public @Nullable String getLastModified() {
+			return lastModified;
+		}
+
+		/**
+		 * Returns raw {@code HTML} content of cached page.
+		 */
+		public byte[] getContent() {
+			return content;
+		}
+	}
+}
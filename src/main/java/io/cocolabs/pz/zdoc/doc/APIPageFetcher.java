@@ -0,0 +1,466 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.doc;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.jetbrains.annotations.Nullable;
+import org.jsoup.HttpStatusException;
+import org.jsoup.helper.HttpConnection;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.cocolabs.pz.zdoc.logger.Logger;
+
+/**
+ * This class fetches modding API pages concurrently on a bounded pool of worker threads.
+ * When configured with {@link APIPageCache} pages are served from cache before the API
+ * host is contacted, and downloaded pages are stored in cache for future use. In
+ * revalidation mode cached pages that were not validated within maximum age are
+ * revalidated with conditional requests and only downloaded again if they were
+ * modified since they were cached. When configured with {@link LocalAPISource}
+ * pages are read only from local source instead. Requests sent to API host are
+ * governed by {@link FetchPolicy}.
+ */
+public class APIPageFetcher implements Closeable {
+
+	/** Number of worker threads used when not specified by user. */
+	public static final int DEFAULT_THREADS = 4;
+
+	/** Time in milliseconds cached pages are considered fresh when not specified by user. */
+	public static final long DEFAULT_MAX_AGE = TimeUnit.HOURS.toMillis(24);
+
+	private final URL apiHost;
+	private final int threads;
+	private final @Nullable APIPageCache cache;
+	private final @Nullable LocalAPISource source;
+	private final boolean revalidate;
+	private final long maxAge;
+	private final FetchPolicy policy;
+	private final ExecutorService executor;
+
+	/** Limits number of requests sent to API host that can be in flight at the same time. */
+	private final Semaphore requestPermits;
+
+	/** Request rate limiters mapped to hosts they limit requests for. */
+	private final Map<String, RateLimiter> rateLimiters = new ConcurrentHashMap<>();
+
+	private final AtomicInteger cacheHits = new AtomicInteger();
+	private final AtomicInteger revalidations = new AtomicInteger();
+	private final AtomicInteger downloads = new AtomicInteger();
+
+	private APIPageFetcher(Builder builder) {
+
+		this.apiHost = builder.apiHost;
+		this.threads = builder.threads;
+		this.cache = builder.cache;
+		this.source = builder.source;
+		this.revalidate = builder.revalidate;
+		this.maxAge = builder.maxAge;
+		this.policy = builder.policy;
+		this.requestPermits = new Semaphore(policy.getMaxRequests());
+		this.executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+				.setNameFormat("api-fetch-%d").setDaemon(true).build());
+	}
+
+	/**
+	 * Schedule raw content of API page for given path to be fetched by one of the worker
+	 * threads. The fetched content is not parsed.
+	 *
+	 * @param path path to API page <i>(does not need to have an extension)</i>.
+	 * @return {@code CompletableFuture} representing pending result of fetching the API page
+	 * 		content, which can be used to chain further processing stages of fetched content.
+	 * 		The page is not fetched if the future is cancelled before a worker thread picks it up.
+	 *
+	 * @see #getPageContent(Path)
+	 */
+	public CompletableFuture<byte[]> fetchContent(Path path) {
+
+		CompletableFuture<byte[]> result = new CompletableFuture<>();
+		executor.execute(() -> {
+			if (result.isDone()) {
+				return;
+			}
+			try {
+				result.complete(getPageContent(path));
+			}
+			catch (IOException | RuntimeException e) {
+				result.completeExceptionally(e);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Get Project Zomboid API page for given path from local source, cache or API host.
+	 *
+	 * @param path path to API page <i>(does not need to have an extension)</i>.
+	 * @return new {@code ZomboidDoc} instance wrapping a parsed {@code HTML} document
+	 * 		representing API page for given path, or {@code null} if the API host
+	 * 		returned status code {@code 404} (page not found) or the page does not
+	 * 		exist in local source.
+	 *
+	 * @throws IOException if an I/O error occurred while fetching the API page.
+	 * @see #getPageContent(Path)
+	 */
+	@Nullable ZomboidAPIDoc getPage(Path path) throws IOException {
+
+		byte[] content = getPageContent(path);
+		return content != null ? ZomboidAPIDoc.parsePage(new ByteArrayInputStream(content), path) : null;
+	}
+
+	/**
+	 * Get raw content of Project Zomboid API page for given path from local source, cache
+	 * or API host. Pages that were not found are recorded in cache as missing pages, and
+	 * stale pages are revalidated with conditional requests when revalidation mode is
+	 * enabled. When revalidation fails the cached page is used instead.
+	 *
+	 * @param path path to API page <i>(does not need to have an extension)</i>.
+	 * @return raw {@code HTML} content of API page for given path, or {@code null} if
+	 * 		the API host returned status code {@code 404} (page not found) or the page
+	 * 		does not exist in local source.
+	 *
+	 * @throws IOException if an I/O error occurred while fetching the API page.
+	 */
+	@Nullable byte[] getPageContent(Path path) throws IOException {
+
+		if (source != null) {
+			return source.getPageContent(path);
+		}
+		String sPath = path.toString().replace('\\', '/');
+		URL pageURL = ZomboidAPIDoc.resolveURL(sPath);
+
+		APIPageCache.Entry entry = null;
+		if (cache != null)
+		{
+			entry = cache.get(pageURL);
+			if (entry != null && (!revalidate || !entry.isStale(maxAge)))
+			{
+				cacheHits.incrementAndGet();
+				return getCachedContent(entry);
+			}
+		}
+		URL hostURL = ZomboidAPIDoc.resolveURL(apiHost, sPath);
+		Response response;
+		try {
+			response = execute(hostURL, entry);
+		}
+		catch (IOException e)
+		{
+			if (entry == null || e instanceof InterruptedIOException) {
+				throw e;
+			}
+			Logger.warn("Unable to revalidate cached API page %s (%s), using cached page", pageURL, e.toString());
+			cacheHits.incrementAndGet();
+			return getCachedContent(entry);
+		}
+		int status = response.status;
+		if (entry != null)
+		{
+			// page recorded as missing is still missing
+			if (status == 304 || (status == 404 && entry.isMissing()))
+			{
+				revalidations.incrementAndGet();
+				Objects.requireNonNull(cache).markValidated(pageURL, entry);
+				return getCachedContent(entry);
+			}
+			else if (status != 404 && (status < 200 || status >= 300))
+			{
+				Logger.warn("Unable to revalidate cached API page %s (status %d), using cached page",
+						pageURL, status);
+				cacheHits.incrementAndGet();
+				return getCachedContent(entry);
+			}
+		}
+		if (status == 404)
+		{
+			downloads.incrementAndGet();
+			if (cache != null) {
+				cache.putMissing(pageURL);
+			}
+			return null;
+		}
+		else if (status < 200 || status >= 300) {
+			throw new HttpStatusException("HTTP error fetching URL", status, hostURL.toString());
+		}
+		byte[] content = response.body;
+		downloads.incrementAndGet();
+		if (cache != null) {
+			cache.put(pageURL, content, response.eTag, response.lastModified);
+		}
+		return content;
+	}
+
+	private static @Nullable byte[] getCachedContent(APIPageCache.Entry entry) {
+		return !entry.isMissing() ? entry.getContent() : null;
+	}
+
+	/**
+	 * Send request for given page to API host, retrying failed requests as defined by
+	 * fetch policy. Requests are retried when an I/O error occurs while executing them,
+	 * or when the host responds with a status code indicating a temporary failure.
+	 *
+	 * @param url {@code URL} of API page on API host.
+	 * @param entry cache entry used to make request conditional, or {@code null}.
+	 * @return response of the last request that was sent.
+	 *
+	 * @throws IOException if the last request failed with an I/O error.
+	 */
+	private Response execute(URL url, @Nullable APIPageCache.Entry entry) throws IOException {
+
+		for (int attempt = 1; ; attempt++)
+		{
+			long retryAfter = 0;
+			try {
+				Response response = send(url, entry);
+				if (!FetchPolicy.isRetryableStatus(response.status) || attempt > policy.getRetries()) {
+					return response;
+				}
+				Logger.warn("API host responded with status %d for %s (attempt %d)", response.status, url, attempt);
+				retryAfter = parseRetryAfter(response.retryAfter);
+			}
+			catch (IOException e)
+			{
+				if (e instanceof InterruptedIOException || attempt > policy.getRetries()) {
+					throw e;
+				}
+				Logger.warn("Request for %s failed with %s (attempt %d)", url, e.toString(), attempt);
+			}
+			try {
+				Thread.sleep(Math.max(policy.getBackoff(attempt), retryAfter));
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting to retry request for " + url);
+			}
+		}
+	}
+
+	/**
+	 * Send a single request for given page to API host and read the whole response.
+	 * The request counts as being in flight until the response has been read.
+	 * Connect timeout limits how long establishing connection can take, while read
+	 * timeout limits how long each read can block waiting for data from API host.
+	 */
+	private Response send(URL url, @Nullable APIPageCache.Entry entry) throws IOException {
+
+		String host = url.getHost();
+		rateLimiters.computeIfAbsent(host, h -> RateLimiter.create(policy.getRequestRate())).acquire();
+		try {
+			requestPermits.acquire();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting to send request to " + host);
+		}
+		try {
+			HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+			connection.setConnectTimeout(policy.getConnectTimeout());
+			connection.setReadTimeout(policy.getReadTimeout());
+			connection.setRequestProperty("User-Agent", HttpConnection.DEFAULT_UA);
+			if (entry != null)
+			{
+				if (entry.getETag() != null) {
+					connection.setRequestProperty("If-None-Match", entry.getETag());
+				}
+				if (entry.getLastModified() != null) {
+					connection.setRequestProperty("If-Modified-Since", entry.getLastModified());
+				}
+			}
+			int status = connection.getResponseCode();
+			byte[] body = new byte[0];
+			InputStream stream = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+			if (stream != null)
+			{
+				try (InputStream iStream = stream) {
+					body = ByteStreams.toByteArray(iStream);
+				}
+			}
+			return new Response(status, body, connection.getHeaderField("ETag"),
+					connection.getHeaderField("Last-Modified"), connection.getHeaderField("Retry-After"));
+		}
+		finally {
+			requestPermits.release();
+		}
+	}
+
+	/**
+	 * Returns delay in milliseconds requested by {@code Retry-After} response
+	 * header, or {@code 0} if the header value is missing or not a number.
+	 */
+	private static long parseRetryAfter(@Nullable String value) {
+
+		if (value != null && NumberUtils.isDigits(value.trim())) {
+			return Math.min(NumberUtils.toLong(value.trim()) * 1000L, TimeUnit.MINUTES.toMillis(5));
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns number of worker threads used to fetch API pages.
+	 */
+	public int getThreadCount() {
+		return threads;
+	}
+
+	/**
+	 * Returns number of API pages served from cache without contacting API host.
+	 */
+	public int getCacheHits() {
+		return cacheHits.get();
+	}
+
+	/**
+	 * Returns number of cached API pages that API host confirmed were not modified.
+	 */
+	public int getRevalidations() {
+		return revalidations.get();
+	}
+
+	/**
+	 * Returns number of API pages that were fully downloaded from API host.
+	 */
+	public int getDownloads() {
+		return downloads.get();
+	}
+
+	/**
+	 * Stop all worker threads and close local API source if one was used.
+	 *
+	 * @throws IOException if an I/O error occurred while closing local API source.
+	 */
+	@Override
+	public void close() throws IOException {
+
+		executor.shutdownNow();
+		if (source != null) {
+			source.close();
+		}
+	}
+
+	/**
+	 * Status, body and headers of response received from API host.
+	 */
+	private static final class Response {
+
+		private final int status;
+		private final byte[] body;
+		private final @Nullable String eTag, lastModified, retryAfter;
+
+		private Response(int status, byte[] body, @Nullable String eTag,
+						 @Nullable String lastModified, @Nullable String retryAfter) {
+
+			this.status = status;
+			this.body = body;
+			this.eTag = eTag;
+			this.lastModified = lastModified;
+			this.retryAfter = retryAfter;
+		}
+	}
+
+	public static class Builder {
+
+		private URL apiHost = ZomboidAPIDoc.API_URL;
+		private int threads = DEFAULT_THREADS;
+		private @Nullable APIPageCache cache;
+		private @Nullable LocalAPISource source;
+		private boolean revalidate = false;
+		private long maxAge = DEFAULT_MAX_AGE;
+		private FetchPolicy policy = FetchPolicy.Builder.create().build();
+
+		private Builder() {
+		}
+
+		public static Builder create() {
+			return new Builder();
+		}
+
+		/**
+		 * Download API pages from the given host instead of the official modding API.
+		 */
+		Builder withAPIHost(URL apiHost) {
+			this.apiHost = apiHost;
+			return this;
+		}
+
+		public Builder withThreads(int threads) {
+			this.threads = threads;
+			return this;
+		}
+
+		public Builder withCache(@Nullable APIPageCache cache) {
+			this.cache = cache;
+			return this;
+		}
+
+		/**
+		 * Read API pages from given local source instead of API host.
+		 * Fetcher will close the source when it is closed.
+		 */
+		public Builder withSource(@Nullable LocalAPISource source) {
+			this.source = source;
+			return this;
+		}
+
+		/**
+		 * Revalidate stale cached API pages with API host instead of using them directly.
+		 */
+		public Builder withRevalidation(boolean revalidate) {
+			this.revalidate = revalidate;
+			return this;
+		}
+
+		/**
+		 * Revalidate only cached API pages that were not validated with API
+		 * host within given number of milliseconds.
+		 */
+		public Builder withMaxAge(long maxAge) {
+			this.maxAge = maxAge;
+			return this;
+		}
+
+		public Builder withPolicy(FetchPolicy policy) {
+			this.policy = policy;
+			return this;
+		}
+
+		public APIPageFetcher build() {
+
+			Validate.isTrue(threads > 0, "Number of fetch threads must be positive (%d)", threads);
+			Validate.isTrue(maxAge >= 0, "Cache maximum age cannot be negative (%d)", maxAge);
+			return new APIPageFetcher(this);
+		}
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.doc;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FilenameUtils;
+import org.jetbrains.annotations.Nullable;
+
+import io.cocolabs.pz.zdoc.logger.Logger;
+
+/**
+ * This class writes modding API pages into a mirror archive that
+ * can later be used to compile offline with {@link LocalAPISource}.
+ */
+public class APIPageMirror {
+
+	/** Name of the mirror archive used when not specified by user. */
+	public static final String DEFAULT_ARCHIVE_NAME = "modding-api.zip";
+
+	private APIPageMirror() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * <p>Fetch API pages for given paths and write them to a zip archive.</p>
+	 * <p>Pages are fetched concurrently by fetcher worker threads while the calling thread
+	 * writes fetched pages to archive in the order they were requested. The archive is
+	 * first written to a temporary file and replaces the target file only when all pages
+	 * have been successfully written. Pages that were not found are not included. When
+	 * writing fails, pages that are still pending are cancelled.</p>
+	 *
+	 * @param fetcher fetcher used to fetch API pages.
+	 * @param paths paths to API pages <i>(do not need to have an extension)</i>.
+	 * @param archive path to mirror archive file.
+	 * @return number of pages written to mirror archive.
+	 *
+	 * @throws IOException if an I/O error occurred while fetching or writing API pages.
+	 */
+	public static int write(APIPageFetcher fetcher, Collection<String> paths, Path archive) throws IOException {
+
+		Path archiveDir = archive.toAbsolutePath().getParent();
+		Path tempArchive = Files.createTempFile(Files.createDirectories(archiveDir), "mirror", ".tmp");
+		Deque<PendingPage> pending = new ArrayDeque<>();
+		int written = 0;
+		try {
+			try (ZipOutputStream zStream = new ZipOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tempArchive))))
+			{
+				// number of pages in flight is bounded to keep memory usage in check
+				int fetchAhead = fetcher.getThreadCount() * 2;
+				Iterator<String> iterator = paths.iterator();
+				while (iterator.hasNext() || !pending.isEmpty())
+				{
+					while (pending.size() < fetchAhead && iterator.hasNext())
+					{
+						String path = iterator.next();
+						pending.add(new PendingPage(path, fetcher.fetchContent(Paths.get(path))));
+					}
+					PendingPage page = pending.poll();
+					if (page != null)
+					{
+						byte[] content = page.getContent();
+						if (content == null)
+						{
+							Logger.warn(String.format("Unable to find API page for path %s", page.path));
+							continue;
+						}
+						zStream.putNextEntry(new ZipEntry(getEntryName(page.path)));
+						zStream.write(content);
+						zStream.closeEntry();
+						written++;
+					}
+				}
+			}
+			Files.move(tempArchive, archive, StandardCopyOption.REPLACE_EXISTING);
+		}
+		finally {
+			// pages still pending when writing failed do not need to be fetched
+			for (PendingPage page : pending) {
+				page.content.cancel(true);
+			}
+			Files.deleteIfExists(tempArchive);
+		}
+		return written;
+	}
+
+	/**
+	 * Returns name of archive entry for API page with given path. Entries are laid
+	 * out the same way as on the modding API website so that archive can be read
+	 * by {@link LocalAPISource}.
+	 */
+	private static String getEntryName(String path) {
+
+		String sPath = path.replace('\\', '/');
+		return "modding/" + (FilenameUtils.getExtension(sPath).equals("html") ? sPath : sPath + ".html");
+	}
+
+	/**
+	 * This class represents an API page waiting to be written to archive.
+	 */
+	private static class PendingPage {
+
+		private final String path;
+		private final Future<byte[]> content;
+
+		private PendingPage(String path, Future<byte[]> content) {
+			this.path = path;
+			this.content = content;
+		}
+
+		private @Nullable byte[] getContent() throws IOException {
+			try {
+				return content.get();
+			}
+			catch (ExecutionException e)
+			{
+				Throwable cause = e.getCause();
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				}
+				throw new IOException("Error occurred while fetching API page for path " + path, cause);
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while fetching API page for path " + path);
+			}
+		}
+	}
+}
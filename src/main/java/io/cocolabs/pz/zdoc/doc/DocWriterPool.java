@@ -0,0 +1,128 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.doc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+
+import org.apache.commons.lang3.Validate;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.cocolabs.pz.zdoc.logger.Logger;
+
+/**
+ * <p>This class writes documents to files on a bounded pool of worker threads.</p>
+ * <p>The number of pending writes is limited, when the queue is full the submitting thread
+ * writes the document itself, which slows down producers that are faster than the disk.
+ * Errors do not interrupt other writes, they are collected and reported together when
+ * waiting for all writes to complete with {@link #await()}. Write tasks are expected
+ * to be submitted from a single thread.</p>
+ */
+public class DocWriterPool implements Closeable {
+
+	/** Number of worker threads used when not specified by user. */
+	public static final int DEFAULT_THREADS = 4;
+
+	private final ThreadPoolExecutor executor;
+	private final List<Future<?>> pending = new ArrayList<>();
+	private final Queue<IOException> errors = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * @param threads number of worker threads used to write documents.
+	 *
+	 * @throws IllegalArgumentException if the number of threads is not positive.
+	 */
+	public DocWriterPool(int threads) {
+
+		Validate.isTrue(threads > 0, "Number of writer threads must be positive (%d)", threads);
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(threads * 4), new ThreadFactoryBuilder()
+				.setNameFormat("doc-writer-%d").setDaemon(true).build(),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	/**
+	 * Schedule given write task. Errors thrown by the task are collected
+	 * and reported when waiting for writes to complete.
+	 *
+	 * @param name name of written document used when reporting errors.
+	 * @param task task that writes the document.
+	 */
+	public void submit(String name, WriteTask task) {
+
+		pending.add(executor.submit(() -> {
+			try {
+				task.write();
+			}
+			catch (IOException e)
+			{
+				Logger.error("Unable to write %s: %s", name, e.getMessage());
+				errors.add(new IOException("Unable to write " + name, e));
+			}
+		}));
+	}
+
+	/**
+	 * Wait for all submitted write tasks to complete.
+	 *
+	 * @throws IOException if one or more write tasks failed, exceptions
+	 * 		thrown by individual tasks are added as suppressed exceptions.
+	 */
+	public void await() throws IOException {
+
+		for (Future<?> future : pending)
+		{
+			try {
+				future.get();
+			}
+			catch (ExecutionException e) {
+				errors.add(new IOException("Unexpected error occurred while writing document", e.getCause()));
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for documents to be written");
+			}
+		}
+		pending.clear();
+		if (!errors.isEmpty())
+		{
+			IOException exception = new IOException(
+					String.format("Unable to write %d documents", errors.size()));
+			errors.forEach(exception::addSuppressed);
+			errors.clear();
+			throw exception;
+		}
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	@FunctionalInterface
+	public interface WriteTask {
+		void write() throws IOException;
+	}
+}
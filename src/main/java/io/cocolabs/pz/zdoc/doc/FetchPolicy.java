@@ -0,0 +1,193 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.doc;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * <p>This class represents a policy that governs how modding API pages are requested
+ * from API host. The policy defines connect and read timeouts, how many times and how
+ * long to wait before failed requests are retried, rate at which requests are sent to each
+ * host, and maximum number of requests that can be in flight at the same time.</p>
+ * <p>Failed requests are retried with exponential backoff and random jitter so that
+ * concurrent workers do not retry in lockstep.</p>
+ */
+public class FetchPolicy {
+
+	/** Connect timeout in milliseconds used when not specified by user. */
+	public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+
+	/** Read timeout in milliseconds used when not specified by user. */
+	public static final int DEFAULT_READ_TIMEOUT = 30000;
+
+	/** Number of retries used when not specified by user. */
+	public static final int DEFAULT_RETRIES = 3;
+
+	/** Number of requests per second sent to each host when not specified by user. */
+	public static final double DEFAULT_REQUEST_RATE = 10.0;
+
+	/** Maximum number of in-flight requests used when not specified by user. */
+	public static final int DEFAULT_MAX_REQUESTS = 8;
+
+	private final int connectTimeout, readTimeout;
+	private final int retries;
+	private final long initialBackoff, maxBackoff;
+	private final double requestRate;
+	private final int maxRequests;
+
+	private FetchPolicy(Builder builder) {
+
+		this.connectTimeout = builder.connectTimeout;
+		this.readTimeout = builder.readTimeout;
+		this.retries = builder.retries;
+		this.initialBackoff = builder.initialBackoff;
+		this.maxBackoff = builder.maxBackoff;
+		this.requestRate = builder.requestRate;
+		this.maxRequests = builder.maxRequests;
+	}
+
+	/**
+	 * Returns {@code true} if request that returned given status code should be retried.
+	 * These status codes indicate that the host is temporarily unable to serve the request.
+	 */
+	static boolean isRetryableStatus(int status) {
+		return status == 408 || status == 429 || status == 500 || status == 502 || status == 503 || status == 504;
+	}
+
+	/**
+	 * Returns time in milliseconds to wait before retrying request that failed given number
+	 * of times. The base delay doubles with each failed attempt up to maximum backoff, and
+	 * the actual delay is randomly chosen between half and full base delay.
+	 *
+	 * @param attempt number of attempts that failed so far (starting with 1).
+	 */
+	long getBackoff(int attempt) {
+
+		long delay = initialBackoff << Math.min(attempt - 1, 30);
+		delay = Math.min(delay > 0 ? delay : maxBackoff, maxBackoff);
+		return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+	}
+
+	/**
+	 * Returns timeout in milliseconds for establishing connection with API host.
+	 */
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	/**
+	 * Returns timeout in milliseconds for each read from connection with API host.
+	 */
+	public int getReadTimeout() {
+		return readTimeout;
+	}
+
+	/**
+	 * Returns number of times failed requests are retried.
+	 */
+	public int getRetries() {
+		return retries;
+	}
+
+	/**
+	 * Returns number of requests per second sent to each host.
+	 */
+	public double getRequestRate() {
+		return requestRate;
+	}
+
+	/**
+	 * Returns maximum number of requests that can be in flight at the same time.
+	 */
+	public int getMaxRequests() {
+		return maxRequests;
+	}
+
+	public static class Builder {
+
+		private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+		private int readTimeout = DEFAULT_READ_TIMEOUT;
+		private int retries = DEFAULT_RETRIES;
+		private long initialBackoff = 500, maxBackoff = 30000;
+		private double requestRate = DEFAULT_REQUEST_RATE;
+		private int maxRequests = DEFAULT_MAX_REQUESTS;
+
+		private Builder() {
+		}
+
+		public static Builder create() {
+			return new Builder();
+		}
+
+		/**
+		 * Set timeout in milliseconds for establishing connection with API host.
+		 */
+		public Builder withConnectTimeout(int connectTimeout) {
+			this.connectTimeout = connectTimeout;
+			return this;
+		}
+
+		/**
+		 * Set timeout in milliseconds for each read from connection with API host.
+		 * Note that the timeout does not limit how long reading the whole response
+		 * can take as long as the host keeps sending data.
+		 */
+		public Builder withReadTimeout(int readTimeout) {
+			this.readTimeout = readTimeout;
+			return this;
+		}
+
+		public Builder withRetries(int retries) {
+			this.retries = retries;
+			return this;
+		}
+
+		/**
+		 * Set backoff delay in milliseconds before first retry and maximum backoff delay.
+		 */
+		public Builder withBackoff(long initialBackoff, long maxBackoff) {
+			this.initialBackoff = initialBackoff;
+			this.maxBackoff = maxBackoff;
+			return this;
+		}
+
+		public Builder withRequestRate(double requestRate) {
+			this.requestRate = requestRate;
+			return this;
+		}
+
+		public Builder withMaxRequests(int maxRequests) {
+			this.maxRequests = maxRequests;
+			return this;
+		}
+
+		public FetchPolicy build() {
+
+			Validate.isTrue(connectTimeout > 0, "Connect timeout must be positive (%d)", connectTimeout);
+			Validate.isTrue(readTimeout > 0, "Read timeout must be positive (%d)", readTimeout);
+			Validate.isTrue(retries >= 0, "Number of retries must not be negative (%d)", retries);
+			Validate.isTrue(initialBackoff > 0 && maxBackoff >= initialBackoff,
+					"Invalid backoff delay (%d, %d)", initialBackoff, maxBackoff);
+			Validate.isTrue(requestRate > 0, "Request rate must be positive (%f)", requestRate);
+			Validate.isTrue(maxRequests > 0, "Maximum number of requests must be positive (%d)", maxRequests);
+			return new FetchPolicy(this);
+		}
+	}
+}
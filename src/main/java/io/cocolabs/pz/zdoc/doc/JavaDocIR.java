@@ -0,0 +1,447 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.doc;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import org.jetbrains.annotations.Nullable;
+
+import com.google.common.io.ByteStreams;
+
+import io.cocolabs.pz.zdoc.element.java.JavaClass;
+import io.cocolabs.pz.zdoc.element.java.JavaField;
+import io.cocolabs.pz.zdoc.element.java.JavaMethod;
+import io.cocolabs.pz.zdoc.element.java.JavaParameter;
+import io.cocolabs.pz.zdoc.element.mod.AccessModifierKey;
+import io.cocolabs.pz.zdoc.element.mod.MemberModifier;
+import io.cocolabs.pz.zdoc.element.mod.ModifierKey;
+import io.cocolabs.pz.zdoc.logger.Logger;
+import io.cocolabs.pz.zdoc.util.ClassResolver;
+
+/**
+ * <p>This class reads and writes compiled java documents in a compact binary format
+ * that can be used to cache results of java compilation.</p>
+ * <p>The format starts with a header and a table of all strings used by documents,
+ * followed by documents that refer to strings by their index in the table. Strings
+ * include names of classes, which are resolved again when documents are read.
+ * All numbers are written as unsigned variable-length integers.</p>
+ */
+public final class JavaDocIR {
+
+	private static final byte[] MAGIC = "ZDIR".getBytes(StandardCharsets.US_ASCII);
+	private static final int VERSION = 1;
+
+	private static final AccessModifierKey[] ACCESS_KEYS = AccessModifierKey.values();
+	private static final ModifierKey[] MODIFIER_KEYS = ModifierKey.values();
+
+	private JavaDocIR() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Write given java documents to file.
+	 *
+	 * @throws IOException if an I/O error occurred while writing file.
+	 */
+	public static void write(Collection<ZomboidJavaDoc> javaDocs, Path file) throws IOException {
+
+		try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(file))) {
+			write(javaDocs, stream);
+		}
+		Logger.info("Written %d java documents to %s", javaDocs.size(), file);
+	}
+
+	/**
+	 * Write given java documents to stream.
+	 *
+	 * @throws IOException if an I/O error occurred while writing to stream.
+	 */
+	public static void write(Collection<ZomboidJavaDoc> javaDocs, OutputStream stream) throws IOException {
+
+		// documents are encoded first to collect strings for string table
+		Encoder encoder = new Encoder();
+		encoder.writeVarInt(javaDocs.size());
+		for (ZomboidJavaDoc javaDoc : javaDocs) {
+			encoder.writeDoc(javaDoc);
+		}
+		stream.write(MAGIC);
+		writeVarInt(stream, VERSION);
+		writeVarInt(stream, encoder.strings.size());
+		for (String string : encoder.strings.keySet())
+		{
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(stream, bytes.length);
+			stream.write(bytes);
+		}
+		encoder.body.writeTo(stream);
+	}
+
+	/**
+	 * Read java documents from file.
+	 *
+	 * @return documents in the order they were written.
+	 *
+	 * @throws IOException if an I/O error occurred while reading file or the file is malformed.
+	 */
+	public static Set<ZomboidJavaDoc> read(Path file) throws IOException {
+
+		Set<ZomboidJavaDoc> result;
+		try (InputStream stream = new BufferedInputStream(Files.newInputStream(file))) {
+			result = read(stream);
+		}
+		Logger.info("Read %d java documents from %s", result.size(), file);
+		return result;
+	}
+
+	/**
+	 * Read java documents from stream.
+	 *
+	 * @return documents in the order they were written.
+	 *
+	 * @throws IOException if an I/O error occurred while reading from stream or the content is malformed.
+	 */
+	public static Set<ZomboidJavaDoc> read(InputStream stream) throws IOException {
+
+		// content is read in memory to validate element counts against remaining data
+		ByteArrayInputStream data = new ByteArrayInputStream(ByteStreams.toByteArray(stream));
+
+		byte[] magic = new byte[MAGIC.length];
+		try {
+			readFully(data, magic);
+		}
+		catch (EOFException e) {
+			throw new IOException("Stream does not contain java document IR", e);
+		}
+		if (!Arrays.equals(magic, MAGIC)) {
+			throw new IOException("Stream does not contain java document IR");
+		}
+		int version = readVarInt(data);
+		if (version != VERSION) {
+			throw new IOException(String.format("Unsupported java document IR version %d", version));
+		}
+		String[] strings = new String[readCount(data)];
+		for (int i = 0; i < strings.length; i++)
+		{
+			byte[] bytes = new byte[readCount(data)];
+			readFully(data, bytes);
+			strings[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+		Decoder decoder = new Decoder(data, strings);
+		int count = decoder.readCount();
+		Set<ZomboidJavaDoc> result = new LinkedHashSet<>();
+		for (int i = 0; i < count; i++) {
+			result.add(decoder.readDoc());
+		}
+		return result;
+	}
+
+	private static void writeVarInt(OutputStream stream, int value) throws IOException {
+
+		while ((value & ~0x7F) != 0)
+		{
+			stream.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		stream.write(value);
+	}
+
+	private static int readVarInt(InputStream stream) throws IOException {
+
+		int result = 0;
+		for (int shift = 0; shift < 32; shift += 7)
+		{
+			int b = stream.read();
+			if (b == -1) {
+				throw new EOFException("Unexpected end of java document IR");
+			}
+			result |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+			{
+				// numbers are never written with the sign bit set
+				if (result < 0) {
+					throw new IOException("Negative variable-length integer in java document IR");
+				}
+				return result;
+			}
+		}
+		throw new IOException("Malformed variable-length integer in java document IR");
+	}
+
+	/**
+	 * Read number of elements that follow in given stream. Every element takes
+	 * at least one byte so the number cannot be larger than the remaining data.
+	 *
+	 * @throws IOException if the number is negative or larger than the remaining data.
+	 */
+	private static int readCount(ByteArrayInputStream stream) throws IOException {
+
+		int count = readVarInt(stream);
+		if (count > stream.available()) {
+			throw new IOException("Invalid element count " + count + " in java document IR");
+		}
+		return count;
+	}
+
+	private static void readFully(InputStream stream, byte[] bytes) throws IOException {
+
+		int offset = 0;
+		while (offset < bytes.length)
+		{
+			int count = stream.read(bytes, offset, bytes.length - offset);
+			if (count == -1) {
+				throw new EOFException("Unexpected end of java document IR");
+			}
+			offset += count;
+		}
+	}
+
+	/**
+	 * Encodes documents and collects strings they use in a table.
+	 */
+	private static class Encoder {
+
+		/** Strings mapped to their index in string table in the order they were added. */
+		private final Map<String, Integer> strings = new LinkedHashMap<>();
+		private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+		private void writeVarInt(int value) throws IOException {
+			JavaDocIR.writeVarInt(body, value);
+		}
+
+		/**
+		 * Write index of given string in string table, {@code 0} represents {@code null}.
+		 */
+		private void writeString(@Nullable String value) throws IOException {
+
+			if (value != null)
+			{
+				Integer index = strings.computeIfAbsent(value, v -> strings.size());
+				writeVarInt(index + 1);
+			}
+			else writeVarInt(0);
+		}
+
+		/**
+		 * Write given class, {@code null} represents unknown type parameter.
+		 */
+		private void writeClass(@Nullable JavaClass jClass) throws IOException {
+
+			if (jClass != null)
+			{
+				writeString(jClass.getClazz().getName());
+				List<JavaClass> typeParameters = jClass.getTypeParameters();
+				writeVarInt(typeParameters.size());
+				for (JavaClass typeParameter : typeParameters) {
+					writeClass(typeParameter);
+				}
+			}
+			else writeString(null);
+		}
+
+		private void writeModifier(MemberModifier modifier) throws IOException {
+
+			writeVarInt(modifier.getAccess().ordinal());
+			List<ModifierKey> modifiers = modifier.getModifiers();
+			writeVarInt(modifiers.size());
+			for (ModifierKey key : modifiers) {
+				writeVarInt(key.ordinal());
+			}
+		}
+
+		private void writeDoc(ZomboidJavaDoc javaDoc) throws IOException {
+
+			writeClass(javaDoc.getClazz());
+			List<JavaField> fields = javaDoc.getFields();
+			writeVarInt(fields.size());
+			for (JavaField field : fields)
+			{
+				writeString(field.getName());
+				writeClass(field.getType());
+				writeModifier(field.getModifier());
+				writeString(field.getComment());
+			}
+			Set<JavaMethod> methods = javaDoc.getMethods();
+			writeVarInt(methods.size());
+			for (JavaMethod method : methods)
+			{
+				writeString(method.getName());
+				JavaMethod.ReturnType returnType = method.getReturnType();
+				writeClass(returnType);
+				writeString(returnType.getComment());
+
+				List<JavaParameter> params = method.getParams();
+				writeVarInt(params.size());
+				for (JavaParameter param : params)
+				{
+					writeString(param.getName());
+					writeClass(param.getType());
+					writeString(param.getComment());
+				}
+				writeModifier(method.getModifier());
+				writeVarInt(method.hasVarArg() ? 1 : 0);
+				writeString(method.getComment());
+			}
+		}
+	}
+
+	/**
+	 * Decodes documents referring to strings from string table.
+	 */
+	private static class Decoder {
+
+		private final ByteArrayInputStream stream;
+		private final String[] strings;
+
+		private Decoder(ByteArrayInputStream stream, String[] strings) {
+			this.stream = stream;
+			this.strings = strings;
+		}
+
+		private int readVarInt() throws IOException {
+			return JavaDocIR.readVarInt(stream);
+		}
+
+		private int readCount() throws IOException {
+			return JavaDocIR.readCount(stream);
+		}
+
+		private @Nullable String readNullableString() throws IOException {
+
+			int index = readVarInt();
+			if (index == 0) {
+				return null;
+			}
+			if (index > strings.length) {
+				throw new IOException("Invalid string index " + index + " in java document IR");
+			}
+			return strings[index - 1];
+		}
+
+		private String readString() throws IOException {
+
+			String result = readNullableString();
+			if (result == null) {
+				throw new IOException("Unexpected null string in java document IR");
+			}
+			return result;
+		}
+
+		private @Nullable JavaClass readNullableClass() throws IOException {
+
+			String name = readNullableString();
+			if (name == null) {
+				return null;
+			}
+			Class<?> clazz = ClassResolver.resolve(name);
+			if (clazz == null) {
+				throw new IOException("Unable to find class " + name + " referenced in java document IR");
+			}
+			int count = readCount();
+			List<JavaClass> typeParameters = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				typeParameters.add(readNullableClass());
+			}
+			return new JavaClass(clazz, typeParameters);
+		}
+
+		private JavaClass readClass() throws IOException {
+
+			JavaClass result = readNullableClass();
+			if (result == null) {
+				throw new IOException("Unexpected null class in java document IR");
+			}
+			return result;
+		}
+
+		private <T> T readEnum(T[] values) throws IOException {
+
+			int ordinal = readVarInt();
+			if (ordinal < 0 || ordinal >= values.length) {
+				throw new IOException("Invalid modifier " + ordinal + " in java document IR");
+			}
+			return values[ordinal];
+		}
+
+		private MemberModifier readModifier() throws IOException {
+
+			AccessModifierKey access = readEnum(ACCESS_KEYS);
+			int count = readCount();
+			List<ModifierKey> modifiers = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				modifiers.add(readEnum(MODIFIER_KEYS));
+			}
+			return new MemberModifier(access, modifiers);
+		}
+
+		private ZomboidJavaDoc readDoc() throws IOException {
+
+			JavaClass clazz = readClass();
+			int fieldCount = readCount();
+			List<JavaField> fields = new ArrayList<>(fieldCount);
+			for (int i = 0; i < fieldCount; i++)
+			{
+				String name = readString();
+				JavaClass type = readClass();
+				MemberModifier modifier = readModifier();
+				fields.add(new JavaField(type, name, modifier, readNullableString()));
+			}
+			int methodCount = readCount();
+			Set<JavaMethod> methods = new HashSet<>();
+			for (int i = 0; i < methodCount; i++)
+			{
+				JavaMethod.Builder builder = JavaMethod.Builder.create(readString());
+				JavaClass returnType = readClass();
+				builder.withReturnType(returnType, readNullableString());
+
+				int paramCount = readCount();
+				List<JavaParameter> params = new ArrayList<>(paramCount);
+				for (int j = 0; j < paramCount; j++)
+				{
+					String name = readString();
+					JavaClass type = readClass();
+					params.add(new JavaParameter(type, name, readNullableString()));
+				}
+				builder.withModifier(readModifier());
+				boolean hasVarArg = readVarInt() != 0;
+				if (hasVarArg && !params.isEmpty())
+				{
+					/*
+					 * builder converts last parameter of variadic method to an array,
+					 * so pass the component type of written array parameter
+					 */
+					int lastIndex = params.size() - 1;
+					JavaParameter lastParam = params.get(lastIndex);
+					JavaClass lastType = lastParam.getType();
+					Class<?> componentType = lastType.getClazz().getComponentType();
+					if (componentType != null)
+					{
+						params.set(lastIndex, new JavaParameter(new JavaClass(componentType,
+								lastType.getTypeParameters()), lastParam.getName(), lastParam.getComment()));
+					}
+				}
+				methods.add(builder.withParams(params).withVarArgs(hasVarArg)
+						.withComment(readNullableString()).build());
+			}
+			return new ZomboidJavaDoc(clazz, fields, methods);
+		}
+	}
+}
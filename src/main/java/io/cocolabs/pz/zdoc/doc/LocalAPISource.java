@@ -0,0 +1,123 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.doc;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.io.FilenameUtils;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * <p>This class represents a local copy of modding API pages stored either in a directory
+ * or in a zip archive. Archived pages are read directly from the archive through a zip
+ * {@code FileSystem} without extracting the archive first.</p>
+ * <p>Pages are expected to be laid out the same way as on the modding API website, either
+ * directly in the source root or in a {@code modding} directory inside the source root.</p>
+ */
+public class LocalAPISource implements Closeable {
+
+	private final @Nullable FileSystem fileSystem;
+	private final Path root;
+
+	/**
+	 * Open local API source from given directory or zip archive.
+	 *
+	 * @throws FileNotFoundException if given path does not exist.
+	 * @throws IOException if an I/O error occurred while opening zip archive.
+	 */
+	public LocalAPISource(Path source) throws IOException {
+
+		Path sourceRoot;
+		if (Files.isDirectory(source))
+		{
+			fileSystem = null;
+			sourceRoot = source;
+		}
+		else if (Files.isRegularFile(source))
+		{
+			fileSystem = FileSystems.newFileSystem(source, (ClassLoader) null);
+			sourceRoot = fileSystem.getPath("/");
+		}
+		else throw new FileNotFoundException("Unable to find API source " + source);
+
+		Path moddingDir = sourceRoot.resolve("modding");
+		root = Files.isDirectory(moddingDir) ? moddingDir : sourceRoot;
+	}
+
+	/**
+	 * Get Project Zomboid API page for given path from local source.
+	 *
+	 * @param path path to API page <i>(does not need to have an extension)</i>.
+	 * @return new {@code ZomboidDoc} instance wrapping a parsed {@code HTML} document
+	 * 		representing API page for given path, or {@code null} if the API page
+	 * 		does not exist in local source.
+	 *
+	 * @throws IOException if an I/O error occurred while reading the API page.
+	 */
+	public @Nullable ZomboidAPIDoc getPage(Path path) throws IOException {
+
+		Path file = resolvePage(path);
+		if (file == null) {
+			return null;
+		}
+		try (InputStream iStream = new BufferedInputStream(Files.newInputStream(file))) {
+			return ZomboidAPIDoc.parsePage(iStream, path);
+		}
+	}
+
+	/**
+	 * Get raw content of Project Zomboid API page for given path from local source.
+	 *
+	 * @param path path to API page <i>(does not need to have an extension)</i>.
+	 * @return raw {@code HTML} content of API page for given path, or {@code null}
+	 * 		if the API page does not exist in local source.
+	 *
+	 * @throws IOException if an I/O error occurred while reading the API page.
+	 */
+	public @Nullable byte[] getPageContent(Path path) throws IOException {
+
+		Path file = resolvePage(path);
+		return file != null ? Files.readAllBytes(file) : null;
+	}
+
+	private @Nullable Path resolvePage(Path path) {
+
+		String sPath = path.toString().replace('\\', '/');
+		if (!FilenameUtils.getExtension(sPath).equals("html")) {
+			sPath += ".html";
+		}
+		Path file = root.resolve(sPath);
+		return Files.isRegularFile(file) ? file : null;
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		if (fileSystem != null) {
+			fileSystem.close();
+		}
+	}
+}
@@ -0,0 +1,197 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.doc;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+import io.cocolabs.pz.zdoc.Main;
+
+/**
+ * <p>This class represents a {@code Writer} that encodes lua documents directly to a channel.</p>
+ * <p>Characters are collected in a fixed size buffer and encoded into a direct byte buffer
+ * that is written to channel whenever it fills up, so memory used by writer does not depend
+ * on the size of written document. Buffers are reused by writers created on the same thread.</p>
+ */
+final class LuaDocWriter extends Writer {
+
+	private static final int BUFFER_SIZE = 8192;
+	private static final Charset CHARSET = Charset.forName(Main.CHARSET);
+
+	private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+	private final WritableByteChannel channel;
+	private final Buffers buffers;
+	private boolean closed = false;
+
+	LuaDocWriter(WritableByteChannel channel) {
+
+		this.channel = channel;
+		Buffers localBuffers = BUFFERS.get();
+		// nested writers on the same thread get their own buffers
+		buffers = localBuffers.inUse ? new Buffers() : localBuffers;
+		buffers.acquire();
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+
+		ensureOpen();
+		if (!buffers.chars.hasRemaining()) {
+			encode(false);
+		}
+		buffers.chars.put((char) c);
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+
+		ensureOpen();
+		CharBuffer chars = buffers.chars;
+		while (len > 0)
+		{
+			if (!chars.hasRemaining()) {
+				encode(false);
+			}
+			int count = Math.min(chars.remaining(), len);
+			chars.put(cbuf, off, count);
+			off += count;
+			len -= count;
+		}
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+
+		ensureOpen();
+		CharBuffer chars = buffers.chars;
+		while (len > 0)
+		{
+			if (!chars.hasRemaining()) {
+				encode(false);
+			}
+			int count = Math.min(chars.remaining(), len);
+			chars.put(str, off, off + count);
+			off += count;
+			len -= count;
+		}
+	}
+
+	/**
+	 * Encode buffered characters and write encoded bytes to channel
+	 * whenever byte buffer fills up. Characters that cannot be encoded
+	 * yet <i>(incomplete surrogate pairs)</i> are kept in buffer.
+	 */
+	private void encode(boolean endOfInput) throws IOException {
+
+		CharBuffer chars = buffers.chars;
+		chars.flip();
+		while (true)
+		{
+			CoderResult result = buffers.encoder.encode(chars, buffers.bytes, endOfInput);
+			if (result.isOverflow()) {
+				drain();
+			}
+			else if (result.isUnderflow()) {
+				break;
+			}
+			else result.throwException();
+		}
+		chars.compact();
+	}
+
+	private void drain() throws IOException {
+
+		ByteBuffer bytes = buffers.bytes;
+		bytes.flip();
+		while (bytes.hasRemaining()) {
+			channel.write(bytes);
+		}
+		bytes.clear();
+	}
+
+	private void ensureOpen() throws IOException {
+
+		if (closed) {
+			throw new IOException("Writer has been closed");
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+
+		ensureOpen();
+		encode(false);
+		drain();
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			encode(true);
+			while (buffers.encoder.flush(buffers.bytes).isOverflow()) {
+				drain();
+			}
+			drain();
+		}
+		finally {
+			buffers.release();
+			channel.close();
+		}
+	}
+
+	/**
+	 * Character and byte buffers together with encoder that are reused between writers.
+	 */
+	private static class Buffers {
+
+		private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+		private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+		// replace invalid characters the same way String.getBytes does
+		private final CharsetEncoder encoder = CHARSET.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+		private boolean inUse = false;
+
+		private void acquire() {
+
+			inUse = true;
+			chars.clear();
+			bytes.clear();
+			encoder.reset();
+		}
+
+		private void release() {
+			inUse = false;
+		}
+	}
+}
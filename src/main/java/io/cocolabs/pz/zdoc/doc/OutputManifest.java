@@ -0,0 +1,320 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.doc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jetbrains.annotations.Nullable;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+import io.cocolabs.pz.zdoc.logger.Logger;
+
+/**
+ * <p>This class writes documents to output directory only when their content changed.</p>
+ * <p>Document content is rendered once into a buffer reused by each thread and its hash is
+ * compared with hash of existing file, files with the same content are not written again so
+ * that their modification time is preserved and IDE indexes are not invalidated. Changed
+ * documents are written from the same buffer without being rendered again. When a manifest
+ * file is used, hashes of written files are recorded together with file size and modification
+ * time, and existing files that match the recorded attributes do not need to be read to
+ * calculate the hash.</p>
+ */
+public class OutputManifest {
+
+	/** Maximum size of render buffer kept by each thread between documents. */
+	private static final int MAX_POOLED_BUFFER_SIZE = 4 * 1024 * 1024;
+
+	private static final ThreadLocal<RenderBuffer> RENDER_BUFFER = ThreadLocal.withInitial(RenderBuffer::new);
+
+	private final Path dir;
+	private final @Nullable Path manifestFile;
+
+	/** Output file names mapped to entries of files known to be in output directory. */
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	private final AtomicInteger written = new AtomicInteger();
+	private final AtomicInteger unchanged = new AtomicInteger();
+
+	/**
+	 * @param dir output directory documents are written to.
+	 * @param manifestFile file that stores hashes of written files between runs
+	 * 		or {@code null} to always hash existing files.
+	 *
+	 * @throws IOException if an I/O error occurred while reading manifest file.
+	 */
+	public OutputManifest(Path dir, @Nullable Path manifestFile) throws IOException {
+
+		this.dir = dir;
+		this.manifestFile = manifestFile;
+		if (manifestFile != null && Files.exists(manifestFile))
+		{
+			List<String> lines = Files.readAllLines(manifestFile, StandardCharsets.UTF_8);
+			for (String line : lines)
+			{
+				Entry entry = Entry.read(line);
+				if (entry != null) {
+					entries.put(entry.name, entry);
+				}
+				else if (!line.isEmpty()) {
+					Logger.warn("Discarding malformed output manifest entry: %s", line);
+				}
+			}
+			Logger.debug("Loaded %d output manifest entries from %s", entries.size(), manifestFile);
+		}
+	}
+
+	/**
+	 * Write document to file with given name in output directory
+	 * unless the file already exists with the same content.
+	 *
+	 * @param fileName name of the output file.
+	 * @param content content of the document.
+	 *
+	 * @return {@code true} if file was written or {@code false} if it was unchanged.
+	 *
+	 * @throws IOException if an I/O error occurred while writing file.
+	 */
+	public boolean write(String fileName, Content content) throws IOException {
+
+		RenderBuffer buffer = RENDER_BUFFER.get();
+		try {
+			buffer.reset();
+			try (Writer writer = new LuaDocWriter(buffer)) {
+				content.writeTo(writer);
+			}
+			HashCode hash = buffer.hash();
+			File file = dir.resolve(fileName).toFile();
+
+			HashCode existingHash = getExistingHash(fileName, file);
+			if (hash.equals(existingHash))
+			{
+				Logger.debug("Skipped writing unchanged file %s", fileName);
+				unchanged.incrementAndGet();
+				return false;
+			}
+			buffer.writeTo(file);
+			entries.put(fileName, new Entry(fileName, hash.toString(), file.length(), file.lastModified()));
+			written.incrementAndGet();
+			return true;
+		}
+		finally {
+			// do not hold on to buffers grown for unusually large documents
+			if (buffer.capacity() > MAX_POOLED_BUFFER_SIZE) {
+				RENDER_BUFFER.remove();
+			}
+		}
+	}
+
+	/**
+	 * Returns content hash of existing output file. Hash recorded in manifest
+	 * is used when file size and modification time did not change.
+	 *
+	 * @return hash of existing file or {@code null} if file does not exist.
+	 */
+	private @Nullable HashCode getExistingHash(String fileName, File file) throws IOException {
+
+		long size = file.length(), lastModified = file.lastModified();
+		if (lastModified == 0L)
+		{
+			// file does not exist
+			entries.remove(fileName);
+			return null;
+		}
+		Entry entry = entries.get(fileName);
+		if (entry != null && entry.size == size && entry.lastModified == lastModified) {
+			return HashCode.fromString(entry.hash);
+		}
+		try {
+			HashCode hash = com.google.common.io.Files.asByteSource(file).hash(Hashing.sha256());
+			entries.put(fileName, new Entry(fileName, hash.toString(), size, lastModified));
+			return hash;
+		}
+		catch (NoSuchFileException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Store hashes of output files to manifest file if one was specified.
+	 *
+	 * @throws IOException if an I/O error occurred while writing manifest file.
+	 */
+	public void save() throws IOException {
+
+		if (manifestFile == null) {
+			return;
+		}
+		StringBuilder sb = new StringBuilder();
+		// sort entries so that manifest does not change when output does not change
+		for (Entry entry : new TreeMap<>(entries).values()) {
+			sb.append(entry.toString()).append('\n');
+		}
+		Path parent = manifestFile.toAbsolutePath().getParent();
+		Path tempFile = Files.createTempFile(parent, "manifest", ".tmp");
+		try {
+			Files.write(tempFile, sb.toString().getBytes(StandardCharsets.UTF_8));
+			Files.move(tempFile, manifestFile, StandardCopyOption.REPLACE_EXISTING);
+		}
+		finally {
+			Files.deleteIfExists(tempFile);
+		}
+		Logger.debug("Saved %d output manifest entries to %s", entries.size(), manifestFile);
+	}
+
+	/**
+	 * Returns number of files that were written because their content changed.
+	 */
+	public int getWrittenCount() {
+		return written.get();
+	}
+
+	/**
+	 * Returns number of files that were not written because their content did not change.
+	 */
+	public int getUnchangedCount() {
+		return unchanged.get();
+	}
+
+	@FunctionalInterface
+	public interface Content {
+		void writeTo(Writer writer) throws IOException;
+	}
+
+	/**
+	 * Channel that collects rendered document content in a growable byte array.
+	 */
+	private static class RenderBuffer implements WritableByteChannel {
+
+		private byte[] bytes = new byte[64 * 1024];
+		private int size = 0;
+
+		@Override
+		public int write(ByteBuffer src) {
+
+			int count = src.remaining();
+			if (size + count > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + count));
+			}
+			src.get(bytes, size, count);
+			size += count;
+			return count;
+		}
+
+		private HashCode hash() {
+			return Hashing.sha256().hashBytes(bytes, 0, size);
+		}
+
+		/**
+		 * Replace content of given file with buffered content.
+		 */
+		private void writeTo(File file) throws IOException {
+
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+			{
+				ByteBuffer content = ByteBuffer.wrap(bytes, 0, size);
+				while (content.hasRemaining()) {
+					channel.write(content);
+				}
+			}
+		}
+
+		private int capacity() {
+			return bytes.length;
+		}
+
+		private void reset() {
+			size = 0;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		/**
+		 * Buffer stays open when writer is closed so that it can be reused.
+		 */
+		@Override
+		public void close() {
+		}
+	}
+
+	/**
+	 * This class represents a manifest entry of a single output file.
+	 * Entries are stored as a single line with hash, size, modification time and file name.
+	 */
+	private static class Entry {
+
+		private final String name, hash;
+		private final long size, lastModified;
+
+		private Entry(String name, String hash, long size, long lastModified) {
+
+			this.name = name;
+			this.hash = hash;
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+
+		/**
+		 * Read manifest entry from given line.
+		 *
+		 * @return {@code Entry} or {@code null} if the line is malformed.
+		 */
+		private static @Nullable Entry read(String line) {
+
+			String[] data = line.split(" ", 4);
+			if (data.length != 4) {
+				return null;
+			}
+			try {
+				// make sure hash is valid
+				HashCode.fromString(data[0]);
+				return new Entry(data[3], data[0], Long.parseLong(data[1]), Long.parseLong(data[2]));
+			}
+			catch (IllegalArgumentException e) {
+				return null;
+			}
+		}
+
+		@Override
+		public String toString() {
+			return String.join(" ", hash, Long.toString(size), Long.toString(lastModified), name);
+		}
+	}
+}
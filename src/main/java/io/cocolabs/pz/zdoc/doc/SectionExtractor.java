@@ -0,0 +1,296 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.doc;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.*;
+
+import org.jetbrains.annotations.Nullable;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * <p>This class extracts anchored sections from raw {@code HTML} content of API pages
+ * without building a document tree. Content is tokenized as a stream and only list items
+ * that directly enclose named anchors (ex. {@code <a name="method.detail">}) are kept,
+ * everything else is discarded as soon as it is read.</p>
+ * <p>Sections are expected to follow the JavaDoc page layout where each anchor is the first
+ * child of a list item. When an anchor is found anywhere else the page layout is considered
+ * unsupported and extraction fails, in which case the page should be parsed as a whole.</p>
+ */
+final class SectionExtractor {
+
+	/** Elements that never have content or closing tags. */
+	private static final Set<String> VOID_ELEMENTS = ImmutableSet.of(
+			"area", "base", "br", "col", "embed", "hr", "img",
+			"input", "link", "meta", "param", "source", "wbr"
+	);
+	/** Elements whose content is raw text that should not be tokenized. */
+	private static final Set<String> RAW_TEXT_ELEMENTS = ImmutableSet.of("script", "style");
+
+	private final Reader reader;
+	private final char[] buffer = new char[8192];
+	private int position, limit;
+
+	private final Set<String> anchors;
+	private final StringBuilder result = new StringBuilder();
+
+	/** Content of last opened list item that may enclose an anchor. */
+	private @Nullable StringBuilder pending;
+	/** Number of elements opened inside pending list item. */
+	private int pendingDepth;
+
+	/** Content of section currently being extracted. */
+	private @Nullable StringBuilder section;
+	/** Number of list items opened inside current section. */
+	private int sectionDepth;
+
+	private SectionExtractor(Reader reader, Collection<String> anchors) {
+		this.reader = reader;
+		this.anchors = new HashSet<>(anchors);
+	}
+
+	/**
+	 * Extract sections enclosing given anchors from {@code HTML} content.
+	 *
+	 * @param reader reader of raw {@code HTML} content.
+	 * @param anchors names of anchors that mark sections to extract.
+	 * @return {@code HTML} content of extracted sections in document order, or {@code null}
+	 * 		if an anchor was found in unsupported position in the document.
+	 *
+	 * @throws IOException if an I/O error occurred while reading content.
+	 */
+	static @Nullable String extract(Reader reader, Collection<String> anchors) throws IOException {
+		return new SectionExtractor(reader, anchors).extract();
+	}
+
+	private @Nullable String extract() throws IOException {
+
+		int c;
+		// stop reading as soon as the last section has been extracted
+		while ((!anchors.isEmpty() || section != null) && (c = read()) != -1)
+		{
+			if (c == '<')
+			{
+				if (!readTag()) {
+					return null;
+				}
+			}
+			else append((char) c);
+		}
+		// documents are not guaranteed to close all list items
+		if (section != null) {
+			result.append(section);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Read next tag and update extraction state.
+	 *
+	 * @return {@code false} if the tag is an anchor in unsupported position.
+	 */
+	private boolean readTag() throws IOException {
+
+		StringBuilder tag = new StringBuilder("<");
+		int c;
+		char quote = 0;
+		while ((c = read()) != -1)
+		{
+			tag.append((char) c);
+			if (tag.length() == 4 && tag.toString().equals("<!--"))
+			{
+				readUntil(tag, "-->");
+				append(tag);
+				return true;
+			}
+			if (quote != 0)
+			{
+				if (c == quote) {
+					quote = 0;
+				}
+			}
+			else if (c == '"' || c == '\'') {
+				quote = (char) c;
+			}
+			else if (c == '>') {
+				break;
+			}
+		}
+		boolean closing = tag.length() > 1 && tag.charAt(1) == '/';
+		String name = getTagName(tag, closing ? 2 : 1);
+		if (!closing && RAW_TEXT_ELEMENTS.contains(name)) {
+			readUntil(tag, "</" + name + '>');
+		}
+		if (section != null)
+		{
+			section.append(tag);
+			if (name.equals("li"))
+			{
+				sectionDepth += closing ? -1 : 1;
+				if (sectionDepth == 0)
+				{
+					result.append(section).append('\n');
+					section = null;
+				}
+			}
+		}
+		else if (name.equals("li"))
+		{
+			pending = closing ? null : tag;
+			pendingDepth = 0;
+		}
+		else if (!closing && name.equals("a") && anchors.remove(getAttribute(tag, "name")))
+		{
+			if (pending == null || pendingDepth != 0) {
+				return false;
+			}
+			section = pending.append(tag);
+			sectionDepth = 1;
+			pending = null;
+		}
+		else if (pending != null)
+		{
+			pending.append(tag);
+			boolean selfClosing = tag.length() > 1 && tag.charAt(tag.length() - 2) == '/';
+			if (!name.isEmpty() && !selfClosing && !VOID_ELEMENTS.contains(name)) {
+				pendingDepth += closing ? -1 : 1;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Read content until it ends with given terminator. Terminator is matched ignoring case.
+	 */
+	private void readUntil(StringBuilder text, String terminator) throws IOException {
+
+		char last = terminator.charAt(terminator.length() - 1);
+		int c;
+		while ((c = read()) != -1)
+		{
+			text.append((char) c);
+			if (c == last && endsWithIgnoreCase(text, terminator)) {
+				break;
+			}
+		}
+	}
+
+	private void append(char c) {
+
+		if (section != null) {
+			section.append(c);
+		}
+		else if (pending != null) {
+			pending.append(c);
+		}
+	}
+
+	private void append(CharSequence text) {
+
+		if (section != null) {
+			section.append(text);
+		}
+		else if (pending != null) {
+			pending.append(text);
+		}
+	}
+
+	private int read() throws IOException {
+
+		if (position == limit)
+		{
+			limit = reader.read(buffer, 0, buffer.length);
+			position = 0;
+			if (limit <= 0)
+			{
+				limit = 0;
+				return -1;
+			}
+		}
+		return buffer[position++];
+	}
+
+	private static String getTagName(CharSequence tag, int start) {
+
+		int end = start;
+		while (end < tag.length() && Character.isLetterOrDigit(tag.charAt(end))) {
+			end++;
+		}
+		return tag.subSequence(start, end).toString().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Returns value of attribute with given name or an empty string if tag has no such attribute.
+	 */
+	private static String getAttribute(CharSequence tag, String attribute) {
+
+		String text = tag.toString();
+		String lowerText = text.toLowerCase(Locale.ROOT);
+		int index = 0;
+		while ((index = lowerText.indexOf(attribute, index)) != -1)
+		{
+			int next = index + attribute.length();
+			boolean isName = Character.isWhitespace(text.charAt(index - 1));
+			while (next < text.length() && Character.isWhitespace(text.charAt(next))) {
+				next++;
+			}
+			if (isName && next < text.length() && text.charAt(next) == '=')
+			{
+				next++;
+				while (next < text.length() && Character.isWhitespace(text.charAt(next))) {
+					next++;
+				}
+				if (next == text.length()) {
+					return "";
+				}
+				char quote = text.charAt(next);
+				if (quote == '"' || quote == '\'')
+				{
+					int end = text.indexOf(quote, next + 1);
+					return text.substring(next + 1, end != -1 ? end : text.length());
+				}
+				int end = next;
+				while (end < text.length() && !Character.isWhitespace(text.charAt(end))
+						&& text.charAt(end) != '>') {
+					end++;
+				}
+				return text.substring(next, end);
+			}
+			index = next;
+		}
+		return "";
+	}
+
+	private static boolean endsWithIgnoreCase(CharSequence text, String suffix) {
+
+		int offset = text.length() - suffix.length();
+		if (offset < 0) {
+			return false;
+		}
+		for (int i = 0; i < suffix.length(); i++)
+		{
+			char c = Character.toLowerCase(text.charAt(offset + i));
+			if (c != Character.toLowerCase(suffix.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -17,19 +17,23 @@
  */
 package io.cocolabs.pz.zdoc.doc;
 
-import java.io.IOException;
+import java.io.*;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.commons.io.FilenameUtils;
 import org.jetbrains.annotations.Nullable;
-import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
 
 import io.cocolabs.pz.zdoc.Main;
+import io.cocolabs.pz.zdoc.logger.Logger;
 import io.cocolabs.pz.zdoc.util.Utils;
 
 /**
@@ -37,39 +41,82 @@ import io.cocolabs.pz.zdoc.util.Utils;
  */
 public class ZomboidAPIDoc {
 
-	private static final URL API_URL = Utils.getURL("https://projectzomboid.com/modding");
+	static final URL API_URL = Utils.getURL("https://projectzomboid.com/modding");
 
 	private final Document document;
 	private final String name;
 
+	/** Named anchors in document mapped by anchor name. */
+	private final Map<String, Element> anchors;
+
 	private ZomboidAPIDoc(Document document, String name) {
 		this.document = document;
 		this.name = name;
+		this.anchors = indexAnchors(document);
+	}
+
+	/**
+	 * Index all named anchors in given document. When multiple anchors share
+	 * the same name only the first one in document order is indexed.
+	 */
+	private static Map<String, Element> indexAnchors(Document document) {
+
+		Map<String, Element> result = new HashMap<>();
+		for (Element element : document.getElementsByAttribute("name"))
+		{
+			if (element.tagName().equals("a")) {
+				result.putIfAbsent(element.attr("name"), element);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Parse Project Zomboid API page for given path from raw {@code HTML} content.
+	 * The document base URI is set to the official modding API {@code URL} of the
+	 * page so that hyperlinks can be resolved regardless of where content came from.
+	 *
+	 * @param content stream of raw {@code HTML} content.
+	 * @param path path to API page <i>(does not need to have an extension)</i>.
+	 * @return new {@code ZomboidDoc} instance wrapping a parsed {@code HTML} document.
+	 *
+	 * @throws IOException if an I/O error occurred while reading content.
+	 */
+	public static ZomboidAPIDoc parsePage(InputStream content, Path path) throws IOException {
+
+		String baseUri = resolveURL(path.toString().replace('\\', '/')).toString();
+		return new ZomboidAPIDoc(Jsoup.parse(content, null, baseUri), path.getFileName().toString());
 	}
 
 	/**
-	 * Get Project Zomboid API page from resolved {@code URL} for given path.
+	 * Parse only sections marked with given anchors from raw {@code HTML} content of
+	 * Project Zomboid API page. Content is read as a stream and everything outside the
+	 * requested sections is discarded, which is considerably faster than parsing the
+	 * whole page when only member details are needed. If the page does not follow the
+	 * expected JavaDoc layout the whole page is parsed instead.
 	 *
+	 * @param content raw {@code HTML} content encoded with {@link Main#CHARSET}.
 	 * @param path path to API page <i>(does not need to have an extension)</i>.
+	 * @param anchors names of anchors that mark sections to parse (ex. {@code method.detail}).
 	 * @return new {@code ZomboidDoc} instance wrapping a parsed {@code HTML} document
-	 * 		representing API page for given path, or {@code null} if the API website
-	 * 		returned status code {@code 404} (page not found).
+	 * 		that contains only the requested sections.
 	 *
-	 * @throws IOException if {@link Jsoup} encountered an error while executing GET request.
+	 * @throws IOException if an I/O error occurred while reading content.
+	 * @see #parsePage(InputStream, Path)
 	 */
-	public static @Nullable ZomboidAPIDoc getPage(Path path) throws IOException {
+	public static ZomboidAPIDoc parseSections(byte[] content, Path path, String... anchors) throws IOException {
 
-		try {
-			String apiUrl = resolveURL(path.toString().replace('\\', '/')).toString();
-			return new ZomboidAPIDoc(Jsoup.connect(apiUrl).get(), path.getFileName().toString());
+		String sections;
+		try (Reader reader = new InputStreamReader(new ByteArrayInputStream(content), Main.CHARSET)) {
+			sections = SectionExtractor.extract(reader, Arrays.asList(anchors));
 		}
-		catch (IOException e)
+		if (sections == null)
 		{
-			if (e instanceof HttpStatusException && ((HttpStatusException) e).getStatusCode() == 404) {
-				return null;
-			}
-			else throw e;
+			Logger.debug("Unexpected layout of API page %s, parsing whole page", path);
+			return parsePage(new ByteArrayInputStream(content), path);
 		}
+		String baseUri = resolveURL(path.toString().replace('\\', '/')).toString();
+		return new ZomboidAPIDoc(Jsoup.parseBodyFragment(sections, baseUri), path.getFileName().toString());
 	}
 
 	/**
@@ -111,11 +158,23 @@ public class ZomboidAPIDoc {
 			}
 			else return url;
 		}
+		else return resolveURL(API_URL, path);
+	}
+
+	/**
+	 * Resolve API url from the given local file path by concatenating
+	 * it to the end of the given modding API host {@code URL}.
+	 *
+	 * @throws IllegalArgumentException if the given path is not a valid {@code Path} object.
+	 * @see #resolveURL(String)
+	 */
+	static URL resolveURL(URL apiHost, String path) {
+
 		Path pPath = Utils.getPathOrNull(path);
 		if (pPath != null)
 		{
 			String ext = FilenameUtils.getExtension(pPath.getFileName().toString());
-			return Utils.getURL(API_URL, "modding", ext.equals("html") ? path : path + ".html");
+			return Utils.getURL(apiHost, "modding", ext.equals("html") ? path : path + ".html");
 		}
 		else throw new IllegalArgumentException(String.format("Cannot resolve api URL - " +
 				"argument \"%s\" is not a valid Path or URL", path));
@@ -158,6 +217,16 @@ public class ZomboidAPIDoc {
 		return true;
 	}
 
+	/**
+	 * Returns anchor element with given name from index built when the document was loaded.
+	 *
+	 * @param name value of anchor {@code name} attribute (ex. {@code method.detail}).
+	 * @return first anchor with given name in document order or {@code null} if none was found.
+	 */
+	public @Nullable Element getAnchor(String name) {
+		return anchors.get(name);
+	}
+
 	public Document getDocument() {
 		return document;
 	}
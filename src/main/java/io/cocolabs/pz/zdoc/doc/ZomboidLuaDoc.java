@@ -17,27 +17,23 @@
  */
 package io.cocolabs.pz.zdoc.doc;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.*;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.jetbrains.annotations.UnmodifiableView;
 
 import com.google.common.base.Splitter;
 
-import io.cocolabs.pz.zdoc.Main;
 import io.cocolabs.pz.zdoc.compile.JavaCompiler;
-import io.cocolabs.pz.zdoc.compile.LuaCompiler;
 import io.cocolabs.pz.zdoc.element.IMember;
 import io.cocolabs.pz.zdoc.element.lua.Annotated;
 import io.cocolabs.pz.zdoc.element.lua.LuaClass;
 import io.cocolabs.pz.zdoc.element.lua.LuaField;
 import io.cocolabs.pz.zdoc.element.lua.LuaMethod;
 import io.cocolabs.pz.zdoc.lang.lua.EmmyLua;
-import io.cocolabs.pz.zdoc.logger.Logger;
 
 public class ZomboidLuaDoc implements ZomboidDoc {
 
@@ -55,20 +51,20 @@ public class ZomboidLuaDoc implements ZomboidDoc {
 		this(clazz, new ArrayList<>(), new HashSet<>());
 	}
 
-	private static void appendAnnotations(StringBuilder sb, Annotated element) {
+	private static void appendAnnotations(Appendable out, Annotated element) throws IOException {
 
 		List<EmmyLua> annotations = element.getAnnotations();
 		if (annotations.size() > 0)
 		{
-			sb.append(annotations.get(0).toString());
+			out.append(annotations.get(0).toString());
 			for (int i = 1; i < annotations.size(); i++) {
-				sb.append('\n').append(annotations.get(i).toString());
+				out.append('\n').append(annotations.get(i).toString());
 			}
-			sb.append('\n');
+			out.append('\n');
 		}
 	}
 
-	private static void appendComments(StringBuilder sb, IMember member) {
+	private static void appendComments(Appendable out, IMember member) throws IOException {
 
 		String comment = member.getComment();
 		if (!StringUtils.isBlank(comment))
@@ -77,59 +73,63 @@ public class ZomboidLuaDoc implements ZomboidDoc {
 			int commentCount = comments.size();
 			if (commentCount > 0)
 			{
-				sb.append("---").append(comments.get(0).trim());
+				out.append("---").append(comments.get(0).trim());
 				for (int i = 1; i < commentCount; i++) {
-					sb.append("\n---\n---").append(comments.get(i).trim());
+					out.append("\n---\n---").append(comments.get(i).trim());
 				}
-				sb.append('\n');
+				out.append('\n');
 			}
 		}
 	}
 
-	public static void writeGlobalTypesToFile(File file) throws IOException {
+	/**
+	 * Write declarations of given global lua types to given {@code Writer}.
+	 *
+	 * @throws IOException if an I/O error occurred while writing declarations.
+	 */
+	public static void writeGlobalTypes(Writer writer, Set<LuaClass> globalTypes) throws IOException {
 
-		Logger.detail("Writing global lua types to file...");
-		StringBuilder sb = new StringBuilder();
-		Set<LuaClass> globalTypes = LuaCompiler.getGlobalTypes();
 		for (LuaClass type : globalTypes)
 		{
-			ZomboidLuaDoc.appendAnnotations(sb, type);
-			sb.append(type.getConventionalName()).append(" = {}\n\n");
+			ZomboidLuaDoc.appendAnnotations(writer, type);
+			writer.append(type.getConventionalName()).append(" = {}\n\n");
 		}
-		FileUtils.write(file, sb.toString(), Main.CHARSET, false);
-		Logger.info("Compiled %d global lua types", globalTypes.size());
 	}
 
-	public void writeToFile(File file) throws IOException {
+	/**
+	 * Write this lua document to given {@code Writer}. Document is written
+	 * one element at a time and is never rendered in memory as a whole.
+	 *
+	 * @throws IOException if an I/O error occurred while writing document.
+	 */
+	public void writeTo(Writer writer) throws IOException {
 
-		Logger.detail("Writing %s to %s...", getName(), file.getName());
-		StringBuilder sb = new StringBuilder();
-
-		ZomboidLuaDoc.appendAnnotations(sb, clazz);
+		ZomboidLuaDoc.appendAnnotations(writer, clazz);
 		// TODO: static fields should be written as actual fields (not just annotations)
 		for (LuaField field : fields) {
-			ZomboidLuaDoc.appendAnnotations(sb, field);
+			ZomboidLuaDoc.appendAnnotations(writer, field);
 		}
-		sb.append(clazz.getConventionalName()).append(" = {}\n\n");
+		writer.append(clazz.getConventionalName()).append(" = {}\n");
+
+		// global methods need to be declared outside tables
+		String parentType = clazz.getParentType();
+		boolean isGlobal = parentType != null && parentType.equals(JavaCompiler.GLOBAL_OBJECT_CLASS);
 
+		// methods are separated by blank line and file ends with a single new line
 		for (LuaMethod method : methods)
 		{
-			ZomboidLuaDoc.appendComments(sb, method);
-			ZomboidLuaDoc.appendAnnotations(sb, method);
-
-			sb.append("function ");
+			writer.append('\n');
+			ZomboidLuaDoc.appendComments(writer, method);
+			ZomboidLuaDoc.appendAnnotations(writer, method);
 
-			// global methods need to be declared outside tables
-			String parentType = clazz.getParentType();
-			if (parentType == null || !parentType.equals(JavaCompiler.GLOBAL_OBJECT_CLASS)) {
-				sb.append(clazz.getConventionalName()).append(':');
+			writer.append("function ");
+			if (!isGlobal) {
+				writer.append(clazz.getConventionalName()).append(':');
 			}
-			sb.append(method.getName()).append('(');
-			method.appendParameterSignature(sb);
-			sb.append(") end\n\n");
+			writer.append(method.getName()).append('(');
+			method.appendParameterSignature(writer);
+			writer.append(") end\n");
 		}
-		sb.deleteCharAt(sb.length() - 1);
-		FileUtils.write(file, sb.toString(), Main.CHARSET, false);
 	}
 
 	private Set<LuaMethod> overloadMethods(Set<LuaMethod> luaMethods) {
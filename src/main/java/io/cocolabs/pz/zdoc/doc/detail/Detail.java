@@ -19,7 +19,6 @@ package io.cocolabs.pz.zdoc.doc.detail;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
 import java.util.Set;
 
 import org.apache.commons.io.FilenameUtils;
@@ -30,6 +29,9 @@ import org.jsoup.nodes.TextNode;
 import org.jsoup.select.Elements;
 import org.springframework.util.ClassUtils;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+
 import io.cocolabs.pz.zdoc.doc.ZomboidAPIDoc;
 import io.cocolabs.pz.zdoc.element.IMember;
 
@@ -39,20 +41,23 @@ public abstract class Detail<T extends IMember> {
 	private final ZomboidAPIDoc document;
 	private final List<T> entries;
 
+	/** Parsed entries mapped by entry name in parsing order. */
+	private final ListMultimap<String, T> entriesByName = ArrayListMultimap.create();
+
 	Detail(String name, ZomboidAPIDoc document) throws DetailParsingException {
 		this.name = name;
 		this.document = document;
 		this.entries = Collections.unmodifiableList(parse());
+		for (T entry : entries) {
+			entriesByName.put(entry.getName(), entry);
+		}
 	}
 
 	Elements getDetail() {
 
-		Optional<Element> detailElement = document.getDocument().getElementsByTag("a")
-				.stream().filter(e -> e.hasAttr("name") &&
-						e.attr("name").equals(name)).findFirst();
-
-		if (detailElement.isPresent()) {
-			return detailElement.get().parent().getElementsByTag("ul");
+		Element detailElement = document.getAnchor(name);
+		if (detailElement != null) {
+			return detailElement.parent().getElementsByTag("ul");
 		}
 		else return new Elements();
 	}
@@ -107,10 +112,24 @@ public abstract class Detail<T extends IMember> {
 		return element;
 	}
 
+	/**
+	 * Returns API document this detail was parsed from.
+	 */
+	public ZomboidAPIDoc getDocument() {
+		return document;
+	}
+
 	public @UnmodifiableView List<T> getEntries() {
 		return entries;
 	}
 
+	/**
+	 * Returns entries with given name in parsing order.
+	 */
+	@UnmodifiableView List<T> getEntriesByName(String name) {
+		return Collections.unmodifiableList(entriesByName.get(name));
+	}
+
 	public abstract Set<T> getEntries(String name);
 
 	protected abstract List<T> parse() throws DetailParsingException;
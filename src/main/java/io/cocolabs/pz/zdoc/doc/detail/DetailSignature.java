@@ -38,7 +38,7 @@ abstract class DetailSignature {
 	 * @param text {@code String} to normalize.
 	 * @return normalized text.
 	 */
-	private static String normalizeSignature(String text) {
+	static String normalizeSignature(String text) {
 
 		StringBuilder sb = new StringBuilder();
 		char lastChar = 0;
@@ -72,6 +72,21 @@ abstract class DetailSignature {
 		return normalizeSignature(element.text());
 	}
 
+	/**
+	 * Append detail comment to the end of given signature comment on a new line.
+	 *
+	 * @param comment comment parsed from signature text.
+	 * @param detailComment comment parsed from detail block.
+	 * @return combined comment.
+	 */
+	static String appendDetailComment(String comment, String detailComment) {
+
+		if (detailComment != null && !detailComment.isEmpty()) {
+			return !comment.isEmpty() ? comment + '\n' + detailComment : detailComment;
+		}
+		return comment;
+	}
+
 	@Override
 	public String toString() {
 		return signature;
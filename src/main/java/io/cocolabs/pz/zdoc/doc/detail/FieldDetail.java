@@ -40,8 +40,11 @@ import io.cocolabs.pz.zdoc.logger.Logger;
 
 public class FieldDetail extends Detail<JavaField> {
 
+	/** Name of the anchor that marks detail section in API page. */
+	public static final String ANCHOR_NAME = "field.detail";
+
 	public FieldDetail(ZomboidAPIDoc document) throws DetailParsingException {
-		super("field.detail", document);
+		super(ANCHOR_NAME, document);
 	}
 
 	@Override
@@ -79,7 +82,7 @@ public class FieldDetail extends Detail<JavaField> {
 				if (eSignature == null) {
 					throw new DetailParsingException("Unable to find field signature for field: " + name);
 				}
-				signature = new Signature(qualifyZomboidClassElements(eSignature), fieldComment);
+				signature = Signature.parse(qualifyZomboidClassElements(eSignature), fieldComment);
 			}
 			catch (DetailParsingException e)
 			{
@@ -97,7 +100,9 @@ public class FieldDetail extends Detail<JavaField> {
 	}
 
 	public @Nullable JavaField getEntry(String name) {
-		return getEntries().stream().filter(e -> e.getName().equals(name)).findFirst().orElse(null);
+
+		List<JavaField> entries = getEntriesByName(name);
+		return !entries.isEmpty() ? entries.get(0) : null;
 	}
 
 	@Override
@@ -107,6 +112,8 @@ public class FieldDetail extends Detail<JavaField> {
 
 	static class Signature extends DetailSignature {
 
+		private static final SignatureCache<Signature> CACHE = new SignatureCache<>();
+
 		final MemberModifier modifier;
 		final String type, name, comment;
 
@@ -168,18 +175,31 @@ public class FieldDetail extends Detail<JavaField> {
 				sb.deleteCharAt(sb.length() - 1);
 				sComment = sb.toString();
 			}
-			if (detailComment != null && !detailComment.isEmpty()) {
-				sComment += !sComment.isEmpty() ? '\n' + detailComment : detailComment;
-			}
-			this.comment = sComment;
+			this.comment = appendDetailComment(sComment, detailComment);
 		}
 
 		Signature(String signatureText) throws SignatureParsingException {
 			this(signatureText, "");
 		}
 
-		private Signature(Element element, String comment) throws SignatureParsingException {
-			this(element.text(), comment);
+		private Signature(Signature signature, String detailComment) {
+			super(signature.signature);
+			this.modifier = signature.modifier;
+			this.type = signature.type;
+			this.name = signature.name;
+			this.comment = appendDetailComment(signature.comment, detailComment);
+		}
+
+		/**
+		 * Parse signature from given element. Identical signatures are parsed only once.
+		 *
+		 * @param element element containing signature text.
+		 * @param detailComment comment parsed from detail block.
+		 */
+		static Signature parse(Element element, String detailComment) throws SignatureParsingException {
+
+			Signature signature = CACHE.get(normalizeSignature(element.text()), Signature::new);
+			return !detailComment.isEmpty() ? new Signature(signature, detailComment) : signature;
 		}
 	}
 }
@@ -22,10 +22,13 @@ import java.util.stream.Collectors;
 
 import org.apache.commons.collections4.list.SetUniqueList;
 import org.apache.logging.log4j.util.Strings;
+import org.jetbrains.annotations.Nullable;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
 import com.google.common.base.Splitter;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
 
 import io.cocolabs.pz.zdoc.doc.ZomboidAPIDoc;
 import io.cocolabs.pz.zdoc.element.java.JavaClass;
@@ -39,8 +42,17 @@ import io.cocolabs.pz.zdoc.util.ParseUtils;
 
 public class MethodDetail extends Detail<JavaMethod> {
 
+	/** Name of the anchor that marks detail section in API page. */
+	public static final String ANCHOR_NAME = "method.detail";
+
+	/** Parsed entries mapped by name and erased parameter types. */
+	private final ListMultimap<Key, JavaMethod> entriesBySignature = ArrayListMultimap.create();
+
 	public MethodDetail(ZomboidAPIDoc document) throws DetailParsingException {
-		super("method.detail", document);
+		super(ANCHOR_NAME, document);
+		for (JavaMethod entry : getEntries()) {
+			entriesBySignature.put(new Key(entry), entry);
+		}
 	}
 
 	@Override
@@ -158,7 +170,7 @@ public class MethodDetail extends Detail<JavaMethod> {
 			if (!methodComment.isEmpty()) {
 				Logger.debug("Parsed detail comment: \"" + result + "\"");
 			}
-			Signature signature = new Signature(qualifyZomboidClassElements(eSignature), methodComment);
+			Signature signature = Signature.parse(qualifyZomboidClassElements(eSignature), methodComment);
 			JavaClass type = TypeSignatureParser.parse(signature.returnType);
 			if (type == null)
 			{
@@ -172,9 +184,10 @@ public class MethodDetail extends Detail<JavaMethod> {
 			if (!signature.params.isEmpty())
 			{
 				try {
-					MethodSignatureParser parser = new MethodSignatureParser(signature.params);
-					rawParams = parser.parse();
-					isVarArgs = parser.isVarArg();
+					MethodSignatureParser.Parameters parsed =
+							MethodSignatureParser.parseParameters(signature.params);
+					rawParams = parsed.params;
+					isVarArgs = parsed.isVarArg;
 				}
 				catch (SignatureParsingException e)
 				{
@@ -204,11 +217,65 @@ public class MethodDetail extends Detail<JavaMethod> {
 
 	@Override
 	public Set<JavaMethod> getEntries(String name) {
-		return getEntries().stream().filter(e -> e.getName().equals(name)).collect(Collectors.toSet());
+		return new HashSet<>(getEntriesByName(name));
+	}
+
+	/**
+	 * Returns entry that matches given method. Candidate entries are found by method
+	 * name and erased parameter types, and then compared with given method using
+	 * {@link JavaMethod#equals(JavaMethod, boolean) shallow comparison}.
+	 *
+	 * @param method method to find matching entry for.
+	 * @return first matching entry in parsing order or {@code null} if no entry matches.
+	 */
+	public @Nullable JavaMethod getEntry(JavaMethod method) {
+
+		for (JavaMethod entry : entriesBySignature.get(new Key(method)))
+		{
+			if (entry.equals(method, true)) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Method lookup key made of method name and erased parameter types.
+	 */
+	private static final class Key {
+
+		private final String name;
+		private final List<Class<?>> paramTypes;
+
+		private Key(JavaMethod method) {
+			this.name = method.getName();
+			this.paramTypes = method.getParams().stream()
+					.map(p -> p.getType().getClazz()).collect(Collectors.toList());
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) obj;
+			return name.equals(key.name) && paramTypes.equals(key.paramTypes);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * name.hashCode() + paramTypes.hashCode();
+		}
 	}
 
 	static class Signature extends DetailSignature {
 
+		private static final SignatureCache<Signature> CACHE = new SignatureCache<>();
+
 		final MemberModifier modifier;
 		final String returnType, name, params, comment;
 
@@ -317,18 +384,32 @@ public class MethodDetail extends Detail<JavaMethod> {
 				String commentSuffix = "This method is annotated as " + annotation;
 				tComment = tComment.isEmpty() ? commentSuffix : tComment + '\n' + commentSuffix;
 			}
-			if (detailComment != null && !detailComment.isEmpty()) {
-				tComment += !tComment.isEmpty() ? '\n' + detailComment : detailComment;
-			}
-			this.comment = tComment;
+			this.comment = appendDetailComment(tComment, detailComment);
 		}
 
 		Signature(String signatureText) throws SignatureParsingException {
 			this(signatureText, "");
 		}
 
-		private Signature(Element element, String comment) throws SignatureParsingException {
-			this(element.text(), comment);
+		private Signature(Signature signature, String detailComment) {
+			super(signature.signature);
+			this.modifier = signature.modifier;
+			this.returnType = signature.returnType;
+			this.name = signature.name;
+			this.params = signature.params;
+			this.comment = appendDetailComment(signature.comment, detailComment);
+		}
+
+		/**
+		 * Parse signature from given element. Identical signatures are parsed only once.
+		 *
+		 * @param element element containing signature text.
+		 * @param detailComment comment parsed from detail block.
+		 */
+		static Signature parse(Element element, String detailComment) throws SignatureParsingException {
+
+			Signature signature = CACHE.get(normalizeSignature(element.text()), Signature::new);
+			return !detailComment.isEmpty() ? new Signature(signature, detailComment) : signature;
 		}
 	}
 }
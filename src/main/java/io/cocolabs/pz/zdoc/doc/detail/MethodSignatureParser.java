@@ -17,20 +17,40 @@
  */
 package io.cocolabs.pz.zdoc.doc.detail;
 
+import java.util.Collections;
 import java.util.List;
 
+import org.jetbrains.annotations.Unmodifiable;
+
 import io.cocolabs.pz.zdoc.element.java.JavaClass;
 import io.cocolabs.pz.zdoc.element.java.JavaParameter;
-import io.cocolabs.pz.zdoc.util.Utils;
+import io.cocolabs.pz.zdoc.util.ClassResolver;
 
 public class MethodSignatureParser extends SignatureParser<JavaParameter> {
 
+	private static final SignatureCache<Parameters> CACHE = new SignatureCache<>();
+
 	private boolean isVarArg = false;
 
 	MethodSignatureParser(String signature) {
 		super(signature);
 	}
 
+	/**
+	 * Parse method parameters from given signature. Identical signatures
+	 * are parsed only once and share the same list of parsed parameters.
+	 *
+	 * @param signature normalized method parameters signature.
+	 *
+	 * @throws SignatureParsingException if signature could not be parsed.
+	 */
+	static Parameters parseParameters(String signature) throws SignatureParsingException {
+		return CACHE.get(signature, s -> {
+			MethodSignatureParser parser = new MethodSignatureParser(s);
+			return new Parameters(parser.parse(), parser.isVarArg());
+		});
+	}
+
 	@Override
 	List<JavaParameter> parse() throws SignatureParsingException {
 
@@ -43,13 +63,11 @@ public class MethodSignatureParser extends SignatureParser<JavaParameter> {
 			{
 				index.incrementAndGet();
 				String className = flush();
-				try {
-					Class<?> typeClass = Utils.getClassForName(className);
-					type = new JavaClass(typeClass, new TypeSignatureParser(signature, index).parse());
-				}
-				catch (ClassNotFoundException e) {
-					throwExceptionUnknownClass(className);
+				Class<?> typeClass = ClassResolver.resolve(className);
+				if (typeClass == null) {
+					throw unknownClassException(className);
 				}
+				type = new JavaClass(typeClass, new TypeSignatureParser(signature, index).parse());
 			}
 			else if (c == ',')
 			{
@@ -63,29 +81,26 @@ public class MethodSignatureParser extends SignatureParser<JavaParameter> {
 				if (type == null || builder.length() != 0)
 				{
 					String className = flush();
-					try {
-						type = new JavaClass(Utils.getClassForName(className));
+					Class<?> typeClass = ClassResolver.resolve(className);
+					if (typeClass != null) {
+						type = new JavaClass(typeClass);
 					}
-					catch (ClassNotFoundException e1)
+					// parameter is a variadic argument
+					else if (className.endsWith("..."))
 					{
-						// parameter is a variadic argument
-						if (className.endsWith("..."))
+						// skip if builder string was already consumed by type
+						if (className.length() != 3)
 						{
-							// skip if builder string was already consumed by type
-							if (className.length() != 3)
-							{
-								try {
-									className = className.substring(0, className.length() - 3);
-									type = new JavaClass(Utils.getClassForName(className));
-								}
-								catch (ClassNotFoundException e2) {
-									throwExceptionUnknownClass(className);
-								}
+							className = className.substring(0, className.length() - 3);
+							typeClass = ClassResolver.resolve(className);
+							if (typeClass == null) {
+								throw unknownClassException(className);
 							}
-							isVarArg = true;
+							type = new JavaClass(typeClass);
 						}
-						else throwExceptionUnknownClass(className);
+						isVarArg = true;
 					}
+					else throw unknownClassException(className);
 				}
 			}
 			else if (c != '>') {
@@ -109,7 +124,21 @@ public class MethodSignatureParser extends SignatureParser<JavaParameter> {
 		return isVarArg;
 	}
 
-	private void throwExceptionUnknownClass(String className) throws SignatureParsingException {
-		throw new SignatureParsingException(signature, "unknown class: " + className);
+	/**
+	 * This class represents an immutable list of parsed method parameters.
+	 */
+	static final class Parameters {
+
+		final @Unmodifiable List<JavaParameter> params;
+		final boolean isVarArg;
+
+		private Parameters(List<JavaParameter> params, boolean isVarArg) {
+			this.params = Collections.unmodifiableList(params);
+			this.isVarArg = isVarArg;
+		}
+	}
+
+	private SignatureParsingException unknownClassException(String className) {
+		return new SignatureParsingException(signature, "unknown class: " + className);
 	}
 }
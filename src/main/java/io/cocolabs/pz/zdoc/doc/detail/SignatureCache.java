@@ -0,0 +1,107 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.doc.detail;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.Validate;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * <p>This class interns results of parsing signatures so that identical signatures found
+ * in different API documents are parsed only once and share the same parsed instance.
+ * Signatures are identified by normalized signature text, which means that all cached
+ * results have to be immutable.</p>
+ * <p>Signatures that failed to parse are not cached and will be parsed again next time.
+ * The number of cached signatures is bounded, when the cache is full least recently
+ * used signatures are evicted and will be parsed again when they are found next.</p>
+ *
+ * @param <T> type of parsed signature.
+ */
+final class SignatureCache<T> {
+
+	/** Maximum number of cached signatures used when not specified. */
+	static final int DEFAULT_MAX_SIZE = 16384;
+
+	private final Cache<String, T> entries;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * @param maxSize maximum number of cached signatures.
+	 *
+	 * @throws IllegalArgumentException if maximum size is not positive.
+	 */
+	SignatureCache(int maxSize) {
+
+		Validate.isTrue(maxSize > 0, "Maximum signature cache size must be positive (%d)", maxSize);
+		this.entries = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+	}
+
+	SignatureCache() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Returns parsed signature for given signature text, parsing it with given parser
+	 * if signature was not parsed before.
+	 *
+	 * @param signature normalized signature text.
+	 * @param parser parser used to parse signature that is not in cache.
+	 *
+	 * @throws SignatureParsingException if signature is not in cache and could not be parsed.
+	 */
+	T get(String signature, Parser<T> parser) throws SignatureParsingException {
+
+		T result = entries.getIfPresent(signature);
+		if (result != null)
+		{
+			hits.incrementAndGet();
+			return result;
+		}
+		misses.incrementAndGet();
+		result = parser.parse(signature);
+
+		// another thread could have parsed the same signature in the meantime
+		T previous = entries.asMap().putIfAbsent(signature, result);
+		return previous != null ? previous : result;
+	}
+
+	/**
+	 * Returns number of signatures currently in cache.
+	 */
+	long size() {
+		return entries.size();
+	}
+
+	long getHitCount() {
+		return hits.get();
+	}
+
+	long getMissCount() {
+		return misses.get();
+	}
+
+	@FunctionalInterface
+	interface Parser<T> {
+		T parse(String signature) throws SignatureParsingException;
+	}
+}
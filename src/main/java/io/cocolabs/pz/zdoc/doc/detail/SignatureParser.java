@@ -26,8 +26,8 @@ import org.jetbrains.annotations.Nullable;
 import io.cocolabs.pz.zdoc.element.SignatureToken;
 import io.cocolabs.pz.zdoc.element.java.JavaClass;
 import io.cocolabs.pz.zdoc.logger.Logger;
+import io.cocolabs.pz.zdoc.util.ClassResolver;
 import io.cocolabs.pz.zdoc.util.ParseUtils;
-import io.cocolabs.pz.zdoc.util.Utils;
 
 abstract class SignatureParser<T extends SignatureToken> {
 
@@ -48,13 +48,14 @@ abstract class SignatureParser<T extends SignatureToken> {
 	}
 
 	static @Nullable JavaClass getClassForName(String name) {
-		try {
-			return new JavaClass(Utils.getClassForName(name));
-		}
-		catch (ClassNotFoundException e) {
+
+		Class<?> result = ClassResolver.resolve(name);
+		if (result == null)
+		{
 			Logger.debug("Failed to get class for name: " + name);
+			return null;
 		}
-		return null;
+		return new JavaClass(result);
 	}
 
 	String flush() {
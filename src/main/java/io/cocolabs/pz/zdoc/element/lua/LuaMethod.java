@@ -17,6 +17,8 @@
  */
 package io.cocolabs.pz.zdoc.element.lua;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 
 import org.jetbrains.annotations.Nullable;
@@ -94,6 +96,16 @@ public class LuaMethod implements IMethod, Annotated {
 	}
 
 	public void appendParameterSignature(StringBuilder sb) {
+		try {
+			appendParameterSignature((Appendable) sb);
+		}
+		catch (IOException e) {
+			// appending to StringBuilder never throws
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void appendParameterSignature(Appendable sb) throws IOException {
 
 		if (params.size() > 0)
 		{
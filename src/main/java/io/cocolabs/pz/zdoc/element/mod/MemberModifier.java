@@ -61,7 +61,7 @@ public class MemberModifier {
 		return access;
 	}
 
-	@Unmodifiable List<ModifierKey> getModifiers() {
+	public @Unmodifiable List<ModifierKey> getModifiers() {
 		return Collections.unmodifiableList(modifiers);
 	}
 
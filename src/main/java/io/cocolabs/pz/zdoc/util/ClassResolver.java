@@ -0,0 +1,104 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.util;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
+import org.springframework.util.ClassUtils;
+
+/**
+ * <p>This class resolves classes for names and remembers the outcome of each lookup.
+ * Names that could not be resolved are remembered as well so that failed lookups do not
+ * have to be repeated, while classes that were found but failed to load are not remembered
+ * and the error is thrown to caller. Primitive names and array names in source code format
+ * (ex. {@code java.lang.String[]}) are resolved and cached the same way as class names.</p>
+ * <p>The cache is shared by all threads and is never invalidated, which is safe because
+ * classes are always resolved with the default class loader.</p>
+ */
+public final class ClassResolver {
+
+	/** Resolved classes mapped by name; empty value means the class was not found. */
+	private static final ConcurrentMap<String, Optional<Class<?>>> CLASSES = new ConcurrentHashMap<>();
+
+	private static final AtomicLong hits = new AtomicLong();
+	private static final AtomicLong misses = new AtomicLong();
+
+	private ClassResolver() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Returns class for given name.
+	 *
+	 * @param name fully qualified class name, primitive name or array name.
+	 * @return class with given name or {@code null} if no class with given name was found.
+	 *
+	 * @throws LinkageError if class with given name was found but could not be loaded.
+	 * 		Such failures are not cached and the class is loaded again on next lookup.
+	 * @see ClassUtils#forName(String, ClassLoader)
+	 */
+	public static @Nullable Class<?> resolve(String name) {
+
+		Optional<Class<?>> result = CLASSES.get(name);
+		if (result != null)
+		{
+			hits.incrementAndGet();
+			return result.orElse(null);
+		}
+		misses.incrementAndGet();
+		try {
+			result = Optional.of(ClassUtils.forName(name, null));
+		}
+		catch (ClassNotFoundException e) {
+			result = Optional.empty();
+		}
+		/*
+		 * resolve outside of map update to avoid recursive updates
+		 * when class loading triggers another lookup
+		 */
+		Optional<Class<?>> previous = CLASSES.putIfAbsent(name, result);
+		return (previous != null ? previous : result).orElse(null);
+	}
+
+	/**
+	 * Returns number of lookups that were answered from cache.
+	 */
+	public static long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns number of lookups that had to resolve class with class loader.
+	 */
+	public static long getMissCount() {
+		return misses.get();
+	}
+
+	@TestOnly
+	static void clear() {
+
+		CLASSES.clear();
+		hits.set(0);
+		misses.set(0);
+	}
+}
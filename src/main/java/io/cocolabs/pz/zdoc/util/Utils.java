@@ -29,7 +29,6 @@ import java.util.Properties;
 
 import org.apache.commons.io.FilenameUtils;
 import org.jetbrains.annotations.Nullable;
-import org.springframework.util.ClassUtils;
 
 import io.cocolabs.pz.zdoc.Main;
 
@@ -97,8 +96,18 @@ public class Utils {
 		return getURL(url.getProtocol() + "://" + url.getHost());
 	}
 
+	/**
+	 * Returns class for given name. Lookups are cached by {@link ClassResolver}.
+	 *
+	 * @throws ClassNotFoundException if no class with given name was found.
+	 */
 	public static Class<?> getClassForName(String name) throws ClassNotFoundException {
-		return ClassUtils.forName(name, null);
+
+		Class<?> result = ClassResolver.resolve(name);
+		if (result == null) {
+			throw new ClassNotFoundException(name);
+		}
+		return result;
 	}
 
 	public static Properties getProperties(String path) throws IOException {
@@ -22,13 +22,22 @@ import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.apache.commons.cli.ParseException;
+import org.apache.commons.lang3.ArrayUtils;
 import org.jetbrains.annotations.TestOnly;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import io.cocolabs.pz.zdoc.compile.JavaCompiler;
+import io.cocolabs.pz.zdoc.compile.LuaAnnotator;
+import io.cocolabs.pz.zdoc.doc.APIPageCache;
+import io.cocolabs.pz.zdoc.doc.APIPageFetcher;
+import io.cocolabs.pz.zdoc.doc.DocWriterPool;
+import io.cocolabs.pz.zdoc.doc.FetchPolicy;
+
 class CommandLineTest {
 
 	private static final Command[] COMMANDS = Arrays.stream(Command.values())
@@ -100,4 +109,203 @@ class CommandLineTest {
 					CommandLine.parse(command.options, args2).getOutputPath());
 		}
 	}
+
+	@Test
+	void shouldProperlyParseCommandFetchThreads() throws ParseException {
+
+		String[] args = formatAppArgs(Command.COMPILE, "input/path", "output/path");
+		CommandLine cmdLine = CommandLine.parse(Command.COMPILE.options, args);
+		Assertions.assertEquals(APIPageFetcher.DEFAULT_THREADS, cmdLine.getFetchThreads());
+
+		String[] threadArgs = ArrayUtils.addAll(args, "--fetch-threads", "12");
+		cmdLine = CommandLine.parse(Command.COMPILE.options, threadArgs);
+		Assertions.assertEquals(12, cmdLine.getFetchThreads());
+	}
+
+	@Test
+	void shouldThrowExceptionWhenParsingNonPositiveFetchThreads() throws ParseException {
+
+		String[] args = ArrayUtils.addAll(formatAppArgs(Command.COMPILE,
+				"input/path", "output/path"), "--fetch-threads", "0");
+
+		CommandLine cmdLine = CommandLine.parse(Command.COMPILE.options, args);
+		Assertions.assertThrows(IllegalArgumentException.class, cmdLine::getFetchThreads);
+	}
+
+	@Test
+	void shouldProperlyParseCommandAnnotateThreads() throws ParseException {
+
+		String[] args = formatAppArgs(Command.ANNOTATE, "input/path", "output/path");
+		CommandLine cmdLine = CommandLine.parse(Command.ANNOTATE.options, args);
+		Assertions.assertEquals(LuaAnnotator.DEFAULT_PARALLELISM, cmdLine.getAnnotateThreads());
+
+		String[] threadArgs = ArrayUtils.addAll(args, "--annotate-threads", "8");
+		cmdLine = CommandLine.parse(Command.ANNOTATE.options, threadArgs);
+		Assertions.assertEquals(8, cmdLine.getAnnotateThreads());
+	}
+
+	@Test
+	void shouldProperlyParseCommandCompileThreads() throws ParseException {
+
+		String[] args = formatAppArgs(Command.COMPILE, "input/path", "output/path");
+		CommandLine cmdLine = CommandLine.parse(Command.COMPILE.options, args);
+		Assertions.assertEquals(JavaCompiler.DEFAULT_PARALLELISM, cmdLine.getCompileThreads());
+
+		String[] threadArgs = ArrayUtils.addAll(args, "--compile-threads", "6");
+		cmdLine = CommandLine.parse(Command.COMPILE.options, threadArgs);
+		Assertions.assertEquals(6, cmdLine.getCompileThreads());
+
+		String[] invalidArgs = ArrayUtils.addAll(args, "--compile-threads", "0");
+		CommandLine invalidCmdLine = CommandLine.parse(Command.COMPILE.options, invalidArgs);
+		Assertions.assertThrows(IllegalArgumentException.class, invalidCmdLine::getCompileThreads);
+	}
+
+	@Test
+	void shouldProperlyParseCommandWriteThreads() throws ParseException {
+
+		String[] args = formatAppArgs(Command.COMPILE, "input/path", "output/path");
+		CommandLine cmdLine = CommandLine.parse(Command.COMPILE.options, args);
+		Assertions.assertEquals(DocWriterPool.DEFAULT_THREADS, cmdLine.getWriteThreads());
+
+		String[] threadArgs = ArrayUtils.addAll(args, "--write-threads", "2");
+		cmdLine = CommandLine.parse(Command.COMPILE.options, threadArgs);
+		Assertions.assertEquals(2, cmdLine.getWriteThreads());
+
+		String[] invalidArgs = ArrayUtils.addAll(args, "--write-threads", "0");
+		CommandLine invalidCmdLine = CommandLine.parse(Command.COMPILE.options, invalidArgs);
+		Assertions.assertThrows(IllegalArgumentException.class, invalidCmdLine::getWriteThreads);
+	}
+
+	@Test
+	void shouldProperlyParseCommandManifestFile() throws ParseException {
+
+		String[] args = formatAppArgs(Command.COMPILE, "input/path", "output/path");
+		CommandLine cmdLine = CommandLine.parse(Command.COMPILE.options, args);
+		Assertions.assertNull(cmdLine.getManifestFile());
+
+		String[] manifestArgs = ArrayUtils.addAll(args, "--manifest", "output/manifest.txt");
+		cmdLine = CommandLine.parse(Command.COMPILE.options, manifestArgs);
+		Assertions.assertEquals(Paths.get("output/manifest.txt"), cmdLine.getManifestFile());
+	}
+
+	@Test
+	void shouldProperlyParseCommandIncrementalOption() throws ParseException {
+
+		String[] args = formatAppArgs(Command.COMPILE, "input/path", "output/path");
+		Assertions.assertFalse(CommandLine.parse(Command.COMPILE.options, args).isIncremental());
+
+		String[] incrementalArgs = ArrayUtils.addAll(args, "--incremental");
+		Assertions.assertTrue(CommandLine.parse(Command.COMPILE.options, incrementalArgs).isIncremental());
+	}
+
+	@Test
+	void shouldProperlyParseCommandIRFiles() throws ParseException {
+
+		String[] args = formatAppArgs(Command.COMPILE, "input/path", "output/path");
+		CommandLine cmdLine = CommandLine.parse(Command.COMPILE.options, args);
+		Assertions.assertNull(cmdLine.getIRInputFile());
+		Assertions.assertNull(cmdLine.getIROutputFile());
+
+		String[] irArgs = ArrayUtils.addAll(args, "--read-ir", "input.ir", "--write-ir", "output.ir");
+		cmdLine = CommandLine.parse(Command.COMPILE.options, irArgs);
+		Assertions.assertEquals(Paths.get("input.ir"), cmdLine.getIRInputFile());
+		Assertions.assertEquals(Paths.get("output.ir"), cmdLine.getIROutputFile());
+	}
+
+	@Test
+	void shouldProperlyParseCommandScanExposedOption() throws ParseException {
+
+		for (Command command : new Command[]{ Command.COMPILE, Command.FETCH_API })
+		{
+			String[] args = formatAppArgs(command, "input/path", "output/path");
+			Assertions.assertFalse(CommandLine.parse(command.options, args).shouldScanExposed());
+
+			String[] scanArgs = ArrayUtils.addAll(args, "--scan-exposed");
+			Assertions.assertTrue(CommandLine.parse(command.options, scanArgs).shouldScanExposed());
+		}
+	}
+
+	@Test
+	void shouldProperlyParseCommandReadBytecodeOption() throws ParseException {
+
+		String[] args = formatAppArgs(Command.COMPILE, "input/path", "output/path");
+		Assertions.assertFalse(CommandLine.parse(Command.COMPILE.options, args).shouldReadBytecode());
+
+		String[] bytecodeArgs = ArrayUtils.addAll(args, "--read-bytecode");
+		Assertions.assertTrue(CommandLine.parse(Command.COMPILE.options, bytecodeArgs).shouldReadBytecode());
+	}
+
+	@Test
+	void shouldProperlyParseCommandCacheOptions() throws ParseException {
+
+		String[] args = formatAppArgs(Command.COMPILE, "input/path", "output/path");
+		CommandLine cmdLine = CommandLine.parse(Command.COMPILE.options, args);
+		Assertions.assertNull(cmdLine.getCacheDir());
+		Assertions.assertEquals(APIPageCache.DEFAULT_MAX_SIZE, cmdLine.getCacheSize());
+		Assertions.assertEquals(APIPageFetcher.DEFAULT_MAX_AGE, cmdLine.getCacheMaxAge());
+
+		String[] cacheArgs = ArrayUtils.addAll(args, "--cache-dir", "cache/path",
+				"--cache-size", "64", "--cache-max-age", "2");
+		cmdLine = CommandLine.parse(Command.COMPILE.options, cacheArgs);
+		Assertions.assertEquals(Paths.get("cache/path"), cmdLine.getCacheDir());
+		Assertions.assertEquals(64L * 1024 * 1024, cmdLine.getCacheSize());
+		Assertions.assertEquals(TimeUnit.HOURS.toMillis(2), cmdLine.getCacheMaxAge());
+
+		String[] fetchArgs = formatAppArgs(Command.FETCH_API, "input/path", "output/path");
+		cmdLine = CommandLine.parse(Command.FETCH_API.options, ArrayUtils.addAll(fetchArgs, "--cache-max-age", "0"));
+		Assertions.assertEquals(0, cmdLine.getCacheMaxAge());
+
+		cmdLine = CommandLine.parse(Command.COMPILE.options, ArrayUtils.addAll(args, "--cache-max-age", "-1"));
+		Assertions.assertThrows(IllegalArgumentException.class, cmdLine::getCacheMaxAge);
+	}
+
+	@Test
+	void shouldProperlyParseCommandAPISource() throws ParseException {
+
+		String[] args = formatAppArgs(Command.COMPILE, "input/path", "output/path");
+		CommandLine cmdLine = CommandLine.parse(Command.COMPILE.options, args);
+		Assertions.assertNull(cmdLine.getAPISource());
+
+		String[] sourceArgs = ArrayUtils.addAll(args, "--api-source", "api/javadoc.zip");
+		cmdLine = CommandLine.parse(Command.COMPILE.options, sourceArgs);
+		Assertions.assertEquals(Paths.get("api/javadoc.zip"), cmdLine.getAPISource());
+	}
+
+	@Test
+	void shouldProperlyParseCommandFetchPolicy() throws ParseException {
+
+		String[] args = formatAppArgs(Command.COMPILE, "input/path", "output/path");
+		FetchPolicy policy = CommandLine.parse(Command.COMPILE.options, args).getFetchPolicy();
+		Assertions.assertEquals(FetchPolicy.DEFAULT_CONNECT_TIMEOUT, policy.getConnectTimeout());
+		Assertions.assertEquals(FetchPolicy.DEFAULT_READ_TIMEOUT, policy.getReadTimeout());
+		Assertions.assertEquals(FetchPolicy.DEFAULT_RETRIES, policy.getRetries());
+		Assertions.assertEquals(FetchPolicy.DEFAULT_REQUEST_RATE, policy.getRequestRate());
+		Assertions.assertEquals(FetchPolicy.DEFAULT_MAX_REQUESTS, policy.getMaxRequests());
+
+		String[] policyArgs = ArrayUtils.addAll(args, "--fetch-connect-timeout", "5",
+				"--fetch-read-timeout", "15", "--fetch-retries", "0",
+				"--fetch-rate", "2.5", "--fetch-max-requests", "3");
+		policy = CommandLine.parse(Command.COMPILE.options, policyArgs).getFetchPolicy();
+		Assertions.assertEquals(5000, policy.getConnectTimeout());
+		Assertions.assertEquals(15000, policy.getReadTimeout());
+		Assertions.assertEquals(0, policy.getRetries());
+		Assertions.assertEquals(2.5, policy.getRequestRate());
+		Assertions.assertEquals(3, policy.getMaxRequests());
+	}
+
+	@Test
+	void shouldThrowExceptionWhenParsingInvalidFetchPolicy() throws ParseException {
+
+		String[] args = formatAppArgs(Command.COMPILE, "input/path", "output/path");
+		for (String[] invalidArgs : new String[][]{
+				new String[]{ "--fetch-connect-timeout", "0" },
+				new String[]{ "--fetch-read-timeout", "0" },
+				new String[]{ "--fetch-retries", "-1" },
+				new String[]{ "--fetch-rate", "0" },
+				new String[]{ "--fetch-max-requests", "0" } })
+		{
+			CommandLine cmdLine = CommandLine.parse(Command.COMPILE.options, ArrayUtils.addAll(args, invalidArgs));
+			Assertions.assertThrows(IllegalArgumentException.class, cmdLine::getFetchPolicy);
+		}
+	}
 }
@@ -0,0 +1,172 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.compile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.common.collect.ImmutableList;
+
+import io.cocolabs.pz.zdoc.doc.ZomboidJavaDoc;
+import io.cocolabs.pz.zdoc.doc.ZomboidLuaDoc;
+import io.cocolabs.pz.zdoc.element.java.JavaClass;
+import io.cocolabs.pz.zdoc.element.java.JavaField;
+import io.cocolabs.pz.zdoc.element.mod.MemberModifier;
+
+class CompileManifestTest {
+
+	private static final String ENVIRONMENT = CompileManifest.hashEnvironment(Collections.singleton("test"));
+
+	private static final List<String> CLASS_NAMES = ImmutableList.of(
+			java.lang.Object.class.getName(), io.cocolabs.pz.zdoc.compile.test.Object.class.getName()
+	);
+
+	@Test
+	void shouldCalculateClassFingerprintFromBytecodeAndAPIPage() {
+
+		String fingerprint = CompileManifest.fingerprint(CompileManifestTest.class, null);
+		Assertions.assertNotNull(fingerprint);
+		Assertions.assertEquals(fingerprint, CompileManifest.fingerprint(CompileManifestTest.class, null));
+
+		byte[] page = "page".getBytes(StandardCharsets.UTF_8);
+		String pageFingerprint = CompileManifest.fingerprint(CompileManifestTest.class, page);
+		Assertions.assertNotEquals(fingerprint, pageFingerprint);
+		Assertions.assertNotEquals(pageFingerprint, CompileManifest.fingerprint(LuaCompiler.class, page));
+
+		// classes from JDK have no class loader
+		Assertions.assertNotNull(CompileManifest.fingerprint(java.lang.String.class, null));
+	}
+
+	@Test
+	void shouldDetectUnchangedClassesFromSavedManifest(@TempDir Path dir) throws IOException {
+
+		Path file = dir.resolve(CompileManifest.FILE_NAME);
+		CompileManifest manifest = CompileManifest.load(file, ENVIRONMENT);
+		manifest.validateClasses(CLASS_NAMES);
+		for (String className : CLASS_NAMES)
+		{
+			Assertions.assertFalse(manifest.isUnchanged(className, "fingerprint"));
+			manifest.update(className, "fingerprint");
+			manifest.updateLuaDoc(className, "Object", Collections.singleton("int"));
+		}
+		manifest.save();
+
+		CompileManifest loadedManifest = CompileManifest.load(file, ENVIRONMENT);
+		loadedManifest.validateClasses(CLASS_NAMES);
+		Assertions.assertTrue(loadedManifest.isUnchanged(CLASS_NAMES.get(0), "fingerprint"));
+		Assertions.assertFalse(loadedManifest.isUnchanged(CLASS_NAMES.get(0), "changed"));
+		Assertions.assertFalse(loadedManifest.isUnchanged(CLASS_NAMES.get(0), null));
+
+		loadedManifest.reuse(CLASS_NAMES.get(0));
+		Assertions.assertEquals(Collections.singletonList("int"), loadedManifest.getReusedTypes(CLASS_NAMES.get(0)));
+		Assertions.assertEquals(1, loadedManifest.getReusedCount());
+
+		// documents that were removed from output directory should not be reused
+		CompileManifest missingManifest = CompileManifest.load(file, ENVIRONMENT);
+		missingManifest.retainIf(luaDocName -> false);
+		Assertions.assertFalse(missingManifest.isUnchanged(CLASS_NAMES.get(0), "fingerprint"));
+
+		// changed environment should invalidate all entries
+		CompileManifest otherManifest = CompileManifest.load(file,
+				CompileManifest.hashEnvironment(Collections.singleton("other")));
+		otherManifest.validateClasses(CLASS_NAMES);
+		Assertions.assertFalse(otherManifest.isUnchanged(CLASS_NAMES.get(0), "fingerprint"));
+
+		// changed list of classes should invalidate all entries
+		CompileManifest changedManifest = CompileManifest.load(file, ENVIRONMENT);
+		changedManifest.validateClasses(CLASS_NAMES.subList(1, 2));
+		Assertions.assertFalse(changedManifest.isUnchanged(CLASS_NAMES.get(1), "fingerprint"));
+	}
+
+	@Test
+	void shouldInvalidateAllEntriesWhenVersionChanged(@TempDir Path dir) throws IOException {
+
+		List<String> settings = ImmutableList.of("javaclass Object=java.lang.Object", "override Object=JObject");
+		Assertions.assertEquals(CompileManifest.hashEnvironment("1.0", settings),
+				CompileManifest.hashEnvironment("1.0\n", settings));
+
+		Path file = dir.resolve(CompileManifest.FILE_NAME);
+		CompileManifest manifest = CompileManifest.load(file, CompileManifest.hashEnvironment("1.0", settings));
+		manifest.validateClasses(CLASS_NAMES);
+		for (String className : CLASS_NAMES)
+		{
+			manifest.update(className, "fingerprint");
+			manifest.updateLuaDoc(className, "Object", Collections.emptyList());
+		}
+		manifest.save();
+
+		CompileManifest sameManifest = CompileManifest.load(file, CompileManifest.hashEnvironment("1.0", settings));
+		sameManifest.validateClasses(CLASS_NAMES);
+		Assertions.assertTrue(sameManifest.isUnchanged(CLASS_NAMES.get(0), "fingerprint"));
+
+		CompileManifest upgradedManifest = CompileManifest.load(file,
+				CompileManifest.hashEnvironment("1.1", settings));
+		upgradedManifest.validateClasses(CLASS_NAMES);
+		for (String className : CLASS_NAMES) {
+			Assertions.assertFalse(upgradedManifest.isUnchanged(className, "fingerprint"));
+		}
+		// class overrides are part of compile environment
+		CompileManifest overriddenManifest = CompileManifest.load(file, CompileManifest.hashEnvironment(
+				"1.0", ImmutableList.of("javaclass Object=java.lang.Object", "override Object=Other")));
+		overriddenManifest.validateClasses(CLASS_NAMES);
+		Assertions.assertFalse(overriddenManifest.isUnchanged(CLASS_NAMES.get(0), "fingerprint"));
+	}
+
+	@Test
+	void shouldCompileSameLuaDocumentsWhenReusingUnchangedClasses(@TempDir Path dir) throws IOException, CompilerException {
+
+		MemberModifier modifier = MemberModifier.UNDECLARED;
+		List<ZomboidJavaDoc> javaDocs = new ArrayList<>();
+		javaDocs.add(new ZomboidJavaDoc(new JavaClass(java.lang.Object.class), ImmutableList.of(
+				new JavaField(java.lang.Float[].class, "floats", modifier)), new HashSet<>()));
+		javaDocs.add(new ZomboidJavaDoc(new JavaClass(io.cocolabs.pz.zdoc.compile.test.Object.class),
+				ImmutableList.of(new JavaField(java.lang.Byte.class, "field", modifier)), new HashSet<>()));
+
+		Path file = dir.resolve(CompileManifest.FILE_NAME);
+		CompileManifest manifest = CompileManifest.load(file, ENVIRONMENT);
+		manifest.validateClasses(CLASS_NAMES);
+		for (String className : CLASS_NAMES) {
+			manifest.update(className, "fingerprint");
+		}
+		LuaCompiler compiler = new LuaCompiler(new LinkedHashSet<>(javaDocs), 1, manifest);
+		List<ZomboidLuaDoc> luaDocs = new ArrayList<>(compiler.compile());
+		manifest.save();
+
+		// compile only the second class and reuse the first one
+		CompileManifest loadedManifest = CompileManifest.load(file, ENVIRONMENT);
+		loadedManifest.validateClasses(CLASS_NAMES);
+		loadedManifest.reuse(CLASS_NAMES.get(0));
+		loadedManifest.update(CLASS_NAMES.get(1), "changed");
+
+		LuaCompiler incrementalCompiler = new LuaCompiler(
+				Collections.singleton(javaDocs.get(1)), 1, loadedManifest);
+		Set<ZomboidLuaDoc> incrementalDocs = incrementalCompiler.compile();
+
+		Assertions.assertEquals(1, incrementalDocs.size());
+		ZomboidLuaDoc incrementalDoc = incrementalDocs.iterator().next();
+		Assertions.assertEquals(luaDocs.get(1).getClazz(), incrementalDoc.getClazz());
+		Assertions.assertEquals(luaDocs.get(1).getFields(), incrementalDoc.getFields());
+		Assertions.assertEquals(compiler.getGlobalTypes(), incrementalCompiler.getGlobalTypes());
+	}
+}
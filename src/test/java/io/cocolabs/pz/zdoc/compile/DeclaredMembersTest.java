@@ -0,0 +1,204 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.compile;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.cocolabs.pz.zdoc.element.java.JavaClass;
+import io.cocolabs.pz.zdoc.element.java.JavaField;
+import io.cocolabs.pz.zdoc.element.java.JavaMethod;
+
+@SuppressWarnings({ "unused", "WeakerAccess" })
+class DeclaredMembersTest {
+
+	private static DeclaredMembers readBytecode(Class<?> clazz) throws IOException, ClassNotFoundException {
+		return DeclaredMembers.read(ClassFile.read(Objects.requireNonNull(ClassFile.readBytes(clazz))));
+	}
+
+	private static String getMethodKey(JavaMethod method) {
+
+		StringBuilder sb = new StringBuilder(method.getName());
+		method.getParams().forEach(p -> sb.append(' ').append(p.getType().getClazz().getName()));
+		return sb.toString();
+	}
+
+	private static Map<String, JavaMethod> getMethodsByName(DeclaredMembers members) {
+
+		Map<String, JavaMethod> result = new HashMap<>();
+		for (JavaMethod method : members.getMethods()) {
+			Assertions.assertNull(result.put(method.getName(), method));
+		}
+		return result;
+	}
+
+	@Test
+	void shouldReadSameMembersFromClassFileAsWithReflection() throws IOException, ClassNotFoundException {
+
+		for (Class<?> clazz : new Class<?>[]{ TestMembers.class, TestMembers.Inner.class, String.class })
+		{
+			DeclaredMembers expected = DeclaredMembers.read(clazz, false);
+			DeclaredMembers actual = readBytecode(clazz);
+
+			Assertions.assertEquals(expected.getFields().size(), actual.getFields().size());
+			for (int i = 0; i < expected.getFields().size(); i++)
+			{
+				JavaField expectedField = expected.getFields().get(i);
+				JavaField actualField = actual.getFields().get(i);
+
+				Assertions.assertEquals(expectedField.getName(), actualField.getName());
+				Assertions.assertTrue(expectedField.getType().equals(actualField.getType(), true));
+				Assertions.assertEquals(expectedField.getModifier(), actualField.getModifier());
+			}
+			Map<String, JavaMethod> actualMethods = new HashMap<>();
+			for (JavaMethod method : actual.getMethods()) {
+				actualMethods.put(getMethodKey(method), method);
+			}
+			Assertions.assertEquals(expected.getMethods().size(), actualMethods.size());
+			for (JavaMethod expectedMethod : expected.getMethods())
+			{
+				JavaMethod actualMethod = actualMethods.get(getMethodKey(expectedMethod));
+				Assertions.assertNotNull(actualMethod, expectedMethod.toString());
+				Assertions.assertTrue(expectedMethod.equals(actualMethod, true));
+				Assertions.assertEquals(expectedMethod.getModifier(), actualMethod.getModifier());
+				for (int i = 0; i < expectedMethod.getParams().size(); i++)
+				{
+					Assertions.assertEquals(expectedMethod.getParams().get(i).getName(),
+							actualMethod.getParams().get(i).getName());
+				}
+			}
+		}
+	}
+
+	@Test
+	void shouldNotReadSyntheticMembersFromClassFile() throws IOException, ClassNotFoundException {
+
+		DeclaredMembers members = readBytecode(TestMembers.Inner.class);
+		// outer class reference is stored in synthetic field
+		Assertions.assertEquals(1, members.getFields().size());
+
+		// lambda body, bridge method and constructors are not declared methods
+		Set<String> expected = new HashSet<>(Arrays.asList("compareTo", "getSupplier", "get"));
+		Assertions.assertEquals(expected, getMethodsByName(members).keySet());
+	}
+
+	@Test
+	void shouldResolveTypeParametersFromGenericSignatures() throws IOException, ClassNotFoundException {
+
+		DeclaredMembers members = readBytecode(TestMembers.class);
+		Map<String, JavaClass> fields = new HashMap<>();
+		members.getFields().forEach(f -> fields.put(f.getName(), f.getType()));
+
+		JavaClass stringClass = new JavaClass(String.class);
+		Assertions.assertEquals(new JavaClass(List.class, stringClass), fields.get("list"));
+		Assertions.assertEquals(new JavaClass(Map.class, Arrays.asList(stringClass,
+				new JavaClass(List.class, new JavaClass(Integer[].class)))), fields.get("map"));
+
+		// wildcards and type variables are unknown
+		Assertions.assertEquals(new JavaClass(Map.class, Arrays.asList(null, null)), fields.get("wildcardMap"));
+		Assertions.assertEquals(new JavaClass(Object.class), fields.get("value"));
+		Assertions.assertEquals(new JavaClass(Object[].class), fields.get("values"));
+		Assertions.assertEquals(new JavaClass(Map.Entry.class, Arrays.asList(stringClass,
+				new JavaClass(Integer.class))), fields.get("entry"));
+		Assertions.assertEquals(new JavaClass(TestMembers.Inner.class, stringClass), fields.get("inner"));
+		Assertions.assertEquals(new JavaClass(List[].class), fields.get("lists"));
+
+		JavaMethod method = getMethodsByName(members).get("maxAt");
+		Assertions.assertEquals(new JavaClass(Comparable.class), new JavaClass(method.getReturnType().getClazz(),
+				method.getReturnType().getTypeParameters()));
+		Assertions.assertEquals(new JavaClass(Map.class, Arrays.asList(stringClass, null)),
+				method.getParams().get(0).getType());
+		Assertions.assertEquals(new JavaClass(Comparable[].class), method.getParams().get(1).getType());
+		Assertions.assertEquals(new JavaClass(int.class), method.getParams().get(2).getType());
+	}
+
+	@Test
+	void shouldThrowExceptionWhenReadingMalformedDescriptor() {
+
+		Assertions.assertThrows(IOException.class, () -> DeclaredMembers.resolveDescriptor("Ljava/lang/String"));
+		Assertions.assertThrows(IOException.class, () -> DeclaredMembers.resolveDescriptor("X"));
+		Assertions.assertThrows(ClassNotFoundException.class, () ->
+				DeclaredMembers.resolveDescriptor("Ljava/lang/Strang;"));
+
+		Assertions.assertThrows(IOException.class, () ->
+				DeclaredMembers.splitMethodDescriptor("(Ljava/lang/String", new ArrayList<>()));
+		Assertions.assertThrows(IOException.class, () ->
+				DeclaredMembers.splitMethodDescriptor("(I)", new ArrayList<>()));
+	}
+
+	@Test
+	void shouldSplitMethodDescriptor() throws IOException {
+
+		List<String> params = new ArrayList<>();
+		Assertions.assertEquals("V", DeclaredMembers.splitMethodDescriptor(
+				"(I[[JLjava/lang/String;[Ljava/lang/Object;)V", params));
+		Assertions.assertEquals(Arrays.asList("I", "[[J", "Ljava/lang/String;", "[Ljava/lang/Object;"), params);
+	}
+
+	static class TestMembers<T> {
+
+		public static final int CONSTANT = 1;
+		protected transient volatile long counter;
+		private List<String> list;
+		Map<String, List<Integer[]>> map;
+		Map<? extends Number, ?> wildcardMap;
+		T value;
+		T[] values;
+		Map.Entry<String, Integer> entry;
+		Inner<String> inner;
+		List<String>[] lists;
+
+		@SafeVarargs
+		static synchronized <V extends Comparable<V>> V max(Map<String, ? super V> map, V... values) {
+			return values[0];
+		}
+
+		static <V extends Comparable<V>> V maxAt(Map<String, ? super V> map, V[] values, int index) {
+			return values[index];
+		}
+
+		protected native void nativeMethod(String[] args, int[][] matrix);
+
+		abstract static class AbstractMembers {
+
+			abstract void abstractMethod(List<String> list);
+		}
+
+		class Inner<E> implements Comparable<Inner<E>> {
+
+			E element;
+
+			@Override
+			public int compareTo(Inner<E> o) {
+				return 0;
+			}
+
+			Supplier<T> getSupplier() {
+				return () -> value;
+			}
+
+			public E get() {
+				return element;
+			}
+		}
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.compile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+
+@SuppressWarnings({ "unused", "WeakerAccess" })
+class ExposedClassScannerTest {
+
+	private static boolean initialized = false;
+
+	static byte[] readClassBytes(Class<?> clazz) throws IOException {
+
+		String path = clazz.getName().replace('.', '/') + ".class";
+		try (InputStream iStream = clazz.getClassLoader().getResourceAsStream(path))
+		{
+			Assertions.assertNotNull(iStream);
+			return ByteStreams.toByteArray(iStream);
+		}
+	}
+
+	static ClassFile readClassFile(Class<?> clazz) throws IOException {
+		return ClassFile.read(readClassBytes(clazz));
+	}
+
+	@Test
+	void shouldFindClassesExposedInMethodBody() throws IOException {
+
+		ClassFile classFile = readClassFile(TestExposer.class);
+		List<String> expected = ImmutableList.of(
+				"java.lang.String", "java.util.Map$Entry", "java.lang.Integer",
+				"java.util.ArrayList", "java.util.HashMap", "java.util.LinkedList",
+				InitializedClass.class.getName()
+		);
+		Assertions.assertEquals(expected, ExposedClassScanner.getExposedClassNames(classFile, "exposeAll"));
+	}
+
+	@Test
+	void shouldNotInitializeExposedClasses() throws IOException, ClassNotFoundException {
+
+		ClassFile classFile = readClassFile(TestExposer.class);
+		Set<Class<?>> exposedClasses = ExposedClassScanner.getExposedJava(classFile, "exposeAll");
+
+		Assertions.assertTrue(exposedClasses.contains(InitializedClass.class));
+		Assertions.assertTrue(exposedClasses.contains(Map.Entry.class));
+		Assertions.assertFalse(initialized);
+	}
+
+	@Test
+	void shouldThrowExceptionWhenScanningMissingMethod() throws IOException {
+
+		ClassFile classFile = readClassFile(TestExposer.class);
+		Assertions.assertThrows(IOException.class, () ->
+				ExposedClassScanner.getExposedClassNames(classFile, "exposeNone"));
+	}
+
+	@Test
+	void shouldThrowExceptionWhenReadingMalformedClassFile() throws IOException {
+
+		Assertions.assertThrows(IOException.class, () -> ClassFile.read(new byte[]{ 1, 2, 3, 4 }));
+
+		byte[] content = readClassBytes(TestExposer.class);
+		byte[] truncated = Arrays.copyOf(content, content.length / 2);
+		Assertions.assertThrows(IOException.class, () -> ClassFile.read(truncated));
+	}
+
+	static class InitializedClass {
+
+		static
+		{
+			initialized = true;
+		}
+	}
+
+	static class TestExposer {
+
+		private final Set<Class<?>> exposed = new LinkedHashSet<>();
+		private boolean debug;
+		private int mode;
+		private long seed;
+
+		void exposeAll() {
+
+			setExposed(String.class);
+			setExposed(Map.Entry.class);
+			if (debug) {
+				setExposed(Integer.class);
+			}
+			// switch instructions are padded and have variable length
+			switch (mode)
+			{
+				case 0:
+					seed = 1234567890123L;
+					break;
+				case 1:
+					seed = 2L;
+					break;
+				case 2:
+					setExposed(ArrayList.class);
+					break;
+				default:
+					break;
+			}
+			switch (mode)
+			{
+				case -1000:
+					setExposed(HashMap.class);
+					break;
+				case 1000:
+					seed = mode;
+					break;
+			}
+			// class literal that is not exposed
+			Class<?> notExposed = Object.class;
+			exposed.add(notExposed);
+			setExposed(LinkedList.class);
+			setExposed(InitializedClass.class);
+			setExposed(String.class);
+		}
+
+		void setExposed(Class<?> clazz) {
+			exposed.add(clazz);
+		}
+	}
+}
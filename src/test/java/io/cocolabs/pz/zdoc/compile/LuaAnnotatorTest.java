@@ -17,11 +17,19 @@
  */
 package io.cocolabs.pz.zdoc.compile;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URISyntaxException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 
 import org.apache.commons.io.FileUtils;
@@ -217,4 +225,293 @@ class LuaAnnotatorTest extends TestWorkspace {
 
 		Assertions.assertEquals(LuaAnnotator.AnnotateResult.NO_MATCH, result);
 	}
+
+	@Test
+	void shouldStreamAnnotatedContentSameAsList() throws IOException {
+
+		// generated file with table declared at the end of the file
+		File generatedFile = dir.toPath().resolve("GeneratedTable.lua").toFile();
+		List<String> lines = new ArrayList<>();
+		for (int i = 0; i < 50000; i++) {
+			lines.add(i % 10 == 0 ? "" : "GeneratedTable.field" + i + " = " + i);
+		}
+		lines.add("---@class GeneratedTable");
+		lines.add("GeneratedTable = BaseTable:new()");
+		FileUtils.writeLines(generatedFile, lines);
+
+		Properties properties = new Properties();
+		properties.put("LuaInclusionTest", "LuaInclusionTest,DerivedTest");
+		for (File luaFile : new File[]{ INCLUSION_TEST, NO_MATCH_TEST, generatedFile })
+		{
+			List<String> content = new ArrayList<>();
+			LuaAnnotator.AnnotateResult expected = LuaAnnotator.annotate(
+					luaFile, content, new LuaAnnotator.AnnotateRules(properties));
+
+			LuaAnnotator.AnnotateResult result;
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING))
+			{
+				result = LuaAnnotator.annotate(luaFile, channel, new LuaAnnotator.AnnotateRules(properties));
+			}
+			Assertions.assertEquals(expected, result);
+			Assertions.assertEquals(content, readFile());
+		}
+	}
+
+	@Test
+	void shouldNotStreamContentWhenFileIsEmptyOrIgnored() throws IOException {
+
+		Properties properties = new Properties();
+		properties.put("LuaInclusionTest", "");
+
+		File emptyFile = dir.toPath().resolve("Empty.lua").toFile();
+		Assertions.assertTrue(emptyFile.createNewFile());
+
+		ByteArrayOutputStream oStream = new ByteArrayOutputStream();
+		LuaAnnotator.AnnotateRules rules = new LuaAnnotator.AnnotateRules(properties);
+		try (WritableByteChannel channel = Channels.newChannel(oStream))
+		{
+			Assertions.assertEquals(LuaAnnotator.AnnotateResult.SKIPPED_FILE_IGNORED,
+					LuaAnnotator.annotate(INCLUSION_TEST, channel, rules));
+			Assertions.assertEquals(LuaAnnotator.AnnotateResult.SKIPPED_FILE_EMPTY,
+					LuaAnnotator.annotate(emptyFile, channel, rules));
+		}
+		Assertions.assertEquals(0, oStream.size());
+		Assertions.assertThrows(FileNotFoundException.class, () -> LuaAnnotator.annotate(
+				new File("nonExistingFile"), Channels.newChannel(oStream), rules));
+	}
+
+	@Test
+	void shouldReplaceAnnotationAboveDeclarationAfterInsertedAnnotation() throws IOException {
+
+		File luaFile = dir.toPath().resolve("TableA.lua").toFile();
+		FileUtils.writeLines(luaFile, Arrays.asList(
+				"TableA = {}", "---@class TableB", "TableB = {}", "---@class TableC", "TableC = {}"
+		));
+		Properties properties = new Properties();
+		properties.put("TableA", "TableA,TableB");
+
+		List<String> expected = Arrays.asList(
+				"---@class TableA", "TableA = {}", "---@class TableB",
+				"TableB = {}", "---@class TableC", "TableC = {}"
+		);
+		List<String> content = new ArrayList<>();
+		LuaAnnotator.annotate(luaFile, content, new LuaAnnotator.AnnotateRules(properties));
+		Assertions.assertEquals(expected, content);
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+			LuaAnnotator.annotate(luaFile, channel, new LuaAnnotator.AnnotateRules(properties));
+		}
+		Assertions.assertEquals(expected, readFile());
+	}
+
+	@Test
+	void shouldReadFileLinesSameAsFileUtils() throws IOException {
+
+		String[] contents = {
+				"", "\n", "line", "line\n", "first\nsecond", "first\r\nsecond\r\n",
+				"first\rsecond\r", "\r\n\r\n", "first\n\r\nthird", "ünïcödé\n"
+		};
+		for (String text : contents)
+		{
+			FileUtils.writeStringToFile(file, text, Main.CHARSET);
+			List<String> lines = new ArrayList<>();
+			try (BufferedReader reader = LuaAnnotator.openReader(file))
+			{
+				for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+					lines.add(line);
+				}
+			}
+			Assertions.assertEquals(FileUtils.readLines(file, Main.CHARSET), lines);
+		}
+	}
+
+	@Test
+	void shouldAnnotateFilesInParallelSameAsSerially() throws IOException {
+
+		// tables declared in multiple files are annotated only in first file
+		List<File> files = new ArrayList<>();
+		for (int i = 0; i < 24; i++)
+		{
+			File luaFile = dir.toPath().resolve("Table" + i + ".lua").toFile();
+			List<String> lines = new ArrayList<>();
+			lines.add("Table" + (i / 3) + " = BaseTable:derive(\"Table\")");
+			lines.add("");
+			lines.add("Table" + i + " = {}");
+			if (i % 5 == 0) {
+				lines.add("Excluded = {}");
+			}
+			FileUtils.writeLines(luaFile, lines);
+			files.add(luaFile);
+		}
+		File emptyFile = dir.toPath().resolve("Empty.lua").toFile();
+		Assertions.assertTrue(emptyFile.createNewFile());
+		files.add(3, emptyFile);
+
+		// files that are not annotated have content only when all files are requested
+		File noMatchFile = dir.toPath().resolve("NoMatch.lua").toFile();
+		FileUtils.writeLines(noMatchFile, Arrays.asList("Table2 = {}", "", "local value = 1"));
+		files.add(7, noMatchFile);
+		File excludedFile = dir.toPath().resolve("Excluded.lua").toFile();
+		FileUtils.writeLines(excludedFile, Collections.singletonList("Excluded = {}"));
+		files.add(excludedFile);
+
+		Properties properties = new Properties();
+		properties.put("Table4", "Table1,Table4,Excluded");
+		properties.put("Table6", "");
+
+		Map<File, LuaAnnotator.AnnotateResult> expectedResults = new HashMap<>();
+		Map<File, String> expectedContent = new HashMap<>();
+		Set<String> expectedExclude = new HashSet<>(Collections.singleton("Excluded"));
+		for (File luaFile : files)
+		{
+			List<String> content = new ArrayList<>();
+			LuaAnnotator.AnnotateRules rules = new LuaAnnotator.AnnotateRules(properties, expectedExclude);
+			expectedResults.put(luaFile, LuaAnnotator.annotate(luaFile, content, rules));
+			// files without content to write do not have channel opened
+			if (!content.isEmpty())
+			{
+				String separator = System.lineSeparator();
+				expectedContent.put(luaFile, String.join(separator, content) + separator);
+			}
+		}
+		// Table1 is claimed by file declaring it before it is declared again in Table4
+		Assertions.assertEquals(LuaAnnotator.AnnotateResult.PARTIAL_INCLUSION, expectedResults.get(files.get(5)));
+		Assertions.assertEquals(LuaAnnotator.AnnotateResult.NO_MATCH, expectedResults.get(noMatchFile));
+		Assertions.assertEquals(LuaAnnotator.AnnotateResult.ALL_EXCLUDED, expectedResults.get(excludedFile));
+
+		// only content of annotated files is written when only annotated files are requested
+		Map<File, String> expectedAnnotatedContent = new HashMap<>();
+		for (Map.Entry<File, String> entry : expectedContent.entrySet())
+		{
+			LuaAnnotator.AnnotateResult result = expectedResults.get(entry.getKey());
+			if (result == LuaAnnotator.AnnotateResult.ALL_INCLUDED
+					|| result == LuaAnnotator.AnnotateResult.PARTIAL_INCLUSION) {
+				expectedAnnotatedContent.put(entry.getKey(), entry.getValue());
+			}
+		}
+		Assertions.assertNotEquals(expectedContent, expectedAnnotatedContent);
+		for (int i = 0; i < 4; i++)
+		{
+			int parallelism = i % 2 == 0 ? 1 : 4;
+			boolean onlyAnnotated = i >= 2;
+			Map<File, LuaAnnotator.AnnotateResult> results = new ConcurrentHashMap<>();
+			Map<File, ByteArrayOutputStream> outputs = new ConcurrentHashMap<>();
+			Map<File, String> contents = new ConcurrentHashMap<>();
+			Set<String> exclude = new HashSet<>(Collections.singleton("Excluded"));
+
+			LuaAnnotator.AnnotateRules rules = new LuaAnnotator.AnnotateRules(properties, exclude);
+			LuaAnnotator.annotate(files, rules, parallelism, new LuaAnnotator.AnnotateHandler()
+			{
+				@Override
+				public WritableByteChannel open(File file) {
+
+					ByteArrayOutputStream oStream = new ByteArrayOutputStream();
+					Assertions.assertNull(outputs.put(file, oStream));
+					return Channels.newChannel(oStream);
+				}
+
+				@Override
+				public boolean isOnlyAnnotated() {
+					return onlyAnnotated;
+				}
+
+				@Override
+				public void handle(File file, LuaAnnotator.AnnotateResult result, boolean written)
+						throws IOException {
+
+					results.put(file, result);
+					Assertions.assertEquals(outputs.containsKey(file), written);
+					if (written) {
+						contents.put(file, outputs.get(file).toString(Main.CHARSET));
+					}
+				}
+
+				@Override
+				public void discard(File file) {
+					Assertions.fail("discarded content of annotated file");
+				}
+			});
+			Assertions.assertEquals(expectedResults, results);
+			Assertions.assertEquals(onlyAnnotated ? expectedAnnotatedContent : expectedContent, contents);
+			Assertions.assertEquals(expectedExclude, exclude);
+		}
+	}
+
+	@Test
+	void shouldThrowExceptionWhenHandlingAnnotatedFileFails() throws IOException {
+
+		File luaFile = dir.toPath().resolve("Table.lua").toFile();
+		FileUtils.writeLines(luaFile, Collections.singletonList("Table = {}"));
+
+		List<File> files = Arrays.asList(luaFile, luaFile);
+		LuaAnnotator.AnnotateRules rules = new LuaAnnotator.AnnotateRules();
+		LuaAnnotator.AnnotateHandler handler = new LuaAnnotator.AnnotateHandler()
+		{
+			@Override
+			public WritableByteChannel open(File file) throws IOException {
+				throw new IOException("handler failed");
+			}
+
+			@Override
+			public boolean isOnlyAnnotated() {
+				return false;
+			}
+
+			@Override
+			public void handle(File file, LuaAnnotator.AnnotateResult result, boolean written) {
+				Assertions.fail("annotation result handled after handler failed");
+			}
+
+			@Override
+			public void discard(File file) {
+				Assertions.fail("discarded content of file that was never opened");
+			}
+		};
+		Assertions.assertThrows(IOException.class, () -> LuaAnnotator.annotate(files, rules, 2, handler));
+
+		List<File> missingFiles = Collections.singletonList(new File("nonExistingFile"));
+		Assertions.assertThrows(FileNotFoundException.class, () -> LuaAnnotator.annotate(
+				missingFiles, rules, 2, handler));
+	}
+
+	@Test
+	void shouldDiscardContentWrittenBeforeAnnotatingFileFails() throws IOException {
+
+		File luaFile = dir.toPath().resolve("Table.lua").toFile();
+		FileUtils.writeLines(luaFile, Collections.singletonList("Table = {}"));
+
+		Set<File> discarded = new HashSet<>();
+		LuaAnnotator.AnnotateHandler handler = new LuaAnnotator.AnnotateHandler()
+		{
+			@Override
+			public WritableByteChannel open(File file) {
+				return Channels.newChannel(new OutputStream() {
+					@Override
+					public void write(int b) throws IOException {
+						throw new IOException("write failed");
+					}
+				});
+			}
+
+			@Override
+			public boolean isOnlyAnnotated() {
+				return false;
+			}
+
+			@Override
+			public void handle(File file, LuaAnnotator.AnnotateResult result, boolean written) {
+				Assertions.fail("annotation result handled after annotating failed");
+			}
+
+			@Override
+			public void discard(File file) {
+				Assertions.assertTrue(discarded.add(file));
+			}
+		};
+		LuaAnnotator.AnnotateRules rules = new LuaAnnotator.AnnotateRules();
+		List<File> files = Collections.singletonList(luaFile);
+		Assertions.assertThrows(IOException.class, () -> LuaAnnotator.annotate(files, rules, 1, handler));
+		Assertions.assertEquals(Collections.singleton(luaFile), discarded);
+	}
 }
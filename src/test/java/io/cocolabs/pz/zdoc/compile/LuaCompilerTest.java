@@ -17,10 +17,18 @@
  */
 package io.cocolabs.pz.zdoc.compile;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.jetbrains.annotations.TestOnly;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -42,6 +50,9 @@ import io.cocolabs.pz.zdoc.element.mod.ModifierKey;
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 class LuaCompilerTest {
 
+	/** Registry shared between ordered tests that verify accumulated types. */
+	private static final LuaTypeRegistry REGISTRY = new LuaTypeRegistry();
+
 	private static final LuaClass OWNER_CLASS = new LuaClass(
 			LuaCompilerTest.class.getSimpleName(), LuaCompilerTest.class.getName()
 	);
@@ -83,7 +94,7 @@ class LuaCompilerTest {
 
 	@TestOnly
 	private static Set<ZomboidLuaDoc> compileLua(Set<ZomboidJavaDoc> zJavaDocs) throws CompilerException {
-		return new LuaCompiler(zJavaDocs).compile();
+		return new LuaCompiler(zJavaDocs, REGISTRY).compile();
 	}
 
 	@TestOnly
@@ -302,7 +313,7 @@ class LuaCompilerTest {
 	@Test @Order(8)
 	void shouldNotRegisterArrayGlobalTypesWhenCompilingLuaMethodsFromZomboidJavaDocs() {
 
-		for (LuaClass globalType : LuaCompiler.getGlobalTypes()) {
+		for (LuaClass globalType : REGISTRY.getGlobalTypes()) {
 			Assertions.assertFalse(globalType.getName().contains("[]"));
 		}
 	}
@@ -390,7 +401,7 @@ class LuaCompilerTest {
 				new LuaClass("ArrayList", "java.util.ArrayList"),
 				new LuaClass("Unknown")
 		);
-		Set<LuaClass> actualGlobalTypes = LuaCompiler.getGlobalTypes();
+		Set<LuaClass> actualGlobalTypes = REGISTRY.getGlobalTypes();
 		Assertions.assertEquals(expectedGlobalTypes, actualGlobalTypes);
 	}
 
@@ -483,10 +494,110 @@ class LuaCompilerTest {
 				new LuaClass("ArrayList", "java.util.ArrayList"),
 				new LuaClass("Unknown")
 		);
-		Set<LuaClass> actualGlobalTypes = LuaCompiler.getGlobalTypes();
+		Set<LuaClass> actualGlobalTypes = REGISTRY.getGlobalTypes();
 		Assertions.assertEquals(expectedGlobalTypes, actualGlobalTypes);
 	}
 
+	@Test @Order(15)
+	void shouldNotShareRegisteredTypesBetweenLuaCompilers() throws CompilerException {
+
+		Set<ZomboidJavaDoc> zJavaDocs = Collections.singleton(new ZomboidJavaDoc(
+				new JavaClass(io.cocolabs.pz.zdoc.compile.test.Object.class),
+				new ArrayList<>(), new HashSet<>()
+		));
+		for (int i = 0; i < 2; i++)
+		{
+			// each compiler should resolve class name without conflicts from previous compile
+			LuaCompiler compiler = new LuaCompiler(zJavaDocs);
+			ZomboidLuaDoc zLuaDoc = compiler.compile().iterator().next();
+
+			Assertions.assertEquals("Object", zLuaDoc.getName());
+			Assertions.assertEquals(Collections.singleton(new LuaClass("Unknown")), compiler.getGlobalTypes());
+		}
+	}
+
+	@Test
+	void shouldCompileSameLuaDocumentsInParallelAsSerially(@TempDir Path dir) throws IOException, CompilerException {
+
+		final Class<?>[] classObjects = {
+				java.lang.Object.class, java.lang.String.class, java.lang.Integer.class,
+				io.cocolabs.pz.zdoc.compile.test.Object.class,
+				io.cocolabs.pz.zdoc.compile.test.String.class,
+				io.cocolabs.pz.zdoc.compile.test.Integer.class
+		};
+		Set<ZomboidJavaDoc> zJavaDocs = new LinkedHashSet<>();
+		for (Class<?> c : classObjects)
+		{
+			List<JavaField> fields = ImmutableList.of(
+					new JavaField(java.lang.Double[].class, "dField", MODIFIER),
+					new JavaField(JAVA_ARRAY_LIST_STRING_OBJECT, "lField", MODIFIER)
+			);
+			Set<JavaMethod> methods = ImmutableSet.of(
+					JavaMethod.Builder.create("get").withReturnType(java.lang.Object.class)
+							.withModifier(MODIFIER).withParams(new JavaParameter(c, "param")).build(),
+					JavaMethod.Builder.create("get").withReturnType(java.lang.Float.class)
+							.withModifier(MODIFIER).withParams(new JavaParameter(java.lang.Byte[].class, "param"),
+							new JavaParameter(int.class, "index")).build()
+			);
+			zJavaDocs.add(new ZomboidJavaDoc(new JavaClass(c), fields, methods));
+		}
+		for (int parallelism : new int[]{ 1, 4 })
+		{
+			LuaCompiler compiler = new LuaCompiler(zJavaDocs, parallelism);
+			Path output = Files.createDirectory(dir.resolve("parallelism" + parallelism));
+			for (ZomboidLuaDoc zLuaDoc : compiler.compile())
+			{
+				Path file = output.resolve(zLuaDoc.getName() + ".lua");
+				try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+					zLuaDoc.writeTo(writer);
+				}
+			}
+			Path typesFile = output.resolve("Types.lua");
+			try (Writer writer = Files.newBufferedWriter(typesFile, StandardCharsets.UTF_8)) {
+				ZomboidLuaDoc.writeGlobalTypes(writer, compiler.getGlobalTypes());
+			}
+		}
+		Path serialOutput = dir.resolve("parallelism1"), parallelOutput = dir.resolve("parallelism4");
+		List<Path> serialFiles;
+		try (Stream<Path> stream = Files.list(serialOutput)) {
+			serialFiles = stream.collect(Collectors.toList());
+		}
+		Assertions.assertEquals(classObjects.length + 1, serialFiles.size());
+		for (Path serialFile : serialFiles)
+		{
+			Path parallelFile = parallelOutput.resolve(serialFile.getFileName());
+			Assertions.assertArrayEquals(Files.readAllBytes(serialFile), Files.readAllBytes(parallelFile));
+		}
+	}
+
+	@Test
+	void shouldKeepLastRegisteredGlobalTypeWhenCompilingInParallel() throws CompilerException {
+
+		Class<?>[][] compileOrders = {
+				{ java.lang.Object.class, io.cocolabs.pz.zdoc.compile.test.Object.class },
+				{ io.cocolabs.pz.zdoc.compile.test.Object.class, java.lang.Object.class }
+		};
+		for (Class<?>[] types : compileOrders)
+		{
+			Set<ZomboidJavaDoc> zJavaDocs = new LinkedHashSet<>();
+			Class<?>[] owners = { LuaCompilerTest.class, Integer.class };
+			for (int i = 0; i < types.length; i++)
+			{
+				List<JavaField> fields = ImmutableList.of(new JavaField(types[i], "field", MODIFIER));
+				zJavaDocs.add(new ZomboidJavaDoc(new JavaClass(owners[i]), fields, new HashSet<>()));
+			}
+			// both types resolve to the same name and the one registered last is kept
+			LuaClass expected = new LuaClass("Object", types[1].getCanonicalName());
+			for (int parallelism : new int[]{ 1, 4 })
+			{
+				LuaCompiler compiler = new LuaCompiler(zJavaDocs, parallelism);
+				compiler.compile();
+				Assertions.assertTrue(compiler.getGlobalTypes().contains(expected));
+				Assertions.assertEquals(2, compiler.getGlobalTypes().size());
+			}
+		}
+	}
+
 	@TestOnly
 	private static class Object {
 	}
@@ -0,0 +1,151 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.compile;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import io.cocolabs.pz.zdoc.Main;
+
+class LuaTableScannerTest {
+
+	private static final List<String> DECLARATIONS = ImmutableList.of(
+			"NewTestTable0 = ISTestTable:new()",
+			"NewTestTable1 = ISTestTable:new(\"TestTable\")",
+			"NewTestTable2=ISTestTable:new(\"TestTable\")",
+			"DerivedTestTable0 = ISTestTable:derive()",
+			"DerivedTestTable1 = ISTestTable:derive(\"TestTable\")",
+			"DerivedTestTable2=ISTestTable:derive(\"TestTable\")",
+			"DeclaredTestTable0 = ISTestTable or {}",
+			"DeclaredTestTable1 = {}",
+			"DeclaredTestTable2={ }",
+			"   NewTestTable1 = ISTestTable:new(\"TestTable\")",
+			"\t\tNewTestTable1 = ISTestTable:new(\"TestTable\")",
+			"NewTestTable = ISTestTable:newly(\"TestTable\")",
+			"DerivedTestTable = ISTestTable:derived(\"TestTable\")",
+			"NewTestTable = ISTestTable.Base:new(\"TestTable\"):derive(\"Test\")",
+			"NewTestTable = ISTestTable:new(ISBase:new())",
+			"NewTestTable = :new()",
+			"NewTestTable =ISTestTable:new(",
+			"NewTestTable =",
+			"NewTestTable = \t",
+			"local table = {}",
+			"table.field = {}",
+			"if table == nil then",
+			"function NewTestTable:new()",
+			"-- NewTestTable = {}",
+			"= {}",
+			"",
+			"   ",
+			"NewTestTable = {}\n",
+			"NewTestTable = {}\r\n",
+			"NewTestTable = {}\n\n",
+			"NewTestTable = {}\r",
+			"NewTestTable = {\n}",
+			"NewTestTable = {\n \n}",
+			"NewTestTable = {\n}\n",
+			"NewTestTable = {\n}\nx",
+			"NewTestTable = {}\u0085",
+			"NewTestTable = {} x",
+			"NewTestTable =  ",
+			"NewTestTable = Base:new()\n",
+			"NewTestTable = Base:new()\nx",
+			"NewTestTable = Base:new()\u0085x:derive()",
+			"NewTestTable = Base\u0085:new()",
+			"NewTestTable = Base:new()\n\r",
+			"\nNewTestTable\n=\n{}"
+	);
+
+	@Test
+	void shouldScanLuaTableDeclarationSameAsRegex() {
+
+		LuaTableScanner scanner = new LuaTableScanner();
+		for (String line : DECLARATIONS) {
+			assertScannedSameAsRegex(scanner, line);
+		}
+	}
+
+	@Test
+	void shouldScanLuaFileLinesSameAsRegex() throws IOException, URISyntaxException {
+
+		ClassLoader cl = LuaTableScannerTest.class.getClassLoader();
+		LuaTableScanner scanner = new LuaTableScanner();
+		for (String name : new String[]{ "LuaInclusionTest.lua", "LuaNoMatchTest.lua" })
+		{
+			File file = new File(Objects.requireNonNull(cl.getResource(name)).toURI());
+			for (String line : FileUtils.readLines(file, Main.CHARSET)) {
+				assertScannedSameAsRegex(scanner, line);
+			}
+		}
+	}
+
+	@Test
+	void shouldScanLuaTableDeclarationOffsets() {
+
+		LuaTableScanner scanner = new LuaTableScanner();
+		String line = "\tNewTestTable = ISTestTable:derive(\"TestTable\")";
+
+		Assertions.assertTrue(scanner.scan(line));
+		Assertions.assertEquals(1, scanner.getNameStart());
+		Assertions.assertEquals(13, scanner.getNameEnd());
+		Assertions.assertEquals(16, scanner.getParentStart());
+		Assertions.assertEquals(27, scanner.getParentEnd());
+		Assertions.assertTrue(scanner.isDerived());
+
+		Assertions.assertEquals("\t", scanner.getIndentation());
+		Assertions.assertEquals("NewTestTable", scanner.getName());
+		Assertions.assertEquals("ISTestTable", scanner.getParentName());
+
+		Assertions.assertTrue(scanner.scan("DeclaredTestTable = {}"));
+		Assertions.assertEquals("", scanner.getIndentation());
+		Assertions.assertEquals(LuaTableScanner.NONE, scanner.getParentStart());
+		Assertions.assertEquals(LuaTableScanner.NONE, scanner.getParentEnd());
+		Assertions.assertNull(scanner.getParentName());
+		Assertions.assertFalse(scanner.isDerived());
+
+		Assertions.assertFalse(scanner.scan("if table == nil then"));
+		Assertions.assertEquals(LuaTableScanner.NONE, scanner.getNameStart());
+	}
+
+	private static void assertScannedSameAsRegex(LuaTableScanner scanner, String line) {
+
+		Matcher matcher = LuaAnnotator.LUA_TABLE_DECLARATION.matcher(line);
+		boolean found = matcher.find();
+		String message = "Unexpected scan result for line \"" + line + '"';
+
+		Assertions.assertEquals(found, scanner.scan(line), message);
+		if (found)
+		{
+			Assertions.assertEquals(matcher.start(2), scanner.getNameStart(), message);
+			Assertions.assertEquals(matcher.end(2), scanner.getNameEnd(), message);
+			Assertions.assertEquals(matcher.start(3), scanner.getParentStart(), message);
+			Assertions.assertEquals(matcher.end(3), scanner.getParentEnd(), message);
+			Assertions.assertEquals("derive".equals(matcher.group(4)), scanner.isDerived(), message);
+		}
+	}
+}
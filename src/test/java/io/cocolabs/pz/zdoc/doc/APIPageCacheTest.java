@@ -0,0 +1,168 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.doc;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.cocolabs.pz.zdoc.TestWorkspace;
+
+class APIPageCacheTest extends TestWorkspace {
+
+	private static final URL PAGE_URL = ZomboidAPIDoc.resolveURL("zombie/Test");
+	private static final byte[] PAGE_CONTENT = "<html>\n<body>test</body>\n</html>".getBytes(StandardCharsets.UTF_8);
+
+	APIPageCacheTest() {
+		super("");
+	}
+
+	@Test
+	void shouldReturnCachedPageContent() throws IOException {
+
+		APIPageCache cache = new APIPageCache(dir.toPath(), APIPageCache.DEFAULT_MAX_SIZE);
+		Assertions.assertNull(cache.get(PAGE_URL));
+
+		cache.put(PAGE_URL, PAGE_CONTENT, null, null);
+		APIPageCache.Entry entry = cache.get(PAGE_URL);
+
+		Assertions.assertNotNull(entry);
+		Assertions.assertFalse(entry.isMissing());
+		Assertions.assertArrayEquals(PAGE_CONTENT, entry.getContent());
+	}
+
+	@Test
+	void shouldReturnCachedPageValidators() throws IOException {
+
+		String eTag = "\"5f3a2c\"", lastModified = "Tue, 15 Nov 1994 12:45:26 GMT";
+		APIPageCache cache = new APIPageCache(dir.toPath(), APIPageCache.DEFAULT_MAX_SIZE);
+		cache.put(PAGE_URL, PAGE_CONTENT, eTag, lastModified);
+
+		cache = new APIPageCache(dir.toPath(), APIPageCache.DEFAULT_MAX_SIZE);
+		APIPageCache.Entry entry = cache.get(PAGE_URL);
+		Assertions.assertNotNull(entry);
+		Assertions.assertEquals(eTag, entry.getETag());
+		Assertions.assertEquals(lastModified, entry.getLastModified());
+		Assertions.assertArrayEquals(PAGE_CONTENT, entry.getContent());
+	}
+
+	@Test
+	void shouldReturnCachedMissingPage() throws IOException {
+
+		APIPageCache cache = new APIPageCache(dir.toPath(), APIPageCache.DEFAULT_MAX_SIZE);
+		cache.putMissing(PAGE_URL);
+
+		APIPageCache.Entry entry = cache.get(PAGE_URL);
+		Assertions.assertNotNull(entry);
+		Assertions.assertTrue(entry.isMissing());
+	}
+
+	@Test
+	void shouldRecordWhenCachedPageWasValidated() throws IOException, InterruptedException {
+
+		APIPageCache cache = new APIPageCache(dir.toPath(), APIPageCache.DEFAULT_MAX_SIZE);
+		cache.put(PAGE_URL, PAGE_CONTENT, "\"5f3a2c\"", null);
+
+		APIPageCache.Entry entry = cache.get(PAGE_URL);
+		Assertions.assertNotNull(entry);
+		Assertions.assertFalse(entry.isStale(60000));
+		Assertions.assertTrue(entry.isStale(0));
+
+		Thread.sleep(50);
+		Assertions.assertTrue(entry.isStale(20));
+		cache.markValidated(PAGE_URL, entry);
+
+		APIPageCache.Entry validatedEntry = new APIPageCache(
+				dir.toPath(), APIPageCache.DEFAULT_MAX_SIZE).get(PAGE_URL);
+		Assertions.assertNotNull(validatedEntry);
+		Assertions.assertFalse(validatedEntry.isStale(20));
+		Assertions.assertEquals(entry.getETag(), validatedEntry.getETag());
+		Assertions.assertArrayEquals(PAGE_CONTENT, validatedEntry.getContent());
+	}
+
+	@Test
+	void shouldLoadPersistedCacheEntries() throws IOException {
+
+		new APIPageCache(dir.toPath(), APIPageCache.DEFAULT_MAX_SIZE).put(PAGE_URL, PAGE_CONTENT, null, null);
+
+		APIPageCache cache = new APIPageCache(dir.toPath(), APIPageCache.DEFAULT_MAX_SIZE);
+		Assertions.assertTrue(cache.getSize() > PAGE_CONTENT.length);
+
+		APIPageCache.Entry entry = cache.get(PAGE_URL);
+		Assertions.assertNotNull(entry);
+		Assertions.assertArrayEquals(PAGE_CONTENT, entry.getContent());
+	}
+
+	@Test
+	void shouldDeleteStaleTemporaryFilesWhenLoadingCache() throws IOException {
+
+		new APIPageCache(dir.toPath(), APIPageCache.DEFAULT_MAX_SIZE).put(PAGE_URL, PAGE_CONTENT, null, null);
+
+		// temporary file left behind by write that was interrupted
+		Path tempFile = Files.createTempFile(dir.toPath(), "entry", ".tmp");
+		Path otherFile = Files.createFile(dir.toPath().resolve("other.tmp"));
+
+		APIPageCache cache = new APIPageCache(dir.toPath(), APIPageCache.DEFAULT_MAX_SIZE);
+		Assertions.assertFalse(Files.exists(tempFile));
+		Assertions.assertTrue(Files.exists(otherFile));
+		Assertions.assertNotNull(cache.get(PAGE_URL));
+	}
+
+	@Test
+	void shouldEvictLeastRecentlyUsedEntries() throws IOException {
+
+		URL[] urls = new URL[] {
+				ZomboidAPIDoc.resolveURL("zombie/Test0"),
+				ZomboidAPIDoc.resolveURL("zombie/Test1"),
+				ZomboidAPIDoc.resolveURL("zombie/Test2")
+		};
+		APIPageCache cache = new APIPageCache(dir.toPath(), APIPageCache.DEFAULT_MAX_SIZE);
+		cache.put(urls[0], PAGE_CONTENT, null, null);
+
+		// reload cache with enough space for exactly two entries
+		long entrySize = cache.getSize();
+		cache = new APIPageCache(dir.toPath(), entrySize * 2);
+		cache.put(urls[1], PAGE_CONTENT, null, null);
+
+		// use first entry so that second entry becomes least recently used
+		Assertions.assertNotNull(cache.get(urls[0]));
+		cache.put(urls[2], PAGE_CONTENT, null, null);
+
+		Assertions.assertNotNull(cache.get(urls[0]));
+		Assertions.assertNull(cache.get(urls[1]));
+		Assertions.assertNotNull(cache.get(urls[2]));
+		Assertions.assertEquals(entrySize * 2, cache.getSize());
+
+		// files of evicted entries should be deleted
+		File[] entryFiles = dir.listFiles((parent, name) -> name.endsWith(".page"));
+		Assertions.assertEquals(2, Objects.requireNonNull(entryFiles).length);
+	}
+
+	@Test
+	void shouldThrowExceptionWhenCreatingCacheWithInvalidSize() {
+		Assertions.assertThrows(IllegalArgumentException.class,
+				() -> new APIPageCache(dir.toPath(), 0));
+	}
+}
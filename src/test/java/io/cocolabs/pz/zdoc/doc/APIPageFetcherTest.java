@@ -0,0 +1,432 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.doc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.jsoup.HttpStatusException;
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class APIPageFetcherTest extends DocTest {
+
+	private static final int PAGE_COUNT = 8;
+
+	private LocalAPIServer server;
+
+	@BeforeEach
+	void startLocalAPIServer() throws IOException {
+
+		server = new LocalAPIServer();
+		byte[] page = Files.readAllBytes(DOCUMENT_PATH);
+		for (int i = 0; i < PAGE_COUNT; i++) {
+			server.addPage("zombie/Test" + i + ".html", page);
+		}
+	}
+
+	private static ZomboidAPIDoc parsePage(byte[] content, Path path) {
+		try {
+			return ZomboidAPIDoc.parsePage(new ByteArrayInputStream(content), path);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private APIPageFetcher.Builder createFetcher(int threads) {
+		return createFetcher(threads, FetchPolicy.Builder.create().withRequestRate(1000));
+	}
+
+	private APIPageFetcher.Builder createFetcher(int threads, FetchPolicy.Builder policy) {
+		return APIPageFetcher.Builder.create().withAPIHost(server.getURL())
+				.withThreads(threads).withPolicy(policy.withBackoff(10, 50).build());
+	}
+
+	@AfterEach
+	void stopLocalAPIServer() {
+		server.close();
+	}
+
+	@Test
+	void shouldFetchAPIPagesConcurrentlyFromLocalServer() throws ExecutionException, InterruptedException, IOException {
+
+		server.setResponseDelay(100);
+		try (APIPageFetcher fetcher = createFetcher(4).build())
+		{
+			List<Future<ZomboidAPIDoc>> pages = new ArrayList<>();
+			for (int i = 0; i < PAGE_COUNT; i++)
+			{
+				Path path = Paths.get("zombie/Test" + i);
+				pages.add(fetcher.fetchContent(path).thenApply(c -> parsePage(c, path)));
+			}
+			for (int i = 0; i < PAGE_COUNT; i++)
+			{
+				ZomboidAPIDoc page = pages.get(i).get();
+				Assertions.assertNotNull(page);
+				Assertions.assertEquals("Test" + i, page.getName());
+			}
+		}
+		Assertions.assertEquals(PAGE_COUNT, server.getRequestCount());
+		Assertions.assertTrue(server.getMaxActiveRequests() > 1);
+	}
+
+	@Test
+	void shouldResolveFetchedAPIPageBaseURIToModdingAPI() throws IOException {
+
+		try (APIPageFetcher fetcher = createFetcher(1).build())
+		{
+			ZomboidAPIDoc page = fetcher.getPage(Paths.get("zombie/Test0"));
+			Assertions.assertNotNull(page);
+
+			String expected = "https://projectzomboid.com/modding/zombie/Test0.html";
+			Assertions.assertEquals(expected, page.getDocument().baseUri());
+		}
+	}
+
+	@Test
+	void shouldReturnNullWhenFetchingMissingAPIPage() throws IOException {
+
+		try (APIPageFetcher fetcher = createFetcher(2).build()) {
+			Assertions.assertNull(fetcher.getPage(Paths.get("zombie/Missing")));
+		}
+	}
+
+	@Test
+	void shouldThrowExceptionWhenCreatingFetcherWithInvalidThreadCount() {
+
+		Assertions.assertThrows(IllegalArgumentException.class, () -> createFetcher(0).build());
+		Assertions.assertThrows(IllegalArgumentException.class, () -> createFetcher(-1).build());
+	}
+
+	@Test
+	void shouldServeFetchedAPIPagesFromCache(@TempDir Path cacheDir) throws IOException {
+
+		APIPageCache cache = new APIPageCache(cacheDir, APIPageCache.DEFAULT_MAX_SIZE);
+		try (APIPageFetcher fetcher = createFetcher(2).withCache(cache).build())
+		{
+			Assertions.assertNotNull(fetcher.getPage(Paths.get("zombie/Test0")));
+			Assertions.assertEquals(1, server.getRequestCount());
+
+			ZomboidAPIDoc page = fetcher.getPage(Paths.get("zombie/Test0"));
+			Assertions.assertNotNull(page);
+			Assertions.assertEquals(1, server.getRequestCount());
+
+			String expected = "https://projectzomboid.com/modding/zombie/Test0.html";
+			Assertions.assertEquals(expected, page.getDocument().baseUri());
+		}
+		// cache should persist between fetcher instances
+		cache = new APIPageCache(cacheDir, APIPageCache.DEFAULT_MAX_SIZE);
+		try (APIPageFetcher fetcher = createFetcher(2).withCache(cache).build()) {
+			Assertions.assertNotNull(fetcher.getPage(Paths.get("zombie/Test0")));
+		}
+		Assertions.assertEquals(1, server.getRequestCount());
+	}
+
+	@Test
+	void shouldRecordMissingAPIPagesInCache(@TempDir Path cacheDir) throws IOException {
+
+		APIPageCache cache = new APIPageCache(cacheDir, APIPageCache.DEFAULT_MAX_SIZE);
+		try (APIPageFetcher fetcher = createFetcher(2).withCache(cache).build())
+		{
+			Assertions.assertNull(fetcher.getPage(Paths.get("zombie/Missing")));
+			Assertions.assertNull(fetcher.getPage(Paths.get("zombie/Missing")));
+		}
+		Assertions.assertEquals(1, server.getRequestCount());
+	}
+
+	@Test
+	void shouldRevalidateCachedAPIPagesWithConditionalRequests(@TempDir Path cacheDir) throws IOException {
+
+		APIPageCache cache = new APIPageCache(cacheDir, APIPageCache.DEFAULT_MAX_SIZE);
+		try (APIPageFetcher fetcher = createFetcher(2).withCache(cache).build()) {
+			Assertions.assertNotNull(fetcher.getPage(Paths.get("zombie/Test0")));
+		}
+		try (APIPageFetcher fetcher = createFetcher(2).withCache(cache).withRevalidation(true).withMaxAge(0).build())
+		{
+			Assertions.assertNotNull(fetcher.getPage(Paths.get("zombie/Test0")));
+			Assertions.assertEquals(2, server.getRequestCount());
+			Assertions.assertEquals(1, fetcher.getRevalidations());
+			Assertions.assertEquals(0, fetcher.getDownloads());
+
+			// modified page should be downloaded again
+			server.addPage("zombie/Test0.html", "<html><body>modified</body></html>".getBytes());
+
+			ZomboidAPIDoc page = fetcher.getPage(Paths.get("zombie/Test0"));
+			Assertions.assertNotNull(page);
+			Assertions.assertEquals("modified", page.getDocument().body().text());
+			Assertions.assertEquals(1, fetcher.getDownloads());
+		}
+	}
+
+	@Test
+	void shouldRevalidateOnlyStaleCachedAPIPages(@TempDir Path cacheDir) throws IOException, InterruptedException {
+
+		APIPageCache cache = new APIPageCache(cacheDir, APIPageCache.DEFAULT_MAX_SIZE);
+		try (APIPageFetcher fetcher = createFetcher(2).withCache(cache).build()) {
+			Assertions.assertNotNull(fetcher.getPage(Paths.get("zombie/Test0")));
+		}
+		try (APIPageFetcher fetcher = createFetcher(2).withCache(cache).withRevalidation(true).build())
+		{
+			// page was validated within default maximum age
+			Assertions.assertNotNull(fetcher.getPage(Paths.get("zombie/Test0")));
+			Assertions.assertEquals(1, server.getRequestCount());
+			Assertions.assertEquals(1, fetcher.getCacheHits());
+			Assertions.assertEquals(0, fetcher.getRevalidations());
+		}
+		Thread.sleep(50);
+		try (APIPageFetcher fetcher = createFetcher(2).withCache(cache).withRevalidation(true).withMaxAge(10).build())
+		{
+			Assertions.assertNotNull(fetcher.getPage(Paths.get("zombie/Test0")));
+			Assertions.assertEquals(2, server.getRequestCount());
+			Assertions.assertEquals(1, fetcher.getRevalidations());
+		}
+		// revalidated page should not be revalidated again until it becomes stale
+		try (APIPageFetcher fetcher = createFetcher(2).withCache(cache)
+				.withRevalidation(true).withMaxAge(TimeUnit.SECONDS.toMillis(10)).build())
+		{
+			Assertions.assertNotNull(fetcher.getPage(Paths.get("zombie/Test0")));
+			Assertions.assertEquals(2, server.getRequestCount());
+			Assertions.assertEquals(1, fetcher.getCacheHits());
+		}
+	}
+
+	@Test
+	void shouldUseCachedAPIPageWhenRevalidationFails(@TempDir Path cacheDir) throws IOException {
+
+		APIPageCache cache = new APIPageCache(cacheDir, APIPageCache.DEFAULT_MAX_SIZE);
+		try (APIPageFetcher fetcher = createFetcher(2).withCache(cache).build()) {
+			Assertions.assertNotNull(fetcher.getPage(Paths.get("zombie/Test0")));
+		}
+		FetchPolicy.Builder policy = FetchPolicy.Builder.create().withRequestRate(1000).withRetries(1);
+		try (APIPageFetcher fetcher = createFetcher(1, policy).withCache(cache)
+				.withRevalidation(true).withMaxAge(0).build())
+		{
+			server.failNextRequests(2, 503);
+			ZomboidAPIDoc page = fetcher.getPage(Paths.get("zombie/Test0"));
+			Assertions.assertNotNull(page);
+			Assertions.assertEquals(DOCUMENT.getDocument().select("h2").first().text(),
+					page.getDocument().select("h2").first().text());
+
+			Assertions.assertEquals(1, fetcher.getCacheHits());
+			Assertions.assertEquals(0, fetcher.getRevalidations());
+			Assertions.assertEquals(0, fetcher.getDownloads());
+		}
+		// pages that are not cached still fail
+		try (APIPageFetcher fetcher = createFetcher(1, policy).withCache(cache).withRevalidation(true).build())
+		{
+			server.failNextRequests(2, 503);
+			Assertions.assertThrows(HttpStatusException.class, () -> fetcher.getPage(Paths.get("zombie/Test1")));
+		}
+	}
+
+	@Test
+	void shouldCountRevalidatedMissingAPIPageAsRevalidation(@TempDir Path cacheDir) throws IOException {
+
+		APIPageCache cache = new APIPageCache(cacheDir, APIPageCache.DEFAULT_MAX_SIZE);
+		try (APIPageFetcher fetcher = createFetcher(2).withCache(cache).build())
+		{
+			Assertions.assertNull(fetcher.getPage(Paths.get("zombie/Missing")));
+			Assertions.assertEquals(1, fetcher.getDownloads());
+		}
+		try (APIPageFetcher fetcher = createFetcher(2).withCache(cache).withRevalidation(true).withMaxAge(0).build())
+		{
+			Assertions.assertNull(fetcher.getPage(Paths.get("zombie/Missing")));
+			Assertions.assertEquals(1, fetcher.getRevalidations());
+			Assertions.assertEquals(0, fetcher.getDownloads());
+			Assertions.assertEquals(0, fetcher.getCacheHits());
+		}
+		Assertions.assertEquals(2, server.getRequestCount());
+	}
+
+	@Test
+	void shouldCountAPIPageFetchResults(@TempDir Path cacheDir) throws IOException {
+
+		APIPageCache cache = new APIPageCache(cacheDir, APIPageCache.DEFAULT_MAX_SIZE);
+		try (APIPageFetcher fetcher = createFetcher(2).withCache(cache).build())
+		{
+			fetcher.getPage(Paths.get("zombie/Test0"));
+			fetcher.getPage(Paths.get("zombie/Test0"));
+			fetcher.getPage(Paths.get("zombie/Test1"));
+
+			Assertions.assertEquals(1, fetcher.getCacheHits());
+			Assertions.assertEquals(0, fetcher.getRevalidations());
+			Assertions.assertEquals(2, fetcher.getDownloads());
+		}
+	}
+
+	@Test
+	void shouldReadAPIPagesOnlyFromLocalSource(@TempDir Path sourceDir) throws IOException {
+
+		Path page = Files.createDirectories(sourceDir.resolve("zombie")).resolve("Test0.html");
+		Files.copy(DOCUMENT_PATH, page);
+
+		LocalAPISource source = new LocalAPISource(sourceDir);
+		try (APIPageFetcher fetcher = createFetcher(2).withSource(source).build())
+		{
+			Assertions.assertNotNull(fetcher.getPage(Paths.get("zombie/Test0")));
+			Assertions.assertNull(fetcher.getPage(Paths.get("zombie/Test1")));
+		}
+		Assertions.assertEquals(0, server.getRequestCount());
+	}
+
+	@Test
+	void shouldFetchRawAPIPageContent() throws ExecutionException, InterruptedException, IOException {
+
+		try (APIPageFetcher fetcher = createFetcher(2).build())
+		{
+			byte[] content = fetcher.fetchContent(Paths.get("zombie/Test0")).get();
+			Assertions.assertArrayEquals(Files.readAllBytes(DOCUMENT_PATH), content);
+			Assertions.assertNull(fetcher.fetchContent(Paths.get("zombie/Missing")).get());
+
+			// fetched content can be processed by further pipeline stages
+			String name = fetcher.fetchContent(Paths.get("zombie/Test1")).thenApply(c ->
+					Jsoup.parse(new String(c, StandardCharsets.UTF_8)).select("h2").first().text()).get();
+			Assertions.assertEquals(DOCUMENT.getDocument().select("h2").first().text(), name);
+		}
+	}
+
+	@Test
+	void shouldNotFetchAPIPageContentWhenCancelledBeforeRequest()
+			throws ExecutionException, InterruptedException, IOException {
+
+		server.setResponseDelay(200);
+		try (APIPageFetcher fetcher = createFetcher(1).build())
+		{
+			CompletableFuture<byte[]> first = fetcher.fetchContent(Paths.get("zombie/Test0"));
+			CompletableFuture<byte[]> cancelled = fetcher.fetchContent(Paths.get("zombie/Test1"));
+			CompletableFuture<byte[]> last = fetcher.fetchContent(Paths.get("zombie/Test2"));
+
+			// second page is queued while the single worker is waiting for the first
+			Assertions.assertTrue(cancelled.cancel(true));
+			Assertions.assertNotNull(first.get());
+			Assertions.assertNotNull(last.get());
+		}
+		Assertions.assertEquals(2, server.getRequestCount());
+	}
+
+	@Test
+	void shouldRetryFailedAPIPageRequests() throws IOException {
+
+		server.failNextRequests(2, 503);
+		try (APIPageFetcher fetcher = createFetcher(1).build()) {
+			Assertions.assertNotNull(fetcher.getPage(Paths.get("zombie/Test0")));
+		}
+		Assertions.assertEquals(3, server.getRequestCount());
+	}
+
+	@Test
+	void shouldThrowExceptionWhenAPIPageRequestRetriesAreExhausted() throws IOException {
+
+		server.failNextRequests(3, 429);
+		FetchPolicy.Builder policy = FetchPolicy.Builder.create().withRequestRate(1000).withRetries(2);
+		try (APIPageFetcher fetcher = createFetcher(1, policy).build())
+		{
+			HttpStatusException e = Assertions.assertThrows(HttpStatusException.class,
+					() -> fetcher.getPage(Paths.get("zombie/Test0")));
+			Assertions.assertEquals(429, e.getStatusCode());
+		}
+		Assertions.assertEquals(3, server.getRequestCount());
+	}
+
+	@Test
+	void shouldThrowExceptionWhenAPIPageRequestTimesOut() throws IOException {
+
+		server.setResponseDelay(2000);
+		FetchPolicy.Builder policy = FetchPolicy.Builder.create()
+				.withRequestRate(1000).withReadTimeout(200).withRetries(0);
+
+		try (APIPageFetcher fetcher = createFetcher(1, policy).build()) {
+			Assertions.assertThrows(SocketTimeoutException.class,
+					() -> fetcher.getPage(Paths.get("zombie/Test0")));
+		}
+	}
+
+	@Test
+	void shouldApplyReadTimeoutToEachReadOfAPIPageResponse() throws IOException {
+
+		byte[] content = new byte[LocalAPIServer.TRANSFER_CHUNK_SIZE * 8];
+		Arrays.fill(content, (byte) 'a');
+		server.addPage("zombie/Slow.html", content);
+
+		// whole response takes longer to transfer than read timeout
+		server.setTransferDelay(100);
+		FetchPolicy.Builder policy = FetchPolicy.Builder.create()
+				.withRequestRate(1000).withReadTimeout(400).withRetries(0);
+
+		try (APIPageFetcher fetcher = createFetcher(1, policy).build()) {
+			Assertions.assertArrayEquals(content, fetcher.getPageContent(Paths.get("zombie/Slow")));
+		}
+		Assertions.assertEquals(1, server.getRequestCount());
+	}
+
+	@Test
+	void shouldLimitAPIPageRequestRate() throws ExecutionException, InterruptedException, IOException {
+
+		FetchPolicy.Builder policy = FetchPolicy.Builder.create().withRequestRate(10);
+		long startTime = System.nanoTime();
+		try (APIPageFetcher fetcher = createFetcher(4, policy).build())
+		{
+			List<Future<byte[]>> pages = new ArrayList<>();
+			for (int i = 0; i < 6; i++) {
+				pages.add(fetcher.fetchContent(Paths.get("zombie/Test" + i)));
+			}
+			for (Future<byte[]> page : pages) {
+				Assertions.assertNotNull(page.get());
+			}
+		}
+		// first request is sent immediately and following requests wait for 100ms each
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+		Assertions.assertTrue(elapsed >= 400, "Requests were not rate limited: " + elapsed + "ms");
+	}
+
+	@Test
+	void shouldLimitNumberOfInFlightAPIPageRequests() throws ExecutionException, InterruptedException, IOException {
+
+		server.setResponseDelay(100);
+		FetchPolicy.Builder policy = FetchPolicy.Builder.create().withRequestRate(1000).withMaxRequests(2);
+		try (APIPageFetcher fetcher = createFetcher(PAGE_COUNT, policy).build())
+		{
+			List<Future<byte[]>> pages = new ArrayList<>();
+			for (int i = 0; i < PAGE_COUNT; i++) {
+				pages.add(fetcher.fetchContent(Paths.get("zombie/Test" + i)));
+			}
+			for (Future<byte[]> page : pages) {
+				Assertions.assertNotNull(page.get());
+			}
+		}
+		Assertions.assertEquals(2, server.getMaxActiveRequests());
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.doc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class APIPageMirrorTest extends DocTest {
+
+	@Test
+	void shouldWriteFetchedAPIPagesToMirrorArchive(@TempDir Path dir) throws IOException {
+
+		List<String> paths = Arrays.asList("zombie/Test0", "zombie/Test1", "zombie/Missing");
+		Path archive = dir.resolve("mirror/api.zip");
+		try (LocalAPIServer server = new LocalAPIServer())
+		{
+			byte[] page = Files.readAllBytes(DOCUMENT_PATH);
+			server.addPage("zombie/Test0.html", page);
+			server.addPage("zombie/Test1.html", page);
+
+			try (APIPageFetcher fetcher = APIPageFetcher.Builder.create()
+					.withAPIHost(server.getURL()).withThreads(2).build())
+			{
+				Assertions.assertEquals(2, APIPageMirror.write(fetcher, paths, archive));
+			}
+			Assertions.assertEquals(3, server.getRequestCount());
+		}
+		String expected = ZomboidAPIDoc.getLocalPage(DOCUMENT_PATH).getDocument().text();
+		try (LocalAPISource source = new LocalAPISource(archive))
+		{
+			for (String path : paths.subList(0, 2))
+			{
+				ZomboidAPIDoc apiDoc = source.getPage(Paths.get(path));
+				Assertions.assertNotNull(apiDoc);
+				Assertions.assertEquals(expected, apiDoc.getDocument().text());
+			}
+			Assertions.assertNull(source.getPage(Paths.get("zombie/Missing")));
+		}
+		// temporary archive should be moved to target path
+		try (Stream<Path> files = Files.list(archive.getParent())) {
+			Assertions.assertEquals(1, files.count());
+		}
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.doc;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class DocWriterPoolTest {
+
+	@Test
+	void shouldCompleteAllWriteTasksBeforeAwaitReturns() throws IOException {
+
+		Set<Integer> written = ConcurrentHashMap.newKeySet();
+		try (DocWriterPool pool = new DocWriterPool(2))
+		{
+			for (int i = 0; i < 100; i++)
+			{
+				final int index = i;
+				pool.submit("doc" + i, () -> written.add(index));
+			}
+			pool.await();
+		}
+		Assertions.assertEquals(100, written.size());
+	}
+
+	@Test
+	void shouldAggregateWriteErrorsWhenAwaitingWriteTasks() {
+
+		Set<Integer> written = ConcurrentHashMap.newKeySet();
+		try (DocWriterPool pool = new DocWriterPool(2))
+		{
+			for (int i = 0; i < 10; i++)
+			{
+				final int index = i;
+				pool.submit("doc" + i, () -> {
+					if (index % 3 == 0) {
+						throw new IOException("failed " + index);
+					}
+					written.add(index);
+				});
+			}
+			IOException e = Assertions.assertThrows(IOException.class, pool::await);
+			Assertions.assertEquals(4, e.getSuppressed().length);
+		}
+		// failed writes should not prevent other writes
+		Assertions.assertEquals(6, written.size());
+	}
+}
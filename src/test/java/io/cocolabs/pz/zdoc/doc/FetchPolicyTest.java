@@ -0,0 +1,70 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.doc;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class FetchPolicyTest {
+
+	@Test
+	void shouldCalculateExponentialBackoffWithJitter() {
+
+		FetchPolicy policy = FetchPolicy.Builder.create().withBackoff(100, 1000).build();
+		long[] expected = new long[]{ 100, 200, 400, 800, 1000, 1000 };
+		for (int i = 0; i < expected.length; i++)
+		{
+			for (int j = 0; j < 20; j++)
+			{
+				long backoff = policy.getBackoff(i + 1);
+				Assertions.assertTrue(backoff >= expected[i] / 2 && backoff <= expected[i],
+						String.format("Backoff %d for attempt %d out of bounds", backoff, i + 1));
+			}
+		}
+		// backoff should not overflow with large number of attempts
+		Assertions.assertTrue(policy.getBackoff(100) <= 1000);
+	}
+
+	@Test
+	void shouldRecognizeRetryableStatusCodes() {
+
+		for (int status : new int[]{ 408, 429, 500, 502, 503, 504 }) {
+			Assertions.assertTrue(FetchPolicy.isRetryableStatus(status));
+		}
+		for (int status : new int[]{ 200, 304, 400, 403, 404 }) {
+			Assertions.assertFalse(FetchPolicy.isRetryableStatus(status));
+		}
+	}
+
+	@Test
+	void shouldThrowExceptionWhenBuildingInvalidPolicy() {
+
+		Assertions.assertThrows(IllegalArgumentException.class,
+				() -> FetchPolicy.Builder.create().withConnectTimeout(0).build());
+		Assertions.assertThrows(IllegalArgumentException.class,
+				() -> FetchPolicy.Builder.create().withReadTimeout(0).build());
+		Assertions.assertThrows(IllegalArgumentException.class,
+				() -> FetchPolicy.Builder.create().withRetries(-1).build());
+		Assertions.assertThrows(IllegalArgumentException.class,
+				() -> FetchPolicy.Builder.create().withRequestRate(0).build());
+		Assertions.assertThrows(IllegalArgumentException.class,
+				() -> FetchPolicy.Builder.create().withMaxRequests(0).build());
+		Assertions.assertThrows(IllegalArgumentException.class,
+				() -> FetchPolicy.Builder.create().withBackoff(100, 10).build());
+	}
+}
@@ -0,0 +1,209 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.doc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import io.cocolabs.pz.zdoc.element.java.JavaClass;
+import io.cocolabs.pz.zdoc.element.java.JavaField;
+import io.cocolabs.pz.zdoc.element.java.JavaMethod;
+import io.cocolabs.pz.zdoc.element.java.JavaParameter;
+import io.cocolabs.pz.zdoc.element.mod.AccessModifierKey;
+import io.cocolabs.pz.zdoc.element.mod.MemberModifier;
+import io.cocolabs.pz.zdoc.element.mod.ModifierKey;
+
+class JavaDocIRTest {
+
+	private static final MemberModifier MODIFIER = new MemberModifier(
+			AccessModifierKey.PUBLIC, ModifierKey.STATIC, ModifierKey.FINAL
+	);
+
+	private static byte[] writeIR(Collection<ZomboidJavaDoc> javaDocs) throws IOException {
+
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		JavaDocIR.write(javaDocs, stream);
+		return stream.toByteArray();
+	}
+
+	@Test
+	void shouldReadJavaDocumentsWrittenToIR() throws IOException {
+
+		JavaClass mapType = new JavaClass(HashMap.class, Arrays.asList(
+				new JavaClass(String.class), new JavaClass(ArrayList.class, 1)));
+		List<JavaField> fields = ImmutableList.of(
+				new JavaField(mapType, "map", MODIFIER, "map comment"),
+				new JavaField(new JavaClass(float[].class), "floats", MemberModifier.UNDECLARED)
+		);
+		Set<JavaMethod> methods = ImmutableSet.of(
+				JavaMethod.Builder.create("getMap").withReturnType(mapType, "returns map")
+						.withModifier(MODIFIER).withComment("method comment")
+						.withParams(new JavaParameter(int.class, "index", "param comment")).build(),
+				JavaMethod.Builder.create("format").withReturnType(String.class)
+						.withParams(new JavaParameter(String.class, "format"),
+								new JavaParameter(Object.class, "args")).withVarArgs(true).build()
+		);
+		List<ZomboidJavaDoc> javaDocs = ImmutableList.of(
+				new ZomboidJavaDoc(new JavaClass(JavaDocIRTest.class), fields, methods),
+				new ZomboidJavaDoc(new JavaClass(Object.class), new ArrayList<>(), new HashSet<>())
+		);
+		Set<ZomboidJavaDoc> readDocs = JavaDocIR.read(new ByteArrayInputStream(writeIR(javaDocs)));
+		Assertions.assertEquals(javaDocs.size(), readDocs.size());
+
+		Iterator<ZomboidJavaDoc> iterator = readDocs.iterator();
+		for (ZomboidJavaDoc expectedDoc : javaDocs)
+		{
+			ZomboidJavaDoc actualDoc = iterator.next();
+			Assertions.assertEquals(expectedDoc.getClazz(), actualDoc.getClazz());
+			Assertions.assertEquals(expectedDoc.getFields(), actualDoc.getFields());
+			for (int i = 0; i < expectedDoc.getFields().size(); i++)
+			{
+				JavaField expectedField = expectedDoc.getFields().get(i);
+				JavaField actualField = actualDoc.getFields().get(i);
+				Assertions.assertEquals(expectedField.getModifier(), actualField.getModifier());
+				Assertions.assertEquals(expectedField.getComment(), actualField.getComment());
+			}
+			Map<String, JavaMethod> actualMethods = new HashMap<>();
+			actualDoc.getMethods().forEach(m -> actualMethods.put(m.getName(), m));
+			Assertions.assertEquals(expectedDoc.getMethods().size(), actualMethods.size());
+			for (JavaMethod expectedMethod : expectedDoc.getMethods())
+			{
+				JavaMethod actualMethod = actualMethods.get(expectedMethod.getName());
+				Assertions.assertEquals(expectedMethod.getReturnType(), actualMethod.getReturnType());
+				Assertions.assertEquals(expectedMethod.getReturnType().getComment(),
+						actualMethod.getReturnType().getComment());
+				Assertions.assertEquals(expectedMethod.getParams(), actualMethod.getParams());
+				Assertions.assertEquals(expectedMethod.getModifier(), actualMethod.getModifier());
+				Assertions.assertEquals(expectedMethod.hasVarArg(), actualMethod.hasVarArg());
+				Assertions.assertEquals(expectedMethod.getComment(), actualMethod.getComment());
+				for (int i = 0; i < expectedMethod.getParams().size(); i++)
+				{
+					Assertions.assertEquals(expectedMethod.getParams().get(i).getComment(),
+							actualMethod.getParams().get(i).getComment());
+				}
+			}
+		}
+	}
+
+	@Test
+	void shouldWriteRepeatedStringsToIROnlyOnce() throws IOException {
+
+		List<JavaField> fields = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			fields.add(new JavaField(String.class, "field" + i, MODIFIER));
+		}
+		byte[] ir = writeIR(Collections.singleton(new ZomboidJavaDoc(
+				new JavaClass(JavaDocIRTest.class), fields, new HashSet<>())));
+
+		String content = new String(ir, StandardCharsets.ISO_8859_1);
+		Assertions.assertEquals(content.indexOf("java.lang.String"), content.lastIndexOf("java.lang.String"));
+	}
+
+	@Test
+	void shouldThrowExceptionWhenReadingMalformedIR() throws IOException {
+
+		byte[] ir = writeIR(Collections.singleton(new ZomboidJavaDoc(new JavaClass(Object.class),
+				ImmutableList.of(new JavaField(String.class, "field", MODIFIER)), new HashSet<>())));
+
+		Assertions.assertThrows(IOException.class, () -> JavaDocIR.read(
+				new ByteArrayInputStream("not an IR".getBytes(StandardCharsets.UTF_8))));
+
+		byte[] truncatedIR = Arrays.copyOf(ir, ir.length - 2);
+		Assertions.assertThrows(IOException.class, () -> JavaDocIR.read(new ByteArrayInputStream(truncatedIR)));
+
+		// rename class to a class that does not exist
+		String content = new String(ir, StandardCharsets.ISO_8859_1).replace("java.lang.String", "java.lang.Strang");
+		byte[] unknownClassIR = content.getBytes(StandardCharsets.ISO_8859_1);
+		Assertions.assertThrows(IOException.class, () -> JavaDocIR.read(new ByteArrayInputStream(unknownClassIR)));
+	}
+
+	@Test
+	void shouldThrowExceptionWhenReadingCorruptIR() throws IOException {
+
+		byte[] header = { 'Z', 'D', 'I', 'R', 1 };
+		byte[][] corruptIRs = {
+				// negative string table size
+				{ (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F },
+				// string table size larger than remaining data
+				{ (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07 },
+				// string length larger than remaining data
+				{ 1, (byte) 0xFF, (byte) 0xFF, 0x7F, 'a' },
+				// document count larger than remaining data
+				{ 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01 },
+				// variable-length integer longer than five bytes
+				{ (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01 },
+		};
+		for (byte[] corruptIR : corruptIRs)
+		{
+			byte[] ir = new byte[header.length + corruptIR.length];
+			System.arraycopy(header, 0, ir, 0, header.length);
+			System.arraycopy(corruptIR, 0, ir, header.length, corruptIR.length);
+			Assertions.assertThrows(IOException.class, () -> JavaDocIR.read(new ByteArrayInputStream(ir)));
+		}
+		Assertions.assertThrows(IOException.class, () -> JavaDocIR.read(
+				new ByteArrayInputStream(Arrays.copyOf(header, 2))));
+
+		// corrupting any byte of valid IR should either be read or throw an I/O exception
+		byte[] validIR = writeIR(Collections.singleton(new ZomboidJavaDoc(new JavaClass(Object.class),
+				ImmutableList.of(new JavaField(String.class, "field", MODIFIER)), ImmutableSet.of(
+				JavaMethod.Builder.create("get").withReturnType(String.class).withModifier(MODIFIER)
+						.withParams(new JavaParameter(int.class, "index")).build()))));
+
+		for (int i = header.length; i < validIR.length; i++)
+		{
+			for (byte value : new byte[]{ (byte) 0xFF, (byte) 0x80, 0x7F, 0 })
+			{
+				byte[] ir = validIR.clone();
+				ir[i] = value;
+				try {
+					JavaDocIR.read(new ByteArrayInputStream(ir));
+				}
+				catch (IOException e) {
+					// expected for most corrupted bytes
+				}
+			}
+		}
+	}
+
+	@Test
+	void shouldReadIRFromStreamReturningPartialReads() throws IOException {
+
+		byte[] ir = writeIR(Collections.singleton(new ZomboidJavaDoc(
+				new JavaClass(Object.class), new ArrayList<>(), new HashSet<>())));
+
+		// stream that reads at most one byte at a time
+		InputStream stream = new FilterInputStream(new ByteArrayInputStream(ir)) {
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return super.read(b, off, Math.min(len, 1));
+			}
+		};
+		Assertions.assertEquals(1, JavaDocIR.read(stream).size());
+	}
+}
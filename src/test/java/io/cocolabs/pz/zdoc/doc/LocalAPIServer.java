@@ -0,0 +1,204 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.doc;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jetbrains.annotations.Nullable;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.cocolabs.pz.zdoc.util.Utils;
+
+/**
+ * Local stand-in for modding API website that serves registered pages over HTTP.
+ * Pages are served with {@code ETag} header and conditional requests are supported.
+ */
+@SuppressWarnings("WeakerAccess")
+public class LocalAPIServer implements AutoCloseable {
+
+	/** Number of bytes of response body sent at a time. */
+	public static final int TRANSFER_CHUNK_SIZE = 64;
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final Map<String, byte[]> pages = new ConcurrentHashMap<>();
+
+	private final AtomicInteger requestCount = new AtomicInteger();
+	private final AtomicInteger activeRequests = new AtomicInteger();
+	private final AtomicInteger maxActiveRequests = new AtomicInteger();
+
+	private final AtomicInteger failures = new AtomicInteger();
+	private volatile int failureStatus = 503;
+	private volatile long responseDelay = 0;
+	private volatile long transferDelay = 0;
+
+	public LocalAPIServer() throws IOException {
+
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", this::handle);
+		executor = Executors.newCachedThreadPool();
+		server.setExecutor(executor);
+		server.start();
+	}
+
+	/**
+	 * Register page to be served for given API path (ex. {@code zombie/Test.html}).
+	 */
+	public void addPage(String path, byte[] content) {
+		pages.put("/modding/" + path, content);
+	}
+
+	/**
+	 * Delay each response by given number of milliseconds to simulate network latency.
+	 */
+	public void setResponseDelay(long millis) {
+		responseDelay = millis;
+	}
+
+	/**
+	 * Send response body in chunks of {@link #TRANSFER_CHUNK_SIZE} bytes and wait for
+	 * given number of milliseconds between chunks to simulate slow transfer.
+	 */
+	public void setTransferDelay(long millis) {
+		transferDelay = millis;
+	}
+
+	/**
+	 * Respond to given number of following requests with given status code
+	 * to simulate temporary server failures.
+	 */
+	public void failNextRequests(int count, int status) {
+		failureStatus = status;
+		failures.set(count);
+	}
+
+	public URL getURL() {
+		return Utils.getURL("http://127.0.0.1:" + server.getAddress().getPort() + "/modding");
+	}
+
+	public int getRequestCount() {
+		return requestCount.get();
+	}
+
+	public int getMaxActiveRequests() {
+		return maxActiveRequests.get();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+
+		requestCount.incrementAndGet();
+		int active = activeRequests.incrementAndGet();
+		maxActiveRequests.accumulateAndGet(active, Math::max);
+		try {
+			if (responseDelay > 0)
+			{
+				try {
+					Thread.sleep(responseDelay);
+				}
+				catch (InterruptedException e)
+				{
+					activeRequests.decrementAndGet();
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+			if (failures.getAndUpdate(f -> Math.max(f - 1, 0)) > 0)
+			{
+				respond(exchange, failureStatus, null);
+				return;
+			}
+			byte[] page = pages.get(exchange.getRequestURI().getPath());
+			if (page != null)
+			{
+				// pages are identified by content hash so that modified pages get new tag
+				String eTag = '"' + Integer.toHexString(Arrays.hashCode(page)) + '"';
+				exchange.getResponseHeaders().add("ETag", eTag);
+				if (eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match")))
+				{
+					respond(exchange, 304, null);
+					return;
+				}
+				exchange.getResponseHeaders().add("Content-Type", "text/html; charset=UTF-8");
+				respond(exchange, 200, page);
+			}
+			else respond(exchange, 404, null);
+		}
+		finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Send response with given status and body to client. The request is counted as active
+	 * until just before the last byte of response is sent, because client can send the
+	 * next request as soon as it has received the whole response.
+	 */
+	private void respond(HttpExchange exchange, int status, @Nullable byte[] body) throws IOException {
+
+		boolean active = true;
+		try {
+			if (body == null || body.length == 0)
+			{
+				active = false;
+				activeRequests.decrementAndGet();
+				exchange.sendResponseHeaders(status, -1);
+				return;
+			}
+			exchange.sendResponseHeaders(status, body.length);
+			OutputStream oStream = exchange.getResponseBody();
+			for (int offset = 0; offset < body.length - 1; offset += TRANSFER_CHUNK_SIZE)
+			{
+				if (offset > 0 && transferDelay > 0) {
+					Thread.sleep(transferDelay);
+				}
+				oStream.write(body, offset, Math.min(TRANSFER_CHUNK_SIZE, body.length - 1 - offset));
+				oStream.flush();
+			}
+			active = false;
+			activeRequests.decrementAndGet();
+			oStream.write(body, body.length - 1, 1);
+			oStream.close();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			if (active) {
+				activeRequests.decrementAndGet();
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.doc;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.cocolabs.pz.zdoc.TestWorkspace;
+
+class LocalAPISourceTest extends TestWorkspace {
+
+	private static final String EXPECTED_BASE_URI = "https://projectzomboid.com/modding/zombie/Test.html";
+
+	LocalAPISourceTest() {
+		super("");
+	}
+
+	@Test
+	void shouldReadAPIPageFromLocalDirectory() throws IOException {
+
+		Path page = dir.toPath().resolve("zombie/Test.html");
+		Files.createDirectories(page.getParent());
+		Files.copy(DocTest.DOCUMENT_PATH, page);
+
+		try (LocalAPISource source = new LocalAPISource(dir.toPath()))
+		{
+			ZomboidAPIDoc apiDoc = source.getPage(Paths.get("zombie/Test"));
+			Assertions.assertNotNull(apiDoc);
+			Assertions.assertEquals("Test", apiDoc.getName());
+			Assertions.assertEquals(EXPECTED_BASE_URI, apiDoc.getDocument().baseUri());
+
+			Assertions.assertNotNull(source.getPage(Paths.get("zombie/Test.html")));
+			Assertions.assertNull(source.getPage(Paths.get("zombie/Missing")));
+		}
+	}
+
+	@Test
+	void shouldReadAPIPageFromZipArchive() throws IOException {
+
+		Path archive = dir.toPath().resolve("api.zip");
+		try (ZipOutputStream zStream = new ZipOutputStream(Files.newOutputStream(archive)))
+		{
+			zStream.putNextEntry(new ZipEntry("modding/zombie/Test.html"));
+			Files.copy(DocTest.DOCUMENT_PATH, (OutputStream) zStream);
+			zStream.closeEntry();
+		}
+		try (LocalAPISource source = new LocalAPISource(archive))
+		{
+			ZomboidAPIDoc apiDoc = source.getPage(Paths.get("zombie/Test"));
+			Assertions.assertNotNull(apiDoc);
+			Assertions.assertEquals(EXPECTED_BASE_URI, apiDoc.getDocument().baseUri());
+			Assertions.assertFalse(apiDoc.getDocument().getElementsByAttributeValue(
+					"name", "method.detail").isEmpty());
+
+			Assertions.assertNull(source.getPage(Paths.get("zombie/Missing")));
+		}
+	}
+
+	@Test
+	void shouldThrowExceptionWhenOpeningNonExistingSource() {
+		Assertions.assertThrows(IOException.class,
+				() -> new LocalAPISource(dir.toPath().resolve("missing.zip")));
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.doc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class LuaDocWriterTest {
+
+	@Test
+	void shouldEncodeContentLargerThanBuffer() throws IOException {
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			// mix of single byte, multi-byte and surrogate pair characters
+			sb.append("field").append(i).append(" = é中😀\n");
+		}
+		String content = sb.toString();
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		try (LuaDocWriter writer = new LuaDocWriter(Channels.newChannel(stream)))
+		{
+			// write in chunks that split surrogate pairs between buffers
+			for (int i = 0; i < content.length(); i += 7) {
+				writer.write(content, i, Math.min(7, content.length() - i));
+			}
+		}
+		Assertions.assertArrayEquals(content.getBytes(StandardCharsets.UTF_8), stream.toByteArray());
+	}
+
+	@Test
+	void shouldReuseBuffersBetweenWritersOnSameThread() throws IOException {
+
+		ByteArrayOutputStream stream1 = new ByteArrayOutputStream();
+		try (LuaDocWriter writer1 = new LuaDocWriter(Channels.newChannel(stream1)))
+		{
+			writer1.write("outer");
+			// nested writer should not overwrite content buffered by outer writer
+			ByteArrayOutputStream nestedStream = new ByteArrayOutputStream();
+			try (LuaDocWriter nestedWriter = new LuaDocWriter(Channels.newChannel(nestedStream))) {
+				nestedWriter.write("nested");
+			}
+			Assertions.assertEquals("nested", nestedStream.toString(StandardCharsets.UTF_8.name()));
+		}
+		Assertions.assertEquals("outer", stream1.toString(StandardCharsets.UTF_8.name()));
+
+		// buffers released by previous writer should not leak content
+		ByteArrayOutputStream stream2 = new ByteArrayOutputStream();
+		try (LuaDocWriter writer2 = new LuaDocWriter(Channels.newChannel(stream2))) {
+			writer2.write('x');
+		}
+		Assertions.assertEquals("x", stream2.toString(StandardCharsets.UTF_8.name()));
+	}
+
+	@Test
+	void shouldThrowExceptionWhenWritingToClosedWriter() throws IOException {
+
+		LuaDocWriter writer = new LuaDocWriter(Channels.newChannel(new ByteArrayOutputStream()));
+		writer.close();
+		Assertions.assertThrows(IOException.class, () -> writer.write("text"));
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.doc;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OutputManifestTest {
+
+	@Test
+	void shouldNotWriteFilesWithUnchangedContent(@TempDir Path dir) throws IOException {
+
+		OutputManifest manifest = new OutputManifest(dir, null);
+		Assertions.assertTrue(manifest.write("test.lua", w -> w.write("content")));
+
+		Path file = dir.resolve("test.lua");
+		FileTime modifiedTime = FileTime.fromMillis(1000L);
+		Files.setLastModifiedTime(file, modifiedTime);
+
+		Assertions.assertFalse(manifest.write("test.lua", w -> w.write("content")));
+		Assertions.assertEquals(modifiedTime, Files.getLastModifiedTime(file));
+
+		Assertions.assertTrue(manifest.write("test.lua", w -> w.write("changed")));
+		Assertions.assertEquals("changed", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+
+		Assertions.assertEquals(2, manifest.getWrittenCount());
+		Assertions.assertEquals(1, manifest.getUnchangedCount());
+	}
+
+	@Test
+	void shouldRenderDocumentContentOnce(@TempDir Path dir) throws IOException {
+
+		// content larger than initial render buffer and writer buffers
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; sb.length() < 256 * 1024; i++) {
+			sb.append("Table.field").append(i).append(" = ").append(i).append('\n');
+		}
+		String text = sb.toString();
+		AtomicInteger renders = new AtomicInteger();
+		OutputManifest.Content content = w -> {
+			renders.incrementAndGet();
+			w.write(text);
+		};
+		OutputManifest manifest = new OutputManifest(dir, null);
+		Assertions.assertTrue(manifest.write("test.lua", content));
+		Assertions.assertEquals(1, renders.get());
+		Path file = dir.resolve("test.lua");
+		Assertions.assertEquals(text, new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+
+		Assertions.assertFalse(manifest.write("test.lua", content));
+		Assertions.assertEquals(2, renders.get());
+
+		// shorter content should truncate existing file
+		Assertions.assertTrue(manifest.write("test.lua", w -> w.write("short")));
+		Assertions.assertEquals("short", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void shouldUseManifestToDetectUnchangedFiles(@TempDir Path dir) throws IOException {
+
+		Path output = Files.createDirectory(dir.resolve("output"));
+		Path manifestFile = dir.resolve("manifest.txt");
+
+		OutputManifest manifest = new OutputManifest(output, manifestFile);
+		manifest.write("test.lua", w -> w.write("content"));
+		manifest.save();
+		Assertions.assertTrue(Files.exists(manifestFile));
+
+		// should not write file with content matching manifest entry
+		OutputManifest loadedManifest = new OutputManifest(output, manifestFile);
+		Assertions.assertFalse(loadedManifest.write("test.lua", w -> w.write("content")));
+
+		// should write file that was modified after manifest was saved
+		Files.write(output.resolve("test.lua"), "modified".getBytes(StandardCharsets.UTF_8));
+		Assertions.assertTrue(loadedManifest.write("test.lua", w -> w.write("content")));
+
+		// should write file that was deleted after manifest was saved
+		Files.delete(output.resolve("test.lua"));
+		Assertions.assertTrue(loadedManifest.write("test.lua", w -> w.write("content")));
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.doc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.cocolabs.pz.zdoc.doc.detail.DetailParsingException;
+import io.cocolabs.pz.zdoc.doc.detail.FieldDetail;
+import io.cocolabs.pz.zdoc.doc.detail.MethodDetail;
+
+class SectionExtractorTest extends DocTest {
+
+	private static final Path PAGE_PATH = Paths.get("zombie/Test");
+
+	@TestOnly
+	private static @Nullable String extract(String html, String... anchors) throws IOException {
+		return SectionExtractor.extract(new StringReader(html), Arrays.asList(anchors));
+	}
+
+	@Test
+	void shouldParseSameDetailsFromSectionsAsFromWholePage() throws IOException, DetailParsingException {
+
+		byte[] content = Files.readAllBytes(DOCUMENT_PATH);
+		ZomboidAPIDoc page = ZomboidAPIDoc.parsePage(new ByteArrayInputStream(content), PAGE_PATH);
+		ZomboidAPIDoc sections = ZomboidAPIDoc.parseSections(
+				content, PAGE_PATH, FieldDetail.ANCHOR_NAME, MethodDetail.ANCHOR_NAME);
+
+		List<?> expectedFields = new FieldDetail(page).getEntries();
+		Assertions.assertFalse(expectedFields.isEmpty());
+		Assertions.assertEquals(expectedFields, new FieldDetail(sections).getEntries());
+
+		List<?> expectedMethods = new MethodDetail(page).getEntries();
+		Assertions.assertFalse(expectedMethods.isEmpty());
+		Assertions.assertEquals(expectedMethods, new MethodDetail(sections).getEntries());
+
+		Assertions.assertEquals(page.getName(), sections.getName());
+		Assertions.assertEquals(page.getDocument().baseUri(), sections.getDocument().baseUri());
+	}
+
+	@Test
+	void shouldParseOnlyRequestedSections() throws IOException {
+
+		byte[] content = Files.readAllBytes(DOCUMENT_PATH);
+		Document document = ZomboidAPIDoc.parseSections(
+				content, PAGE_PATH, MethodDetail.ANCHOR_NAME).getDocument();
+
+		List<String> anchors = document.getElementsByAttribute("name").stream()
+				.map(e -> e.attr("name")).filter(n -> n.endsWith(".detail") || n.endsWith(".summary"))
+				.collect(Collectors.toList());
+		Assertions.assertEquals(Collections.singletonList(MethodDetail.ANCHOR_NAME), anchors);
+
+		Element section = document.body().child(0);
+		Assertions.assertEquals("li", section.tagName());
+		Assertions.assertEquals(MethodDetail.ANCHOR_NAME, section.child(0).attr("name"));
+	}
+
+	@Test
+	void shouldExtractListItemEnclosingAnchor() throws IOException {
+
+		String html = "<ul><li>first</li><li class=\"item\"><a name=\"section\"></a>" +
+				"<ul><li>nested</li></ul></li><li>last</li></ul>";
+
+		Assertions.assertEquals("<li class=\"item\"><a name=\"section\"></a>" +
+				"<ul><li>nested</li></ul></li>\n", extract(html, "section"));
+	}
+
+	@Test
+	void shouldNotTokenizeCommentsAndScriptsWhenExtractingSections() throws IOException {
+
+		String html = "<script>var item = '<li>' + (1 < 2);</script>" +
+				"<ul><li><a name='section'></a><!-- </li> --><p>text</p></li></ul>";
+
+		Assertions.assertEquals("<li><a name='section'></a><!-- </li> --><p>text</p></li>\n",
+				extract(html, "section"));
+	}
+
+	@Test
+	void shouldExtractUnclosedSectionAtEndOfDocument() throws IOException {
+
+		String html = "<ul><li><a name=\"section\"></a><p>text</p>";
+		Assertions.assertEquals("<li><a name=\"section\"></a><p>text</p>", extract(html, "section"));
+	}
+
+	@Test
+	void shouldReturnEmptyContentWhenSectionAnchorIsMissing() throws IOException {
+
+		String html = "<ul><li><a name=\"other\"></a></li></ul>";
+		Assertions.assertEquals("", extract(html, "section"));
+	}
+
+	@Test
+	void shouldNotExtractSectionsFromUnsupportedLayout() throws IOException {
+
+		Assertions.assertNull(extract("<div><a name=\"section\"></a></div>", "section"));
+		Assertions.assertNull(extract("<ul><li><div><a name=\"section\"></a></div></li></ul>", "section"));
+	}
+
+	@Test
+	void shouldParseWholePageWhenLayoutIsUnsupported() throws IOException {
+
+		String html = "<div><a name=\"section\"></a><ul><li>item</li></ul></div>";
+		ZomboidAPIDoc document = ZomboidAPIDoc.parseSections(html.getBytes(), PAGE_PATH, "section");
+
+		Element anchor = document.getDocument().getElementsByAttributeValue("name", "section").first();
+		Assertions.assertNotNull(anchor);
+		Assertions.assertEquals("div", anchor.parent().tagName());
+	}
+}
@@ -22,6 +22,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 
 import org.jetbrains.annotations.TestOnly;
+import org.jsoup.nodes.Element;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -123,6 +124,19 @@ class ZomboidAPIDocTest extends DocTest {
 		Assertions.assertEquals("Test.html", doc.getName());
 	}
 
+	@Test
+	void shouldIndexNamedAnchorsWhenLoadingDocument() {
+
+		for (String name : new String[]{ "field.detail", "constructor.detail", "method.detail" })
+		{
+			Element anchor = DOCUMENT.getAnchor(name);
+			Assertions.assertNotNull(anchor);
+			Assertions.assertEquals("a", anchor.tagName());
+			Assertions.assertEquals(name, anchor.attr("name"));
+		}
+		Assertions.assertNull(DOCUMENT.getAnchor("missing.detail"));
+	}
+
 	@TestOnly
 	private void assertValidResolvedApiURLPath(String actualUrl, String expectedUrl) {
 
@@ -18,6 +18,9 @@
 package io.cocolabs.pz.zdoc.doc;
 
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
 import org.jetbrains.annotations.TestOnly;
@@ -605,7 +608,11 @@ class ZomboidLuaDocTest extends TestWorkspace {
 	@TestOnly
 	private List<String> writeToFileAndRead(ZomboidLuaDoc zDoc) throws IOException {
 
-		zDoc.writeToFile(file);
+		try (Writer writer = new LuaDocWriter(FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)))
+		{
+			zDoc.writeTo(writer);
+		}
 		return readFile();
 	}
 
@@ -542,4 +542,40 @@ class MethodDetailTest extends MethodDetailTestFixture {
 			Assertions.assertTrue(detail.getEntries(field.getName()).contains(field));
 		}
 	}
+
+	@Test
+	void shouldFindMethodEntryMatchingByNameAndParameterTypes() {
+
+		JavaMethod update = JavaMethod.Builder.create("update").withReturnType(void.class)
+				.withModifier(new MemberModifier(AccessModifierKey.DEFAULT, ModifierKey.STATIC))
+				.withParams(new JavaParameter(ArrayList.class, "list")).build();
+
+		JavaMethod entry = detail.getEntry(update);
+		Assertions.assertNotNull(entry);
+		Assertions.assertEquals("update", entry.getName());
+		Assertions.assertEquals("params", entry.getParams().get(0).getName());
+
+		JavaMethod otherParamCount = JavaMethod.Builder.create("update").withReturnType(void.class)
+				.withModifier(new MemberModifier(AccessModifierKey.DEFAULT, ModifierKey.STATIC)).build();
+		Assertions.assertNull(detail.getEntry(otherParamCount));
+
+		JavaMethod otherParamType = JavaMethod.Builder.create("update").withReturnType(void.class)
+				.withModifier(new MemberModifier(AccessModifierKey.DEFAULT, ModifierKey.STATIC))
+				.withParams(new JavaParameter(List.class, "list")).build();
+		Assertions.assertNull(detail.getEntry(otherParamType));
+
+		JavaMethod otherModifier = JavaMethod.Builder.create("update").withReturnType(void.class)
+				.withModifier(new MemberModifier(AccessModifierKey.PUBLIC))
+				.withParams(new JavaParameter(ArrayList.class, "list")).build();
+		Assertions.assertNull(detail.getEntry(otherModifier));
+	}
+
+	@Test
+	void shouldGetMethodEntriesByName() {
+
+		List<JavaMethod> entries = detail.getEntriesByName("begin");
+		Assertions.assertEquals(1, entries.size());
+		Assertions.assertEquals("begin", entries.get(0).getName());
+		Assertions.assertTrue(detail.getEntriesByName("missing").isEmpty());
+	}
 }
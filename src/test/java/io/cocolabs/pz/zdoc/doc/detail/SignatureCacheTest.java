@@ -0,0 +1,126 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.doc.detail;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jsoup.nodes.Element;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class SignatureCacheTest {
+
+	@Test
+	void shouldParseIdenticalSignaturesOnlyOnce() throws SignatureParsingException {
+
+		AtomicInteger parseCount = new AtomicInteger();
+		SignatureCache<String> cache = new SignatureCache<>();
+		SignatureCache.Parser<String> parser = s -> {
+			parseCount.incrementAndGet();
+			return s.toUpperCase();
+		};
+		String first = cache.get("public void update()", parser);
+		Assertions.assertEquals("PUBLIC VOID UPDATE()", first);
+		Assertions.assertSame(first, cache.get("public void update()", parser));
+		Assertions.assertEquals(1, parseCount.get());
+		Assertions.assertEquals(1, cache.getHitCount());
+		Assertions.assertEquals(1, cache.getMissCount());
+
+		cache.get("public boolean isDead()", parser);
+		Assertions.assertEquals(2, parseCount.get());
+	}
+
+	@Test
+	void shouldNotCacheSignaturesThatFailedToParse() {
+
+		AtomicInteger parseCount = new AtomicInteger();
+		SignatureCache<String> cache = new SignatureCache<>();
+		SignatureCache.Parser<String> parser = s -> {
+			parseCount.incrementAndGet();
+			throw new SignatureParsingException(s, "test");
+		};
+		for (int i = 0; i < 2; i++) {
+			Assertions.assertThrows(SignatureParsingException.class, () -> cache.get("void", parser));
+		}
+		Assertions.assertEquals(2, parseCount.get());
+	}
+
+	@Test
+	void shouldNotCacheMoreSignaturesThanMaximumSize() throws SignatureParsingException {
+
+		AtomicInteger parseCount = new AtomicInteger();
+		SignatureCache<String> cache = new SignatureCache<>(16);
+		SignatureCache.Parser<String> parser = s -> {
+			parseCount.incrementAndGet();
+			return s.toUpperCase();
+		};
+		for (int i = 0; i < 64; i++) {
+			Assertions.assertEquals("VOID METHOD" + i + "()", cache.get("void method" + i + "()", parser));
+		}
+		Assertions.assertEquals(64, parseCount.get());
+		Assertions.assertTrue(cache.size() <= 16);
+
+		// evicted signatures are parsed again
+		Assertions.assertEquals("VOID METHOD0()", cache.get("void method0()", parser));
+		Assertions.assertEquals(65, parseCount.get());
+
+		Assertions.assertThrows(IllegalArgumentException.class, () -> new SignatureCache<String>(0));
+	}
+
+	@Test
+	void shouldShareParsedMethodSignaturesAcrossDocuments() throws SignatureParsingException {
+
+		Element element = new Element("pre").text("public void setSignatureCacheTest(int value)");
+		MethodDetail.Signature first = MethodDetail.Signature.parse(element, "");
+		Assertions.assertSame(first, MethodDetail.Signature.parse(element.clone(), ""));
+
+		MethodDetail.Signature commented = MethodDetail.Signature.parse(element, "detail comment");
+		Assertions.assertNotSame(first, commented);
+		Assertions.assertEquals("detail comment", commented.comment);
+		Assertions.assertEquals(first.name, commented.name);
+		Assertions.assertEquals(first.params, commented.params);
+		Assertions.assertSame(first.modifier, commented.modifier);
+		Assertions.assertEquals("", first.comment);
+	}
+
+	@Test
+	void shouldShareParsedFieldSignaturesAcrossDocuments() throws SignatureParsingException {
+
+		Element element = new Element("pre").text("public static int signatureCacheTest");
+		FieldDetail.Signature first = FieldDetail.Signature.parse(element, "");
+		Assertions.assertSame(first, FieldDetail.Signature.parse(element.clone(), ""));
+
+		FieldDetail.Signature commented = FieldDetail.Signature.parse(element, "detail comment");
+		Assertions.assertEquals("detail comment", commented.comment);
+		Assertions.assertEquals(first.type, commented.type);
+		Assertions.assertEquals(first.name, commented.name);
+	}
+
+	@Test
+	void shouldShareParsedMethodParametersAcrossDocuments() throws SignatureParsingException {
+
+		MethodSignatureParser.Parameters first =
+				MethodSignatureParser.parseParameters("java.lang.String signatureCacheTest, int... values");
+
+		Assertions.assertSame(first, MethodSignatureParser.parseParameters(
+				"java.lang.String signatureCacheTest, int... values"));
+		Assertions.assertEquals(2, first.params.size());
+		Assertions.assertTrue(first.isVarArg);
+		Assertions.assertThrows(UnsupportedOperationException.class, () -> first.params.clear());
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * ZomboidDoc - Lua library compiler for Project Zomboid
+ * Copyright (C) 2020-2021 Matthew Cain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.cocolabs.pz.zdoc.util;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.common.collect.Sets;
+
+class ClassResolverTest {
+
+	@BeforeEach
+	void clearClassResolverCache() {
+		ClassResolver.clear();
+	}
+
+	@Test
+	void shouldResolveClassesForNames() {
+
+		Assertions.assertEquals(String.class, ClassResolver.resolve("java.lang.String"));
+		Assertions.assertEquals(int.class, ClassResolver.resolve("int"));
+		Assertions.assertEquals(String[][].class, ClassResolver.resolve("java.lang.String[][]"));
+		Assertions.assertEquals(int[].class, ClassResolver.resolve("int[]"));
+		Assertions.assertNull(ClassResolver.resolve("nonExistingClass"));
+	}
+
+	@Test
+	void shouldCacheResolvedClassNames() {
+
+		Assertions.assertEquals(String.class, ClassResolver.resolve("java.lang.String"));
+		Assertions.assertEquals(0, ClassResolver.getHitCount());
+		Assertions.assertEquals(1, ClassResolver.getMissCount());
+
+		Assertions.assertEquals(String.class, ClassResolver.resolve("java.lang.String"));
+		Assertions.assertEquals(1, ClassResolver.getHitCount());
+		Assertions.assertEquals(1, ClassResolver.getMissCount());
+	}
+
+	@Test
+	void shouldCacheUnresolvedClassNames() {
+
+		Assertions.assertNull(ClassResolver.resolve("nonExistingClass"));
+		Assertions.assertNull(ClassResolver.resolve("nonExistingClass"));
+		Assertions.assertEquals(1, ClassResolver.getHitCount());
+		Assertions.assertEquals(1, ClassResolver.getMissCount());
+
+		Assertions.assertThrows(ClassNotFoundException.class,
+				() -> Utils.getClassForName("nonExistingClass"));
+		Assertions.assertEquals(2, ClassResolver.getHitCount());
+	}
+
+	@Test
+	void shouldNotCacheClassesThatFailedToLoad(@TempDir Path dir) throws IOException {
+
+		// malformed class file makes class loader throw ClassFormatError
+		Files.write(dir.resolve("MalformedClass.class"), new byte[]{ 1, 2, 3, 4 });
+
+		Thread thread = Thread.currentThread();
+		ClassLoader contextClassLoader = thread.getContextClassLoader();
+		try (URLClassLoader classLoader = new URLClassLoader(new URL[]{ dir.toUri().toURL() }, contextClassLoader))
+		{
+			thread.setContextClassLoader(classLoader);
+			Assertions.assertThrows(LinkageError.class, () -> ClassResolver.resolve("MalformedClass"));
+			Assertions.assertThrows(LinkageError.class, () -> ClassResolver.resolve("MalformedClass"));
+		}
+		finally {
+			thread.setContextClassLoader(contextClassLoader);
+		}
+		Assertions.assertEquals(0, ClassResolver.getHitCount());
+		Assertions.assertEquals(2, ClassResolver.getMissCount());
+	}
+
+	@Test
+	void shouldResolveSameClassWhenAccessedConcurrently() throws InterruptedException, ExecutionException {
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Class<?>>> futures = new ArrayList<>();
+			for (int i = 0; i < 64; i++) {
+				futures.add(executor.submit(() -> ClassResolver.resolve("java.util.ArrayList")));
+			}
+			Set<Class<?>> results = Sets.newHashSet();
+			for (Future<Class<?>> future : futures) {
+				results.add(future.get());
+			}
+			Assertions.assertEquals(Collections.<Class<?>>singleton(ArrayList.class), results);
+			Assertions.assertEquals(64, ClassResolver.getHitCount() + ClassResolver.getMissCount());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+}